@@ -30,8 +30,9 @@ public class App {
     }
 
     public static Connection connectToDb() throws SQLException, ClassNotFoundException {
-        // Connection string
-        String url = String.format("jdbc:mysql://127.0.0.1/%s?user=%s&password=%s", DATABASE_NAME, USER_NAME, PASSWORD);
+        // Connection string, with server-side cursors so that large queries honour their fetch size
+        String url = String.format("jdbc:mysql://127.0.0.1/%s?user=%s&password=%s&useCursorFetch=true",
+                DATABASE_NAME, USER_NAME, PASSWORD);
 
         Class.forName("com.mysql.cj.jdbc.Driver");
 
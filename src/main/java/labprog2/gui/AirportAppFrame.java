@@ -2,11 +2,14 @@ package labprog2.gui;
 
 import labprog2.model.Airport;
 import labprog2.model.AirportNetwork;
+import labprog2.model.NetworkSnapshot;
 import labprog2.model.UserSearch;
 import labprog2.util.graph.Path;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
 
 import javax.swing.*;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Timestamp;
@@ -14,6 +17,7 @@ import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 public class AirportAppFrame extends JFrame {
@@ -34,6 +38,12 @@ public class AirportAppFrame extends JFrame {
 
     private final List<Airport> airports;
 
+    /**
+     * File from which the network is loaded at startup, instead of being rebuilt, while the airport table does not
+     * change.
+     */
+    private static final java.nio.file.Path SNAPSHOT_FILE = Paths.get("airport_network.snapshot");
+
     /**
      * Gets airport data from database. Setups frame and adds handlers to components. Informs user in case of
      * failure.
@@ -44,9 +54,25 @@ public class AirportAppFrame extends JFrame {
         this.connection = connection;
 
         try {
-            // Get airport data from database and create network
-            this.airports = Airport.getAllAirportDataDb(this.connection);
-            this.airportNetwork = new AirportNetwork(this.airports);
+            // Load the network saved by a previous launch, unless the airport table changed since
+            long checksum = Airport.getAirportTableChecksumDb(this.connection);
+            NetworkSnapshot snapshot = readSnapshot(checksum);
+            if (snapshot != null) {
+                this.airports = snapshot.getAirports();
+                this.airportNetwork = snapshot.getNetwork();
+            } else {
+                // Get airport data from database and create network, whose routes weigh the same in both directions
+                this.airports = Airport.getAllAirportDataDb(this.connection);
+                this.airportNetwork = new AirportNetwork(this.airports, AirportNetwork.GraphType.SYMMETRIC);
+                writeSnapshot(checksum);
+            }
+            // Precompute all routes, as the network is small enough for the table to fit in memory. The table is
+            // built in the background, so that loading a snapshot keeps startup fast; until it is published,
+            // queries are answered by searching the network, with the same results, as they are if the build fails
+            CompletableFuture.runAsync(this.airportNetwork::precomputeRoutes).exceptionally(e -> {
+                System.out.println("Unable to precompute routes, searching the network instead: " + e.getCause());
+                return null;
+            });
         } catch (SQLException e) {
             // Inform user of failure in getting data
             JOptionPane.showMessageDialog(this, "Unable to get airport data");
@@ -66,6 +92,34 @@ public class AirportAppFrame extends JFrame {
         getInformationButton.addActionListener(actionEvent -> handleGetInformationButtonClick());
     }
 
+    /**
+     * Loads the network saved by a previous launch.
+     *
+     * @param checksum checksum of the airport table.
+     * @return snapshot of the network, or null if it must be rebuilt.
+     */
+    private static NetworkSnapshot readSnapshot(long checksum) {
+        try {
+            return NetworkSnapshot.read(SNAPSHOT_FILE, checksum);
+        } catch (IOException e) {
+            System.out.println("Unable to load network snapshot, rebuilding network: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the network for the next launch. A failure only costs the next launch a rebuild.
+     *
+     * @param checksum checksum of the airport table.
+     */
+    private void writeSnapshot(long checksum) {
+        try {
+            NetworkSnapshot.write(SNAPSHOT_FILE, checksum, this.airportNetwork);
+        } catch (IOException e) {
+            System.out.println("Unable to save network snapshot: " + e.getMessage());
+        }
+    }
+
     /**
      * Applies the initial setup of the main panel, setting its size, the default close operation and making it
      * visible. It also makes the response label (that shows the output route) not visible, at first.
@@ -1,19 +1,18 @@
 package labprog2.model;
 
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLDataException;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvException;
-
 import labprog2.util.location.Address;
 import labprog2.util.location.GeographicCoordinates;
 
@@ -37,11 +36,28 @@ public class Airport {
 
     private static final String AIRPORTS_TABLE = "airports";
 
-    private static final String SELECT_ALL_QUERY = String.format("SELECT * FROM %s", AIRPORTS_TABLE);
+    /**
+     * Columns read into an airport, in the order of {@link #Airport(String[])}.
+     */
+    private static final String AIRPORT_COLUMNS = "id, iata, icao, airport_name, airport_location, street_number, "
+            + "street, city, county, country_state, state_code, country_iso, country, postal_code, phone, latitude, "
+            + "longitude, uct, website";
+
+    /**
+     * Number of rows fetched from the server at a time when retrieving all airports.
+     */
+    public static final int DEFAULT_FETCH_SIZE = 1000;
 
-    private static final String SELECT_BY_ID_QUERY = String.format("SELECT * FROM %s WHERE id=?", AIRPORTS_TABLE);
+    private static final String SELECT_ALL_QUERY = String.format("SELECT %s FROM %s", AIRPORT_COLUMNS,
+            AIRPORTS_TABLE);
 
-    private static final String SELECT_BY_IATA_QUERY = String.format("SELECT * FROM %s WHERE iata=?", AIRPORTS_TABLE);
+    private static final String SELECT_BY_ID_QUERY = String.format("SELECT %s FROM %s WHERE id=?", AIRPORT_COLUMNS,
+            AIRPORTS_TABLE);
+
+    private static final String SELECT_BY_IATA_QUERY = String.format("SELECT %s FROM %s WHERE iata=?",
+            AIRPORT_COLUMNS, AIRPORTS_TABLE);
+
+    private static final String CHECKSUM_QUERY = String.format("CHECKSUM TABLE %s", AIRPORTS_TABLE);
 
     private static final String INSERT_AIRPORT_QUERY = String
             .format("INSERT INTO %s VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", AIRPORTS_TABLE);
@@ -79,6 +95,22 @@ public class Airport {
         this.website = data[18];
     }
 
+    /**
+     * Creates an airport object from data that is already parsed, e.g. by {@link AirportCsvParser}.
+     */
+    Airport(int id, String iata, String icao, String name, Address address, String phone,
+            GeographicCoordinates geographicCoordinates, int ucl, String website) {
+        this.id = id;
+        this.iata = iata;
+        this.icao = icao;
+        this.name = name;
+        this.address = address;
+        this.phone = phone;
+        this.geographicCoordinates = geographicCoordinates;
+        this.ucl = ucl;
+        this.website = website;
+    }
+
     public Airport(String iata) {
         this.iata = iata;
     }
@@ -140,23 +172,33 @@ public class Airport {
     }
 
     /**
-     * <p>Reads all airport data within a csv file and returns an array of airports.</p> <br>
+     * Gets the data of the airport as the array of 19 strings it can be created from, see
+     * {@link #Airport(String[])}.
+     *
+     * @return array of strings containing the airport data.
+     */
+    String[] getData() {
+        return new String[] { String.valueOf(id), iata, icao, name, address.getLocation(), address.getStreetNumber(),
+                address.getStreet(), address.getCity(), address.getCounty(), address.getState(),
+                address.getStateCode(), address.getCountryISO(), address.getCountry(), address.getPostalCode(), phone,
+                String.valueOf(geographicCoordinates.getLatitude()),
+                String.valueOf(geographicCoordinates.getLongitude()), String.valueOf(ucl), website };
+    }
+
+    /**
+     * <p>Reads all airport data within a csv file and returns an array of airports. See {@link AirportCsvParser}
+     * and {@link AirportCsvLoader} for other files.</p> <br>
      *
      * <em>Deprecated: airports are now retrieved from a MySQL database</em>
      *
      * @return array containing
-     * @throws IOException failure opening csv file
-     * @throws CsvException failure reading csv file
+     * @throws IOException failure opening or reading csv file
+     * @throws IllegalArgumentException thrown if a row of the csv file is malformed.
      */
-    public static Airport[] readFromAirportCsv() throws IOException, CsvException {
-        FileReader fileReader = new FileReader(pathToCsv);
-        CSVReader reader = new CSVReader(fileReader);
-        List<String[]> r = reader.readAll();
-        Airport[] airports = new Airport[r.size() - 1];
-        for (int i = 1; i != r.size(); ++i)
-            airports[i - 1] = new Airport(r.get(i));
-        reader.close();
-        return airports;
+    public static Airport[] readFromAirportCsv() throws IOException {
+        // The bundled file has no malformed rows, so any is an error
+        List<Airport> airports = AirportCsvParser.read(Paths.get(pathToCsv));
+        return airports.toArray(new Airport[0]);
     }
 
     /**
@@ -191,26 +233,68 @@ public class Airport {
     }
 
     /**
-     * Retrieves data about all airports stored in the database.
+     * Retrieves data about all airports stored in the database, fetching {@link #DEFAULT_FETCH_SIZE} rows at a time.
      *
      * @param connection active connection to the database.
      * @return list containing all the airports in the database.
      * @throws SQLException thrown if an error occurred while creating the insert statement.
      */
     public static List<Airport> getAllAirportDataDb(Connection connection) throws SQLException {
+        return getAllAirportDataDb(connection, DEFAULT_FETCH_SIZE);
+    }
 
-        ResultSet airportSet = connection.createStatement().executeQuery(SELECT_ALL_QUERY);
-
-        List<Airport> airportList = new LinkedList<>();
-
-        while (airportSet.next()) {
-            Airport airport = packAirportQueryResults(airportSet);
-            airportList.add(airport);
+    /**
+     * Retrieves data about all airports stored in the database. The rows are fetched from the server a few at a
+     * time, so that large tables are not held in memory twice, provided the connection uses server-side cursors,
+     * e.g. with {@code useCursorFetch=true} on MySQL. Airports whose id, coordinates or uct are NULL are skipped.
+     *
+     * @param connection active connection to the database.
+     * @param fetchSize number of rows fetched from the server at a time.
+     * @return list containing all the airports in the database.
+     * @throws SQLException thrown if an error occurred while creating the insert statement.
+     */
+    public static List<Airport> getAllAirportDataDb(Connection connection, int fetchSize) throws SQLException {
+        if (fetchSize <= 0)
+            throw new IllegalArgumentException("Fetch size must be positive: " + fetchSize);
+
+        List<Airport> airportList = new ArrayList<>();
+
+        try (Statement selectStatement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY)) {
+            selectStatement.setFetchSize(fetchSize);
+
+            try (ResultSet airportSet = selectStatement.executeQuery(SELECT_ALL_QUERY)) {
+                while (airportSet.next()) {
+                    try {
+                        airportList.add(packAirportQueryResults(airportSet));
+                    } catch (SQLDataException e) {
+                        // Skip the airport, as a missing coordinate would place it far from its routes
+                        System.out.println("Skipping airport: " + e.getMessage());
+                    }
+                }
+            }
         }
 
         return airportList;
     }
 
+    /**
+     * Computes a checksum of the airport table of the database, which changes whenever its data changes. It tells
+     * whether data derived from the table, e.g. a network snapshot, is stale, without retrieving the airports.
+     *
+     * @param connection active connection to the database.
+     * @return checksum of the table.
+     * @throws SQLException thrown if an error occurred while computing the checksum.
+     */
+    public static long getAirportTableChecksumDb(Connection connection) throws SQLException {
+        try (Statement checksumStatement = connection.createStatement();
+             ResultSet checksumSet = checksumStatement.executeQuery(CHECKSUM_QUERY)) {
+            checksumSet.next();
+
+            return checksumSet.getLong(2);
+        }
+    }
+
     /**
      * Retrieves data about an airport in the database by its id.
      *
@@ -252,33 +336,47 @@ public class Airport {
      *
      * @param airportSet result set of a select query in the airport table
      * @return Airport corresponding to the read data.
+     * @throws SQLDataException thrown if the id, the coordinates or the uct of the airport are NULL, which the typed
+     *                          getters would otherwise read as 0.
      * @throws SQLException thrown if an error occurred while reading the data
      */
     private static Airport packAirportQueryResults(ResultSet airportSet) throws SQLException {
-        String id = airportSet.getString(1);
+        // Columns are read by their type, in the order of AIRPORT_COLUMNS
+        int id = airportSet.getInt(1);
+        checkNotNull(airportSet, "id", null);
         String iata = airportSet.getString(2);
         String icao = airportSet.getString(3);
         String name = airportSet.getString(4);
-        String location = airportSet.getString(5);
-        String streetNumber = airportSet.getString(6);
-        String street = airportSet.getString(7);
-        String city = airportSet.getString(8);
-        String county = airportSet.getString(9);
-        String state = airportSet.getString(10);
-        String state_code = airportSet.getString(11);
-        String countryIso = airportSet.getString(12);
-        String country = airportSet.getString(13);
-        String postalCode = airportSet.getString(14);
+
+        String[] addressStrings = new String[10];
+        for (int column = 5; column != 15; ++column)
+            addressStrings[column - 5] = airportSet.getString(column);
+
         String phone = airportSet.getString(15);
-        String latitude = airportSet.getString(16);
-        String longitude = airportSet.getString(17);
-        String uct = airportSet.getString(18);
+        double latitude = airportSet.getDouble(16);
+        checkNotNull(airportSet, "latitude", id);
+        double longitude = airportSet.getDouble(17);
+        checkNotNull(airportSet, "longitude", id);
+        int uct = airportSet.getInt(18);
+        checkNotNull(airportSet, "uct", id);
         String website = airportSet.getString(19);
 
-        String[] airportStrings = { id, iata, icao, name, location, streetNumber, street, city, county, state,
-                state_code, countryIso, country, postalCode, phone, latitude, longitude, uct, website };
+        return new Airport(id, iata, icao, name, new Address(addressStrings), phone,
+                new GeographicCoordinates(latitude, longitude), uct, website);
+    }
 
-        return new Airport(airportStrings);
+    /**
+     * Rejects the column last read from a result set if it was NULL.
+     *
+     * @param airportSet result set of a select query in the airport table
+     * @param column name of the column last read.
+     * @param id id of the airport, or null if it is the column being checked.
+     * @throws SQLDataException thrown if the column was NULL.
+     * @throws SQLException thrown if an error occurred while reading the data
+     */
+    private static void checkNotNull(ResultSet airportSet, String column, Integer id) throws SQLException {
+        if (airportSet.wasNull())
+            throw new SQLDataException(id == null ? "Airport id is NULL" : "Airport " + id + " has a NULL " + column);
     }
 
 }
@@ -0,0 +1,270 @@
+package labprog2.model;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+/**
+ * Reads airports from a CSV file with the 19 columns of {@link Airport#Airport(String[])}, one row at a time, so
+ * that files of any size are read without keeping their rows on the heap. Rows are split from the file in order,
+ * by a single reader; in a parallel stream, batches of rows are then turned into airports by several threads.
+ * <p>
+ * Malformed rows, e.g. with missing fields or a latitude that is not a number, are reported to a handler and
+ * skipped, without aborting the rest of the file.
+ */
+public class AirportCsvLoader {
+
+    /**
+     * Row of the file that could not be turned into an airport.
+     */
+    public static class MalformedRow {
+        private final long rowNumber;
+        private final String[] fields;
+        private final String reason;
+
+        MalformedRow(long rowNumber, String[] fields, String reason) {
+            this.rowNumber = rowNumber;
+            this.fields = fields;
+            this.reason = reason;
+        }
+
+        /**
+         *
+         * @return number of the row in the file, starting at 1 with the header.
+         */
+        public long getRowNumber() {
+            return rowNumber;
+        }
+
+        /**
+         *
+         * @return fields of the row, or null if the row could not be split into fields.
+         */
+        public String[] getFields() {
+            return fields;
+        }
+
+        /**
+         *
+         * @return description of the problem.
+         */
+        public String getReason() {
+            return reason;
+        }
+
+        @Override
+        public String toString() {
+            return "Row " + rowNumber + ": " + reason;
+        }
+    }
+
+    /**
+     * Opens the input of the loader, once for every stream.
+     */
+    private interface Source {
+        Reader open() throws IOException;
+    }
+
+    private final Source source;
+
+    private final String name;
+
+    private Consumer<MalformedRow> malformedRowHandler = row -> { };
+
+    private AirportCsvLoader(Source source, String name) {
+        this.source = source;
+        this.name = name;
+    }
+
+    /**
+     * Creates a loader of a file in UTF-8.
+     *
+     * @param file path of the file.
+     * @return loader of the file.
+     */
+    public static AirportCsvLoader fromPath(Path file) {
+        return new AirportCsvLoader(() -> Files.newBufferedReader(file, StandardCharsets.UTF_8), file.toString());
+    }
+
+    /**
+     * Creates a loader of a resource in UTF-8 found by the class loader, e.g. a file packaged with the application.
+     *
+     * @param resource absolute name of the resource, e.g. "/airport_data.csv".
+     * @return loader of the resource.
+     */
+    public static AirportCsvLoader fromResource(String resource) {
+        return new AirportCsvLoader(() -> {
+            InputStream stream = AirportCsvLoader.class.getResourceAsStream(resource);
+            if (stream == null)
+                throw new NoSuchFileException(resource);
+            return new InputStreamReader(stream, StandardCharsets.UTF_8);
+        }, resource);
+    }
+
+    /**
+     * Sets the handler of malformed rows, which by default ignores them. In a parallel stream, the handler may be
+     * called by several threads at once.
+     *
+     * @param handler handler that receives every malformed row.
+     * @return reference to current loader.
+     */
+    public AirportCsvLoader onMalformedRow(Consumer<MalformedRow> handler) {
+        this.malformedRowHandler = Objects.requireNonNull(handler);
+        return this;
+    }
+
+    /**
+     * Streams the airports of the file, in file order, skipping its header. The file is read as the stream is
+     * consumed and closed when the stream is closed, so the stream should be used in a try-with-resources
+     * statement. A parallel stream turns rows into airports in parallel.
+     *
+     * @return stream of the airports of the well-formed rows.
+     * @throws IOException thrown if the file could not be opened. Failures to read it later are thrown as
+     * {@link UncheckedIOException} by the stream.
+     */
+    public Stream<Airport> stream() throws IOException {
+        CSVReader reader = new CSVReader(source.open());
+        Consumer<MalformedRow> handler = malformedRowHandler;
+
+        // The header is read right away, so the reader must be closed here if that fails
+        RowIterator rows;
+        try {
+            rows = new RowIterator(reader, handler);
+        } catch (UncheckedIOException e) {
+            reader.close();
+            throw e.getCause();
+        }
+
+        // Batches of rows split off the iterator are parsed by other threads in a parallel stream
+        Stream<Airport> airports = StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(rows, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .map(row -> parse(row, handler))
+                .filter(Objects::nonNull);
+
+        return airports.onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Reads every airport of the file, turning the rows into airports in parallel.
+     *
+     * @return list of the airports of the well-formed rows, in file order.
+     * @throws IOException thrown if the file could not be read.
+     */
+    public List<Airport> readAll() throws IOException {
+        try (Stream<Airport> airports = stream()) {
+            return airports.parallel().collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Turns a row into an airport.
+     *
+     * @return airport of the row, or null if the row is malformed.
+     */
+    private static Airport parse(NumberedRow row, Consumer<MalformedRow> handler) {
+        if (row.fields.length != 19) {
+            handler.accept(new MalformedRow(row.number, row.fields,
+                    "expected 19 fields, found " + row.fields.length));
+            return null;
+        }
+
+        try {
+            return new Airport(row.fields);
+        } catch (NumberFormatException e) {
+            handler.accept(new MalformedRow(row.number, row.fields, e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Row of the file together with its number.
+     */
+    private static final class NumberedRow {
+        private final long number;
+        private final String[] fields;
+
+        private NumberedRow(long number, String[] fields) {
+            this.number = number;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * Reads the rows of the file after the header, one at a time. Rows that cannot be split into fields are
+     * reported and skipped.
+     */
+    private final class RowIterator implements Iterator<NumberedRow> {
+        private final CSVReader reader;
+        private final Consumer<MalformedRow> handler;
+        private long number = 0;
+        private NumberedRow next;
+
+        private RowIterator(CSVReader reader, Consumer<MalformedRow> handler) {
+            this.reader = reader;
+            this.handler = handler;
+            // Skip the header
+            readNext();
+            this.next = readNext();
+        }
+
+        /**
+         * Reads the next row that can be split into fields.
+         *
+         * @return next row, or null at the end of the file.
+         */
+        private NumberedRow readNext() {
+            while (true) {
+                ++number;
+                try {
+                    String[] fields = reader.readNext();
+                    return fields != null ? new NumberedRow(number, fields) : null;
+                } catch (CsvValidationException e) {
+                    handler.accept(new MalformedRow(number, null, e.getMessage()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Unable to read " + name, e);
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public NumberedRow next() {
+            if (next == null)
+                throw new NoSuchElementException();
+            NumberedRow row = next;
+            next = readNext();
+            return row;
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package labprog2.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import labprog2.util.location.Address;
+import labprog2.util.location.GeographicCoordinates;
+
+/**
+ * Parser of CSV files with the 19 columns of {@link Airport#Airport(String[])}, specialised for that schema. The
+ * file is read through a {@link FileChannel} into a single reused buffer, and the fields of every row are located
+ * in place. The id, latitude, longitude and time zone are parsed straight from the bytes, and only the text
+ * columns are turned into strings, empty ones all sharing the same instance. Those are decoded as each row is
+ * read, since the buffer is reused for the rows that follow and an {@link Airport} holds its text as strings.
+ * <p>
+ * Rows are numbered, and malformed rows reported, as by {@link AirportCsvLoader}, which remains the choice for
+ * resources and for streaming.
+ */
+public class AirportCsvParser {
+
+    private static final int FIELDS = 19;
+
+    private static final int ID = 0;
+    private static final int LATITUDE = 15;
+    private static final int LONGITUDE = 16;
+    private static final int UCL = 17;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest number of significant digits of a decimal that is exactly a double.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15 };
+
+    private final Consumer<AirportCsvLoader.MalformedRow> malformedRowHandler;
+
+    private byte[] bytes;
+
+    // Bounds of the fields of the current row, without quotes
+    private int[] starts = new int[FIELDS];
+    private int[] ends = new int[FIELDS];
+    private boolean[] escaped = new boolean[FIELDS];
+    private int fieldCount;
+    private String problem;
+
+    private AirportCsvParser(Consumer<AirportCsvLoader.MalformedRow> malformedRowHandler) {
+        this.malformedRowHandler = malformedRowHandler;
+    }
+
+    /**
+     * Reads every airport of a file in UTF-8, failing on malformed rows.
+     *
+     * @param file path of the file.
+     * @return list of the airports of the file, in file order.
+     * @throws IOException thrown if the file could not be read.
+     * @throws IllegalArgumentException thrown if a row of the file is malformed.
+     */
+    public static List<Airport> read(Path file) throws IOException {
+        return read(file, row -> {
+            throw new IllegalArgumentException("Malformed airport data in " + file + ": " + row);
+        });
+    }
+
+    /**
+     * Reads every airport of a file in UTF-8, skipping its header.
+     *
+     * @param file path of the file.
+     * @param handler handler that receives every malformed row, which is then skipped.
+     * @return list of the airports of the well-formed rows, in file order.
+     * @throws IOException thrown if the file could not be read.
+     */
+    public static List<Airport> read(Path file, Consumer<AirportCsvLoader.MalformedRow> handler)
+            throws IOException {
+        Objects.requireNonNull(handler);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new AirportCsvParser(handler).parse(channel);
+        }
+    }
+
+    private List<Airport> parse(FileChannel channel) throws IOException {
+        List<Airport> airports = new ArrayList<>();
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.min(BUFFER_SIZE, channel.size() + 1));
+        boolean eof = false;
+        boolean start = true;
+        long rowNumber = 0;
+        int pos = 0;
+
+        while (true) {
+            bytes = buffer.array();
+            int limit = buffer.position();
+
+            if (start && (limit >= 3 || eof)) {
+                // Skip the byte order mark some editors put at the start of UTF-8 files
+                if (limit >= 3 && bytes[0] == (byte) 0xEF && bytes[1] == (byte) 0xBB && bytes[2] == (byte) 0xBF)
+                    pos = 3;
+                start = false;
+            }
+
+            if (!start && pos < limit) {
+                int end = scanRow(pos, limit, eof);
+                if (end >= 0) {
+                    // Skip the header
+                    if (++rowNumber != 1) {
+                        Airport airport = toAirport(rowNumber);
+                        if (airport != null)
+                            airports.add(airport);
+                    }
+                    pos = end;
+                    continue;
+                }
+            } else if (eof) {
+                return airports;
+            }
+
+            // The rest of the buffer is part of a row: move it to the front and read more of the file
+            buffer.limit(limit);
+            buffer.position(pos);
+            buffer.compact();
+            pos = 0;
+            if (!buffer.hasRemaining()) {
+                // A single row fills the buffer
+                ByteBuffer larger = ByteBuffer.allocate(2 * buffer.capacity());
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            if (channel.read(buffer) < 0)
+                eof = true;
+        }
+    }
+
+    /**
+     * Locates the fields of the row starting at a position of the buffer.
+     *
+     * @return position after the end of the row, or -1 if the row continues after the limit and the file does.
+     */
+    private int scanRow(int pos, int limit, boolean eof) {
+        fieldCount = 0;
+        problem = null;
+        int i = pos;
+
+        while (true) {
+            int start;
+            int end;
+            boolean escapedQuotes = false;
+
+            if (i < limit && bytes[i] == '"') {
+                // Quoted field, where a quote is written as two quotes
+                start = ++i;
+                while (true) {
+                    if (i >= limit) {
+                        if (!eof)
+                            return -1;
+                        problem = "unterminated quoted field";
+                        addField(start, limit, escapedQuotes);
+                        return limit;
+                    }
+                    if (bytes[i] == '"') {
+                        if (i + 1 < limit && bytes[i + 1] == '"') {
+                            escapedQuotes = true;
+                            i += 2;
+                            continue;
+                        }
+                        if (i + 1 >= limit && !eof)
+                            return -1;
+                        break;
+                    }
+                    ++i;
+                }
+                end = i++;
+            } else {
+                start = i;
+                while (i < limit && bytes[i] != ',' && bytes[i] != '\n' && bytes[i] != '\r')
+                    ++i;
+                end = i;
+            }
+            addField(start, end, escapedQuotes);
+
+            if (i >= limit)
+                return eof ? limit : -1;
+
+            byte next = bytes[i];
+            if (next == ',') {
+                ++i;
+            } else if (next == '\n') {
+                return i + 1;
+            } else if (next == '\r') {
+                if (i + 1 >= limit && !eof)
+                    return -1;
+                return i + 1 < limit && bytes[i + 1] == '\n' ? i + 2 : i + 1;
+            } else {
+                // Text after the closing quote of a field: skip the rest of the row
+                problem = "unexpected character after quoted field " + fieldCount;
+                while (i < limit && bytes[i] != '\n')
+                    ++i;
+                if (i >= limit && !eof)
+                    return -1;
+                return Math.min(i + 1, limit);
+            }
+        }
+    }
+
+    private void addField(int start, int end, boolean escapedQuotes) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, 2 * fieldCount);
+            ends = Arrays.copyOf(ends, 2 * fieldCount);
+            escaped = Arrays.copyOf(escaped, 2 * fieldCount);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        escaped[fieldCount] = escapedQuotes;
+        ++fieldCount;
+    }
+
+    /**
+     * Turns the fields of the current row into an airport.
+     *
+     * @return airport of the row, or null if the row is malformed.
+     */
+    private Airport toAirport(long rowNumber) {
+        if (problem == null && fieldCount != FIELDS)
+            problem = "expected " + FIELDS + " fields, found " + fieldCount;
+        if (problem != null) {
+            malformedRowHandler.accept(new AirportCsvLoader.MalformedRow(rowNumber, getFields(), problem));
+            return null;
+        }
+
+        try {
+            int id = parseInt(ID);
+            GeographicCoordinates coordinates = new GeographicCoordinates(parseDouble(LATITUDE),
+                    parseDouble(LONGITUDE));
+            int ucl = parseInt(UCL);
+
+            String[] address = new String[10];
+            for (int field = 4; field != 14; ++field)
+                address[field - 4] = getString(field);
+
+            return new Airport(id, getString(1), getString(2), getString(3), new Address(address), getString(14),
+                    coordinates, ucl, getString(18));
+        } catch (NumberFormatException e) {
+            malformedRowHandler.accept(new AirportCsvLoader.MalformedRow(rowNumber, getFields(), e.getMessage()));
+            return null;
+        }
+    }
+
+    private String[] getFields() {
+        String[] fields = new String[fieldCount];
+        for (int field = 0; field != fieldCount; ++field)
+            fields[field] = getString(field);
+        return fields;
+    }
+
+    private String getString(int field) {
+        int start = starts[field];
+        int end = ends[field];
+        if (start == end)
+            return "";
+        if (!escaped[field])
+            return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+
+        // Turn every two quotes into one
+        byte[] unescaped = new byte[end - start];
+        int length = 0;
+        for (int i = start; i != end; ++i) {
+            unescaped[length++] = bytes[i];
+            if (bytes[i] == '"')
+                ++i;
+        }
+        return new String(unescaped, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses an integer field. Plain integers are parsed from the bytes, anything else by
+     * {@link Integer#parseInt(String)}.
+     */
+    private int parseInt(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i != end && bytes[i] == '-';
+        if (negative)
+            ++i;
+
+        // Nine digits cannot overflow
+        if (i == end || end - i > 9 || escaped[field])
+            return Integer.parseInt(getString(field));
+
+        int value = 0;
+        for (; i != end; ++i) {
+            int digit = bytes[i] - '0';
+            if (digit < 0 || digit > 9)
+                return Integer.parseInt(getString(field));
+            value = 10 * value + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a decimal field. Decimals of up to 15 significant digits are parsed from the bytes: the digits and the
+     * power of ten are then exact doubles, so a single division rounds as {@link Double#parseDouble(String)} does.
+     * Anything else, e.g. exponents, is parsed by that method.
+     */
+    private double parseDouble(int field) {
+        int i = starts[field];
+        int end = ends[field];
+        boolean negative = i != end && bytes[i] == '-';
+        if (negative)
+            ++i;
+
+        long digits = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        for (; i != end; ++i) {
+            byte c = bytes[i];
+            if (c == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else if (c >= '0' && c <= '9' && digitCount != MAX_EXACT_DIGITS) {
+                digits = 10 * digits + (c - '0');
+                ++digitCount;
+                if (fractionDigits >= 0)
+                    ++fractionDigits;
+            } else {
+                return Double.parseDouble(getString(field));
+            }
+        }
+        if (digitCount == 0 || escaped[field])
+            return Double.parseDouble(getString(field));
+
+        double value = fractionDigits > 0 ? digits / POWERS_OF_TEN[fractionDigits] : digits;
+        return negative ? -value : value;
+    }
+}
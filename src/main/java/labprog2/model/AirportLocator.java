@@ -0,0 +1,94 @@
+package labprog2.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.GeographicCoordinates;
+import labprog2.util.location.KdTree;
+
+/**
+ * Finds the airports near a location, e.g. to snap the location of a user to a departure airport. Implemented with
+ * a {@link KdTree} of the airports, so queries take logarithmic time on average instead of measuring the distance
+ * to every airport. The locator is never changed once built, so it may be queried by any number of threads.
+ */
+public class AirportLocator {
+
+    private final List<Airport> airports;
+
+    private final KdTree tree;
+
+    /**
+     * Indexes a list of airports.
+     *
+     * @param airports airports to be found by the queries.
+     */
+    public AirportLocator(List<Airport> airports) {
+        this.airports = new ArrayList<>(airports);
+
+        List<GeographicCoordinates> points = new ArrayList<>(airports.size());
+        for (Airport airport : airports)
+            points.add(airport.getGeographicCoordinates());
+        this.tree = new KdTree(new CoordinateArrays(points));
+    }
+
+    /**
+     * Finds the airport nearest to a location.
+     *
+     * @param location coordinates of the location.
+     * @return nearest airport, or null if there are no airports.
+     */
+    public Airport getNearestAirport(GeographicCoordinates location) {
+        int[] nearest = tree.nearest(location, 1);
+        return nearest.length != 0 ? airports.get(nearest[0]) : null;
+    }
+
+    /**
+     * Finds the airports nearest to a location.
+     *
+     * @param location coordinates of the location.
+     * @param k number of airports to be found.
+     * @return the k nearest airports (or all airports, if there are fewer), from the nearest.
+     */
+    public List<Airport> getNearestAirports(GeographicCoordinates location, int k) {
+        List<Airport> nearest = new ArrayList<>(k);
+        for (int i : tree.nearest(location, k))
+            nearest.add(airports.get(i));
+        return nearest;
+    }
+
+    /**
+     * Finds the airports within a great-circle distance of a location.
+     *
+     * @param location coordinates of the location.
+     * @param distance greatest distance to the airports, in km.
+     * @return airports whose distance to the location is not greater than the given one, from the nearest.
+     */
+    public List<Airport> getAirportsWithin(GeographicCoordinates location, double distance) {
+        int[] within = tree.within(location, distance);
+
+        // Order the airports by distance, which is computed once per airport
+        double[] distances = new double[within.length];
+        Integer[] order = new Integer[within.length];
+        for (int i = 0; i != within.length; ++i) {
+            distances[i] = location.distanceTo(airports.get(within[i]).getGeographicCoordinates());
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> distances[i]));
+
+        List<Airport> airportsWithin = new ArrayList<>(within.length);
+        for (int i : order)
+            airportsWithin.add(airports.get(within[i]));
+        return airportsWithin;
+    }
+
+    /**
+     *
+     * @return number of airports indexed.
+     */
+    public int size() {
+        return airports.size();
+    }
+}
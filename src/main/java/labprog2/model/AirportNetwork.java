@@ -1,23 +1,115 @@
 package labprog2.model;
 
+import labprog2.util.graph.AbstractGraph;
+import labprog2.util.graph.CompactMatrixGraph;
+import labprog2.util.graph.CsrGraph;
 import labprog2.util.graph.Edge;
+import labprog2.util.graph.GeographicGraph;
 import labprog2.util.graph.Graph;
+import labprog2.util.graph.GraphSnapshot;
 import labprog2.util.graph.MatrixGraph;
 import labprog2.util.graph.Path;
+import labprog2.util.graph.RouteTable;
+import labprog2.util.graph.SymmetricMatrixGraph;
+import labprog2.util.graph.VersionedGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FrozenTopologyException;
 import labprog2.util.graph.exceptions.FullGraphException;
 import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.GeographicCoordinates;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.stream.IntStream;
 
 /**
- * Models a fully connected airport network.
+ * Models an airport network, fully connected unless its routes are chosen by a {@link RoutePolicy}.
  */
 public class AirportNetwork {
 
+    /**
+     * Graph implementations that may be used to store the network.
+     */
+    public enum GraphType {
+        /**
+         * Adjacency matrix, see {@link MatrixGraph}.
+         */
+        MATRIX,
+        /**
+         * Compressed sparse rows, see {@link CsrGraph}. The routes are fixed when the network is created: airports
+         * cannot be opened, and routes can only be closed and reopened.
+         */
+        CSR,
+        /**
+         * Upper triangle of a symmetric matrix, see {@link SymmetricMatrixGraph}. Routes weigh the distance between
+         * their airports, which is the same in both directions, so each pair of airports is stored once.
+         */
+        SYMMETRIC,
+        /**
+         * Bitset of routes and 16-bit distances, see {@link CompactMatrixGraph}.
+         */
+        COMPACT,
+        /**
+         * Coordinates of the airports only, with the routes computed as they are searched, see
+         * {@link GeographicGraph}. Takes memory proportional to the number of airports rather than its square.
+         */
+        IMPLICIT
+    }
+
+    /**
+     * Greatest distance between two airports, half the circumference of the earth.
+     */
+    private static final int MAX_ROUTE_DISTANCE = (int) Math.ceil(Math.PI * GeographicCoordinates.EARTH_RADIUS);
+
+    /**
+     * Number of rows of route distances cached by an {@link GraphType#IMPLICIT} network.
+     */
+    private static final int IMPLICIT_CACHED_ROWS = 256;
+
     private final List<Airport> airports;
 
-    private final Graph<Airport> network;
+    /**
+     * Chooses the routes of the network, including those of the airports opened later.
+     */
+    private final RoutePolicy routePolicy;
+
+    /**
+     * Graph implementation used to store the network.
+     */
+    private final GraphType graphType;
+
+    /**
+     * Coordinates of the airports of the initial list, in the same order.
+     */
+    private final CoordinateArrays coordinates;
+
+    /**
+     * Current and future versions of the network. Queries search the version current when they start, so route
+     * updates may be published while queries run.
+     */
+    private final VersionedGraph<Airport> network;
+
+    /**
+     * Smallest weight among the routes of the network, which bounds the great-circle heuristic.
+     */
+    private int minRouteDistance = Integer.MAX_VALUE;
+
+    private volatile GreatCircleHeuristic heuristic;
+
+    /**
+     * Precomputed routes between all pairs of airports, or null if routes are searched on every query. Queries only
+     * use the table while it was built from the current version of the network, see {@link #getRouteTable}.
+     */
+    private volatile RouteTable<Airport> routeTable;
+
+    /**
+     * Whether the routes were precomputed, so that the route table is rebuilt after every change. Guarded by the
+     * lock of the network.
+     */
+    private boolean routesPrecomputed;
 
     /**
      * Created a fully connected airport network
@@ -25,36 +117,236 @@ public class AirportNetwork {
      * @param airports airports that make up the network.
      */
     public AirportNetwork(List<Airport> airports) {
+        this(airports, GraphType.MATRIX);
+    }
+
+    /**
+     * Created a fully connected airport network stored in the given graph implementation.
+     *
+     * @param airports airports that make up the network.
+     * @param graphType graph implementation used to store the network.
+     */
+    public AirportNetwork(List<Airport> airports, GraphType graphType) {
+        this(airports, graphType, RoutePolicy.complete());
+    }
+
+    /**
+     * Created an airport network whose routes are chosen by a policy, stored in the given graph implementation.
+     * Sparse networks are best stored in compressed sparse rows, whose searches only visit the routes that exist,
+     * as long as no route beyond those chosen by the policy is opened later.
+     *
+     * @param airports airports that make up the network.
+     * @param graphType graph implementation used to store the network.
+     * @param routePolicy policy that chooses the pairs of airports connected by routes. In a
+     * {@link GraphType#SYMMETRIC} network, a route chosen in one direction is also opened in the other.
+     * @throws IllegalArgumentException thrown if the policy is not complete and the graph type is
+     * {@link GraphType#IMPLICIT}, which connects every pair of airports.
+     */
+    public AirportNetwork(List<Airport> airports, GraphType graphType, RoutePolicy routePolicy) {
+        this.airports = airports;
+        this.routePolicy = routePolicy;
+        this.graphType = graphType;
+        // Copy the coordinates into arrays, so that the routes are computed without reading the airports
+        this.coordinates = getCoordinates(airports);
+        // Initialize network as a graph, which is only used by the versioned graph and need not be copied
+        if (!routePolicy.isComplete())
+            network = VersionedGraph.wrap(createRoutedNetwork(graphType,
+                    routePolicy.getRoutes(airports, coordinates)));
+        else if (graphType == GraphType.CSR)
+            network = VersionedGraph.wrap(createCsrNetwork());
+        else if (graphType == GraphType.SYMMETRIC)
+            network = VersionedGraph.wrap(createSymmetricNetwork());
+        else if (graphType == GraphType.COMPACT)
+            network = VersionedGraph.wrap(createCompactNetwork());
+        else if (graphType == GraphType.IMPLICIT)
+            network = VersionedGraph.wrap(createImplicitNetwork());
+        else
+            network = VersionedGraph.wrap(createMatrixNetwork());
+        heuristic = new GreatCircleHeuristic(minRouteDistance);
+    }
+
+    /**
+     * Creates an airport network from routes that were already computed, e.g. as loaded from a
+     * {@link NetworkSnapshot}, stored in the given graph implementation. The routes are given as compressed sparse
+     * rows, see {@link CsrGraph#fromRows(List, int[], int[], int[])}.
+     *
+     * @param airports airports of the network, in the order of the rows.
+     * @param graphType graph implementation used to store the network.
+     * @param routePolicy policy that chooses the routes of the airports opened later.
+     * @param offsets position of the first route out of each airport, followed by the number of routes.
+     * @param targets positions of the destiny airports of the routes, in increasing order within each row.
+     * @param weights distance of each route.
+     * @param minRouteDistance smallest weight among the routes.
+     * @throws NodeAlreadyPresentException thrown if an airport is duplicated in the list.
+     * @throws IllegalArgumentException thrown if the rows are inconsistent, or if the policy is not complete and the
+     * graph type is {@link GraphType#IMPLICIT}.
+     */
+    AirportNetwork(List<Airport> airports, GraphType graphType, RoutePolicy routePolicy, int[] offsets,
+                   int[] targets, int[] weights, int minRouteDistance) throws NodeAlreadyPresentException {
         this.airports = airports;
-        // Initialize network as a graph
-        network = new MatrixGraph<>(airports.size());
+        this.routePolicy = routePolicy;
+        this.graphType = graphType;
+        this.coordinates = getCoordinates(airports);
+        if (graphType == GraphType.IMPLICIT && !routePolicy.isComplete())
+            throw new IllegalArgumentException("Implicit networks connect every pair of airports");
+        this.network = VersionedGraph.wrap(createStoredNetwork(offsets, targets, weights));
+        this.minRouteDistance = minRouteDistance;
+        heuristic = new GreatCircleHeuristic(minRouteDistance);
+    }
+
+    /**
+     *
+     * @return graph implementation used to store the network.
+     */
+    GraphType getGraphType() {
+        return graphType;
+    }
+
+    /**
+     *
+     * @return policy that chooses the routes of the network.
+     */
+    RoutePolicy getRoutePolicy() {
+        return routePolicy;
+    }
+
+    /**
+     * Creates airport network as a graph of the type of the network holding the given routes, with their weights.
+     * An {@link GraphType#IMPLICIT} network already holds every route, so the routes missing from the rows are
+     * removed and those of other weights are overridden instead.
+     *
+     * @param offsets position of the first route out of each airport, followed by the number of routes.
+     * @param targets positions of the destiny airports of the routes, in increasing order within each row.
+     * @param weights distance of each route.
+     * @return graph containing all airports and the given routes between them.
+     * @throws NodeAlreadyPresentException thrown if an airport is duplicated in the list.
+     * @throws IllegalArgumentException thrown if the rows are inconsistent.
+     */
+    private AbstractGraph<Airport> createStoredNetwork(int[] offsets, int[] targets, int[] weights)
+            throws NodeAlreadyPresentException {
+        if (graphType == GraphType.CSR)
+            return CsrGraph.fromRows(airports, offsets, targets, weights);
+        if (offsets.length != airports.size() + 1 || offsets[0] != 0 || offsets[airports.size()] != targets.length
+                || weights.length != targets.length)
+            throw new IllegalArgumentException("Rows do not match the airports");
+
+        AbstractGraph<Airport> graph;
+        if (graphType == GraphType.SYMMETRIC)
+            graph = new SymmetricMatrixGraph<>(airports.size());
+        else if (graphType == GraphType.COMPACT)
+            graph = new CompactMatrixGraph<>(airports.size(), MAX_ROUTE_DISTANCE);
+        else if (graphType == GraphType.IMPLICIT)
+            graph = new GeographicGraph<>(Airport::getGeographicCoordinates, airports.size(), IMPLICIT_CACHED_ROWS);
+        else
+            graph = new MatrixGraph<>(airports.size());
+
+        try {
+            for (Airport airport : airports)
+                graph.addNode(airport);
+
+            for (int i = 0; i != airports.size(); ++i) {
+                if (offsets[i] > offsets[i + 1])
+                    throw new IllegalArgumentException("Rows do not match the airports");
+                int k = offsets[i];
+                for (int j = 0; j != airports.size(); ++j) {
+                    boolean stored = k != offsets[i + 1] && targets[k] == j;
+                    if (graphType != GraphType.IMPLICIT) {
+                        if (stored)
+                            graph.addEdge(new Edge<>(airports.get(i), airports.get(j), weights[k]));
+                    } else if (!stored && getRouteDistance(i, j) != 0) {
+                        graph.removeEdgeBetween(airports.get(i), airports.get(j));
+                    } else if (stored && weights[k] != getRouteDistance(i, j)) {
+                        graph.addEdge(new Edge<>(airports.get(i), airports.get(j), weights[k]));
+                    }
+                    if (stored)
+                        ++k;
+                }
+                if (k != offsets[i + 1])
+                    throw new IllegalArgumentException("Routes of airport " + i + " are not in increasing order");
+            }
+        } catch (FullGraphException | NodeNotPresentException | EdgeNotPresentException e) {
+            // This will never be reached, as the graphs grow and the routes only connect airports of the list
+            throw new RuntimeException(e);
+        }
+        return graph;
+    }
+
+    /**
+     * Copies the coordinates of a list of airports into arrays.
+     *
+     * @param airports list of airports.
+     * @return coordinates of the airports, in the same order.
+     */
+    private static CoordinateArrays getCoordinates(List<Airport> airports) {
+        List<GeographicCoordinates> points = new ArrayList<>(airports.size());
+        for (Airport airport : airports)
+            points.add(airport.getGeographicCoordinates());
+        return new CoordinateArrays(points);
+    }
+
+    /**
+     * Creates airport network as a fully connected (complete) graph stored as a matrix.
+     *
+     * @return graph containing all airports and all the routes between them.
+     */
+    private AbstractGraph<Airport> createMatrixNetwork() {
+        return fillNetwork(new MatrixGraph<>(airports.size()));
+    }
+
+    /**
+     * Creates airport network as a fully connected (complete) graph stored as a compact matrix. Routes are never
+     * longer than half the circumference of the earth, which fits the compact encoding exactly.
+     *
+     * @return graph containing all airports and all the routes between them.
+     */
+    private AbstractGraph<Airport> createCompactNetwork() {
+        return fillNetwork(new CompactMatrixGraph<>(airports.size(), MAX_ROUTE_DISTANCE));
+    }
+
+    /**
+     * Adds all airports and all the routes between them to an empty graph. The airports receive the indexes of
+     * their positions in the list, so the graph fills in the routes from the coordinate arrays, in parallel.
+     *
+     * @param graph graph that stores the network, owned by the network from now on.
+     * @return the given graph.
+     */
+    private AbstractGraph<Airport> fillNetwork(AbstractGraph<Airport> graph) {
         // Add all airports as nodes in the graph
         for (Airport airport : airports) {
             try {
-                network.addNode(airport);
+                graph.addNode(airport);
             } catch (FullGraphException | NodeAlreadyPresentException e) {
                 throw new RuntimeException(e);
             }
         }
-        createNetwork();
+        // Connect every pair of distinct airports
+        graph.fillEdges(this::getRouteDistance);
+        updateMinRouteDistance(graph);
+        return graph;
     }
 
     /**
-     * Creates airport network as a fully connected (complete) graph.
+     * Creates airport network as a fully connected (complete) graph stored in compressed sparse rows.
+     *
+     * @return graph containing all airports and all the routes between them.
      */
-    private void createNetwork() {
-        // Iterate over all pairs of airports
-        for (Airport srcAirport : airports) {
-            for (Airport desAirport : airports) {
+    private AbstractGraph<Airport> createCsrNetwork() {
+        CsrGraph.Builder<Airport> builder = new CsrGraph.Builder<>();
+        // Add all airports as nodes in the graph
+        for (Airport airport : airports) {
+            try {
+                builder.addNode(airport);
+            } catch (NodeAlreadyPresentException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        // Iterate over all pairs of airports, by their indexes in the builder
+        for (int i = 0; i != airports.size(); ++i) {
+            for (int j = 0; j != airports.size(); ++j) {
                 // If the airports are not the same
-                if(! srcAirport.equals(desAirport) ) {
-                    // Calculate distance between the airports
-                    int distance = (int) srcAirport.getGeographicCoordinates().distanceTo(desAirport.getGeographicCoordinates());
-                    // Create an edge containing both airports and with the distance between them as weight
-                    Edge<Airport> edge = new Edge<>(srcAirport, desAirport, distance);
+                if (i != j) {
                     try {
-                        // Add edge to graph
-                        network.addEdge(edge);
+                        builder.addEdge(i, j, getRouteDistance(i, j));
                     } catch (NodeNotPresentException e) {
                         // This will never be reached, as are airports have already been included
                         throw new RuntimeException(e);
@@ -62,10 +354,315 @@ public class AirportNetwork {
                 }
             }
         }
+        CsrGraph<Airport> graph = builder.build();
+        updateMinRouteDistance(graph);
+        return graph;
+    }
+
+    /**
+     * Creates airport network as a fully connected (complete) graph stored as a symmetric matrix. Each route is
+     * added once, as it serves both directions.
+     *
+     * @return graph containing all airports and all the routes between them.
+     */
+    private AbstractGraph<Airport> createSymmetricNetwork() {
+        return fillNetwork(new SymmetricMatrixGraph<>(airports.size()));
+    }
+
+    /**
+     * Creates airport network as a graph with the given routes, which are added one by one.
+     *
+     * @param graphType graph implementation used to store the network.
+     * @param routes positions of the destiny airports of the routes out of each airport.
+     * @return graph containing all airports and the given routes between them.
+     */
+    private AbstractGraph<Airport> createRoutedNetwork(GraphType graphType, int[][] routes) {
+        AbstractGraph<Airport> graph;
+        try {
+            if (graphType == GraphType.CSR) {
+                CsrGraph.Builder<Airport> builder = new CsrGraph.Builder<>();
+                for (Airport airport : airports)
+                    builder.addNode(airport);
+                for (int i = 0; i != routes.length; ++i)
+                    for (int j : routes[i])
+                        builder.addEdge(i, j, getRouteDistance(i, j));
+                graph = builder.build();
+            } else {
+                if (graphType == GraphType.SYMMETRIC)
+                    graph = new SymmetricMatrixGraph<>(airports.size());
+                else if (graphType == GraphType.COMPACT)
+                    graph = new CompactMatrixGraph<>(airports.size(), MAX_ROUTE_DISTANCE);
+                else if (graphType == GraphType.IMPLICIT)
+                    throw new IllegalArgumentException("Implicit networks connect every pair of airports");
+                else
+                    graph = new MatrixGraph<>(airports.size());
+
+                for (Airport airport : airports)
+                    graph.addNode(airport);
+                for (int i = 0; i != routes.length; ++i)
+                    for (int j : routes[i])
+                        graph.addEdge(new Edge<>(airports.get(i), airports.get(j), getRouteDistance(i, j)));
+            }
+        } catch (FullGraphException | NodeAlreadyPresentException | NodeNotPresentException e) {
+            // This will never be reached, as the graphs grow and the routes only connect airports of the list
+            throw new RuntimeException(e);
+        }
+        updateMinRouteDistance(graph);
+        return graph;
+    }
+
+    /**
+     * Creates airport network as a fully connected (complete) graph whose routes are computed from the coordinates
+     * of the airports when they are searched. The graph already holds every route, so none is added.
+     *
+     * @return graph containing all airports and all the routes between them.
+     */
+    private AbstractGraph<Airport> createImplicitNetwork() {
+        GeographicGraph<Airport> graph;
+        try {
+            graph = new GeographicGraph<>(Airport::getGeographicCoordinates, airports, IMPLICIT_CACHED_ROWS);
+        } catch (NodeAlreadyPresentException e) {
+            throw new RuntimeException(e);
+        }
+        updateMinRouteDistance(graph);
+        return graph;
+    }
+
+    /**
+     * Computes the distance between two airports of the initial list from the coordinate arrays.
+     *
+     * @param i position of the origin airport in the list.
+     * @param j position of the destiny airport in the list.
+     * @return great-circle distance between the airports, truncated, or zero for the same airport.
+     */
+    private int getRouteDistance(int i, int j) {
+        return i == j ? 0 : (int) coordinates.distance(i, j);
+    }
+
+    /**
+     * Lowers the smallest route distance to that of the shortest route of a graph. The routes of each airport are
+     * scanned by a separate task, as in an {@link GraphType#IMPLICIT} network every route is computed on the way.
+     *
+     * @param graph graph that stores the network, owned by the network from now on.
+     */
+    private void updateMinRouteDistance(Graph<Airport> graph) {
+        int shortest = IntStream.range(0, graph.getIndexBound()).parallel().map(index -> {
+            int[] min = { Integer.MAX_VALUE };
+            graph.forEachEdgeFrom(index, (desIndex, weight) -> min[0] = Math.min(min[0], weight));
+            return min[0];
+        }).min().orElse(Integer.MAX_VALUE);
+        minRouteDistance = Math.min(minRouteDistance, shortest);
+    }
+
+    /**
+     * Creates the edge that represents the route between two airports.
+     *
+     * @param srcAirport origin airport.
+     * @param desAirport destiny airport.
+     * @return edge containing both airports and with the distance between them as weight.
+     */
+    private Edge<Airport> createRoute(Airport srcAirport, Airport desAirport) {
+        int distance = getRouteDistance(srcAirport, desAirport);
+        // A zero weight means no edge, so only positive weights bound the heuristic
+        if (distance != 0)
+            minRouteDistance = Math.min(minRouteDistance, distance);
+        return new Edge<>(srcAirport, desAirport, distance);
+    }
+
+    /**
+     *
+     * @return smallest weight among the routes of the network, which bounds the great-circle heuristic.
+     */
+    synchronized int getMinRouteDistance() {
+        return minRouteDistance;
+    }
+
+    /**
+     * Precomputes the routes between all pairs of airports, so that later queries are answered by table lookups
+     * instead of searches. The table takes 8 bytes per pair of airports; see {@link RouteTable}.
+     * <p>
+     * The table is built from the current version without holding the lock of the network, so that changes are not
+     * blocked meanwhile, and the lock is only taken to publish it. If a change was published during the build, the
+     * table it rebuilt is kept instead, or the build starts over from the new version.
+     *
+     * @return table of routes, which reports its memory use and build time.
+     * @throws IllegalArgumentException thrown if the network has too many airports for the table to fit in an array.
+     */
+    public RouteTable<Airport> precomputeRoutes() {
+        synchronized (this) {
+            routesPrecomputed = true;
+        }
+        while (true) {
+            GraphSnapshot<Airport> snapshot = network.getSnapshot();
+            RouteTable<Airport> table;
+            try {
+                table = RouteTable.build(snapshot);
+            } catch (RuntimeException | Error e) {
+                // Keep answering queries by search, and stop the changes from rebuilding the table
+                synchronized (this) {
+                    routesPrecomputed = false;
+                    routeTable = null;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                GraphSnapshot<Airport> current = network.getSnapshot();
+                if (current == snapshot)
+                    routeTable = table;
+                if (getRouteTable(current) != null)
+                    return routeTable;
+            }
+        }
+    }
+
+    /**
+     * Publishes a batch of route changes as a new version of the network. Queries that already started keep
+     * searching the previous version; later queries see all the changes of the batch. If the routes were
+     * precomputed, the route table is rebuilt once the new version is published; meanwhile, queries search the new
+     * version instead of looking it up.
+     *
+     * @param update route changes to be published.
+     * @throws NodeNotPresentException thrown if a change refers to an airport that is not in the network.
+     * @throws EdgeNotPresentException thrown if a closed route is not currently open.
+     * @throws FrozenTopologyException thrown if an opened route was not chosen when a network stored in compressed
+     * sparse rows was created. Nothing is published in that case.
+     */
+    public synchronized void applyRouteUpdate(RouteUpdate update)
+            throws NodeNotPresentException, EdgeNotPresentException, FrozenTopologyException {
+        // Reject the routes the graph cannot hold before anything changes
+        GraphSnapshot<Airport> snapshot = network.getSnapshot();
+        for (Edge<Airport> route : update.openedRoutes)
+            if (!snapshot.canConnect(route.getSrcNode(), route.getDesNode()))
+                throw new FrozenTopologyException(route.getSrcNode(), route.getDesNode());
+
+        // A shorter route lowers the bound of the heuristic, which would overestimate otherwise. The bound is lowered
+        // before the route is published, as a lower bound is still valid for the previous versions
+        if (update.minRouteDistance < minRouteDistance) {
+            minRouteDistance = update.minRouteDistance;
+            heuristic = new GreatCircleHeuristic(minRouteDistance);
+        }
+
+        network.apply(update.batch);
+        rebuildRouteTable();
     }
 
     /**
-     * Gets the shortest path between two airports that is not direct.
+     * Adds an airport to the network, together with its routes to and from the other airports chosen by the route
+     * policy of the network, as a new version of the network. Only the new routes are computed; the routes between
+     * the other airports are copied. If the routes were precomputed, the route table is rebuilt once the new version
+     * is published; meanwhile, queries search the new version.
+     *
+     * @param airport airport to be added.
+     * @throws NodeAlreadyPresentException thrown if the airport is already in the network.
+     * @throws FullGraphException thrown if the graph that stores the network cannot hold more airports, which is
+     * the case of compressed sparse rows.
+     */
+    public synchronized void openAirport(Airport airport) throws NodeAlreadyPresentException, FullGraphException {
+        VersionedGraph.Batch<Airport> routes = new VersionedGraph.Batch<>();
+        int previousMinRouteDistance = minRouteDistance;
+
+        List<Airport> others = network.getSnapshot().getNodes();
+        if (routePolicy.isComplete()) {
+            for (Airport other : others) {
+                routes.addEdge(createRoute(airport, other));
+                routes.addEdge(createRoute(other, airport));
+            }
+        } else {
+            // Apply the policy to the airports of the network and the new one, keeping the routes of the new one
+            List<Airport> candidates = new ArrayList<>(others);
+            candidates.add(airport);
+            int[][] candidateRoutes = routePolicy.getRoutes(candidates, getCoordinates(candidates));
+            int position = others.size();
+            for (int j : candidateRoutes[position])
+                routes.addEdge(createRoute(airport, others.get(j)));
+            for (int i = 0; i != position; ++i)
+                if (Arrays.binarySearch(candidateRoutes[i], position) >= 0)
+                    routes.addEdge(createRoute(others.get(i), airport));
+        }
+
+        // A shorter route lowers the bound of the heuristic, which would overestimate otherwise. The bound is lowered
+        // before the routes are published, as a lower bound is still valid for the previous versions
+        if (minRouteDistance != previousMinRouteDistance)
+            heuristic = new GreatCircleHeuristic(minRouteDistance);
+
+        try {
+            network.addNode(airport, routes);
+        } catch (NodeNotPresentException | EdgeNotPresentException e) {
+            // This will never be reached, as the routes only connect the new airport to airports of the network
+            throw new RuntimeException(e);
+        }
+
+        rebuildRouteTable();
+    }
+
+    /**
+     * Removes an airport and its routes from the network, as a new version of the network. If the routes were
+     * precomputed, the route table is rebuilt once the new version is published; meanwhile, queries search the new
+     * version. The indexes of the other airports do not change: the hole left by
+     * the airport is only closed by an explicit {@link #compact()}, e.g. once {@link GraphSnapshot#getIndexBound()}
+     * greatly exceeds {@link GraphSnapshot#getNodeCount()}.
+     *
+     * @param airport airport to be removed.
+     * @throws NodeNotPresentException thrown if the airport is not in the network.
+     */
+    public synchronized void closeAirport(Airport airport) throws NodeNotPresentException {
+        network.removeNode(airport);
+        rebuildRouteTable();
+    }
+
+    /**
+     * Renumbers the airports of the network so that their indexes are again dense, dropping the rows and columns
+     * left by closed airports. The compacted version is built while queries and other changes keep running on the
+     * current one, and then published. Indexes obtained by {@link #getAirportIndex(Airport)} before the compaction
+     * must be resolved again. The network never compacts itself, so that callers decide when their indexes go
+     * stale.
+     */
+    public void compact() {
+        // The table keeps the old indexes, so queries search the compacted version until the table is rebuilt
+        network.compact();
+        synchronized (this) {
+            rebuildRouteTable();
+        }
+    }
+
+    /**
+     * Rebuilds the route table, if the routes were precomputed, for the current version of the network. The previous
+     * table no longer matches the current version, so it is dropped first and its memory may be reclaimed during the
+     * build. Must be called while holding the lock of the network.
+     */
+    private void rebuildRouteTable() {
+        if (routesPrecomputed) {
+            routeTable = null;
+            routeTable = RouteTable.build(network.getSnapshot());
+        }
+    }
+
+    /**
+     * Gets the route table, if the routes were precomputed for a version of the network. A table built from another
+     * version may miss changes or, after a compaction, number the airports differently.
+     *
+     * @param snapshot version of the network to be searched.
+     * @return route table of the given version, or null if there is none.
+     */
+    private RouteTable<Airport> getRouteTable(GraphSnapshot<Airport> snapshot) {
+        RouteTable<Airport> table = routeTable;
+        return table != null && table.getGraph() == snapshot ? table : null;
+    }
+
+    /**
+     *
+     * @return current version of the network, which does not change and may be searched by any thread.
+     */
+    public GraphSnapshot<Airport> getSnapshot() {
+        return network.getSnapshot();
+    }
+
+    /**
+     * Gets the shortest path between two airports that is not direct. If the routes were precomputed for the
+     * current version of the network, the path is looked up in the route table. Otherwise, the search is guided
+     * towards the destiny airport by the great-circle distance (A* search), which yields the same cost as an
+     * unguided search while settling fewer airports.
      *
      * @param srcAirport origin airport.
      * @param desAirport destiny airport
@@ -73,8 +670,104 @@ public class AirportNetwork {
      * @throws NodeNotPresentException thrown if either of the airports is not present in the network.
      */
     public Path<Airport> getShortestNonDirectPath(Airport srcAirport, Airport desAirport) throws NodeNotPresentException {
-        return this.network.getShortestNonDirectPath(srcAirport, desAirport);
+        // The heuristic is read after the version, so it never bounds routes newer than itself
+        GraphSnapshot<Airport> snapshot = network.getSnapshot();
+        RouteTable<Airport> table = getRouteTable(snapshot);
+        if (table != null)
+            return table.getShortestNonDirectPath(srcAirport, desAirport);
+        return snapshot.getShortestNonDirectPath(srcAirport, desAirport, heuristic);
     }
 
+    /**
+     * Gets the index of an airport in the network. Indexes do not change as routes are updated or airports are
+     * opened and closed, so callers that query the same airports repeatedly may resolve them once; only a
+     * compaction of the network renumbers them.
+     *
+     * @param airport airport of the network.
+     * @return index of the airport.
+     * @throws NodeNotPresentException thrown if the airport is not present in the network.
+     */
+    public int getAirportIndex(Airport airport) throws NodeNotPresentException {
+        return this.network.getSnapshot().getNodeIndex(airport);
+    }
+
+    /**
+     * Gets the shortest path between two airports, given by their indexes, that is not direct.
+     *
+     * @param srcIndex index of the origin airport.
+     * @param desIndex index of the destiny airport.
+     * @return path between given airports.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to an airport.
+     * @see #getShortestNonDirectPath(Airport, Airport)
+     */
+    public Path<Airport> getShortestNonDirectPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException {
+        GraphSnapshot<Airport> snapshot = network.getSnapshot();
+        RouteTable<Airport> table = getRouteTable(snapshot);
+        if (table != null)
+            return table.getShortestNonDirectPathByIndex(srcIndex, desIndex);
+        return snapshot.getShortestNonDirectPathByIndex(srcIndex, desIndex, heuristic);
+    }
+
+    /**
+     * Calculates the distance between two airports, which is the weight of the route between them.
+     *
+     * @param srcAirport origin airport.
+     * @param desAirport destiny airport.
+     * @return great-circle distance between the airports, truncated.
+     */
+    private static int getRouteDistance(Airport srcAirport, Airport desAirport) {
+        return (int) srcAirport.getGeographicCoordinates().distanceTo(desAirport.getGeographicCoordinates());
+    }
+
+    /**
+     * Route closures and reopenings to be published together, e.g. as read from an operations feed.
+     */
+    public static class RouteUpdate {
+
+        private final VersionedGraph.Batch<Airport> batch = new VersionedGraph.Batch<>();
+
+        /**
+         * Routes opened by the update, which a network of frozen topology checks before applying it.
+         */
+        private final List<Edge<Airport>> openedRoutes = new ArrayList<>();
+
+        /**
+         * Smallest weight among the opened routes.
+         */
+        private int minRouteDistance = Integer.MAX_VALUE;
+
+        /**
+         * Closes the route between two airports. In a {@link GraphType#SYMMETRIC} network, the route is closed in
+         * both directions, so the opposite route must not be closed by the same update.
+         *
+         * @param srcAirport origin airport.
+         * @param desAirport destiny airport.
+         * @return this update.
+         */
+        public RouteUpdate closeRoute(Airport srcAirport, Airport desAirport) {
+            batch.removeEdgeBetween(srcAirport, desAirport);
+            return this;
+        }
+
+        /**
+         * Opens the route between two airports, whose weight is the distance between them. In a
+         * {@link GraphType#SYMMETRIC} network, the route is opened in both directions. A {@link GraphType#CSR}
+         * network only reopens routes chosen when it was created.
+         *
+         * @param srcAirport origin airport.
+         * @param desAirport destiny airport.
+         * @return this update.
+         */
+        public RouteUpdate openRoute(Airport srcAirport, Airport desAirport) {
+            int distance = getRouteDistance(srcAirport, desAirport);
+            // A zero weight means no edge, so only positive weights bound the heuristic
+            if (distance != 0)
+                minRouteDistance = Math.min(minRouteDistance, distance);
+            Edge<Airport> route = new Edge<>(srcAirport, desAirport, distance);
+            openedRoutes.add(route);
+            batch.addEdge(route);
+            return this;
+        }
+    }
 
 }
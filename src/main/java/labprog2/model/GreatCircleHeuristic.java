@@ -0,0 +1,39 @@
+package labprog2.model;
+
+import labprog2.util.graph.Heuristic;
+
+/**
+ * Estimates the cost of a route between airports from the great-circle distance between them, for networks whose
+ * edges are weighted with the distance between their endpoints truncated to an integer.
+ * <p>
+ * The distance itself is not a safe estimate: truncating every leg of a path may lose up to one unit per leg, so a
+ * path with many legs can cost less than the truncated distance between its ends. Instead, the distance is scaled by
+ * w / (w + 1), where w is the smallest edge weight of the network. Since every edge of weight w spans a distance
+ * smaller than w + 1, the scaled distance of an edge never exceeds its weight, which keeps the estimate consistent.
+ */
+public class GreatCircleHeuristic implements Heuristic<Airport> {
+
+    private final double scale;
+
+    /**
+     * Creates a heuristic for a network in which no edge weighs less than the given value.
+     *
+     * @param minWeight smallest edge weight of the network (at least 1).
+     */
+    public GreatCircleHeuristic(int minWeight) {
+        this.scale = minWeight / (minWeight + 1.0);
+    }
+
+    /**
+     * Estimates the cost of the shortest route between two airports.
+     *
+     * @param airport airport from which the cost is estimated.
+     * @param desAirport destiny airport of the search.
+     * @return scaled great-circle distance between the airports, truncated to an integer.
+     */
+    @Override
+    public int estimate(Airport airport, Airport desAirport) {
+        double distance = airport.getGeographicCoordinates().distanceTo(desAirport.getGeographicCoordinates());
+        return (int) (scale * distance);
+    }
+}
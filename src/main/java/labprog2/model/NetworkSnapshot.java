@@ -0,0 +1,311 @@
+package labprog2.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import labprog2.util.graph.CsrGraph;
+import labprog2.util.graph.GraphSnapshot;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Airport network saved to a binary file, so that an application can start without retrieving the airports and
+ * computing their routes again. The file holds the airport table and the routes of the network as the three arrays
+ * of compressed sparse rows, and is loaded with a single sequential read into the graph implementation the network
+ * was stored in; a {@link CsrGraph} takes the arrays as they are read.
+ * <p>
+ * The route policy of the network cannot be saved, as it may list routes or combine other policies, so it is given
+ * again when loading. The file only records whether the policy was complete, and is stale if loaded with a policy
+ * that differs in that respect.
+ * <p>
+ * The file is made of, in big-endian order:
+ * <ul>
+ *     <li> magic number and format version (ints) </li>
+ *     <li> fingerprint of the source of the airports (long), e.g. a checksum of the airport table </li>
+ *     <li> graph type (the ordinal of a {@link AirportNetwork.GraphType}) and whether the route policy is complete
+ *     (ints) </li>
+ *     <li> number of airports, number of routes and smallest route distance (ints) </li>
+ *     <li> the 19 fields of each airport (see {@link Airport#Airport(String[])}), each a presence flag (byte)
+ *     followed by the field in modified UTF-8 if present </li>
+ *     <li> row offsets, route destinies and route distances (int arrays) </li>
+ *     <li> CRC-32 of all the preceding bytes (long) </li>
+ * </ul>
+ * A file written by another format version or from another source fingerprint is stale: it is not loaded, and the
+ * network should be rebuilt from its source and saved again.
+ */
+public final class NetworkSnapshot {
+
+    /**
+     * Identifies snapshot files: "ANWS" in ASCII.
+     */
+    private static final int MAGIC = 0x414E5753;
+
+    /**
+     * Version of the file format, which changes whenever the layout does.
+     */
+    private static final int FORMAT_VERSION = 2;
+
+    /**
+     * Number of bytes before the airports: magic, version, fingerprint, graph type, policy and the three counts.
+     */
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 4 + 4 + 4;
+
+    /**
+     * Number of ints written at once by the array writer.
+     */
+    private static final int CHUNK_INTS = 8192;
+
+    private final List<Airport> airports;
+
+    private final AirportNetwork network;
+
+    private NetworkSnapshot(List<Airport> airports, AirportNetwork network) {
+        this.airports = airports;
+        this.network = network;
+    }
+
+    /**
+     *
+     * @return airports of the network, in the order of their indexes.
+     */
+    public List<Airport> getAirports() {
+        return airports;
+    }
+
+    /**
+     *
+     * @return network loaded from the file, stored in the graph implementation it was saved from.
+     */
+    public AirportNetwork getNetwork() {
+        return network;
+    }
+
+    /**
+     * Saves the current version of a network. The file is written under a temporary name and then renamed, so a
+     * failed write never leaves a partial snapshot behind.
+     *
+     * @param file path of the snapshot file, which is replaced if it exists.
+     * @param sourceFingerprint fingerprint of the source the airports were retrieved from.
+     * @param airportNetwork network to be saved.
+     * @throws IOException thrown if the file could not be written.
+     */
+    public static void write(Path file, long sourceFingerprint, AirportNetwork airportNetwork) throws IOException {
+        GraphSnapshot<Airport> graph = airportNetwork.getSnapshot();
+        List<Airport> airports = graph.getNodes();
+
+        // Number the airports by their positions in the list, skipping the holes of the graph indexes
+        int[] positions = new int[graph.getIndexBound()];
+        try {
+            for (int i = 0; i != airports.size(); ++i)
+                positions[graph.getNodeIndex(airports.get(i))] = i;
+        } catch (NodeNotPresentException e) {
+            // This will never be reached, as the airports come from the graph
+            throw new RuntimeException(e);
+        }
+
+        // Count the routes of each airport, then place them in their rows
+        int[] offsets = new int[airports.size() + 1];
+        for (int i = 0; i != airports.size(); ++i) {
+            int[] count = { 0 };
+            graph.forEachEdgeFrom(indexOf(graph, airports.get(i)), (desIndex, weight) -> ++count[0]);
+            offsets[i + 1] = offsets[i] + count[0];
+        }
+        int[] targets = new int[offsets[airports.size()]];
+        int[] weights = new int[targets.length];
+        for (int i = 0; i != airports.size(); ++i) {
+            int[] slot = { offsets[i] };
+            graph.forEachEdgeFrom(indexOf(graph, airports.get(i)), (desIndex, weight) -> {
+                targets[slot[0]] = positions[desIndex];
+                weights[slot[0]++] = weight;
+            });
+            sortRow(targets, weights, offsets[i], offsets[i + 1]);
+        }
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            CRC32 crc = new CRC32();
+            try (OutputStream stream = Files.newOutputStream(temporary)) {
+                DataOutputStream out = new DataOutputStream(
+                        new CheckedOutputStream(new BufferedOutputStream(stream, 1 << 16), crc));
+
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(sourceFingerprint);
+                out.writeInt(airportNetwork.getGraphType().ordinal());
+                out.writeInt(airportNetwork.getRoutePolicy().isComplete() ? 1 : 0);
+                out.writeInt(airports.size());
+                out.writeInt(targets.length);
+                out.writeInt(airportNetwork.getMinRouteDistance());
+
+                for (Airport airport : airports) {
+                    for (String field : airport.getData()) {
+                        out.writeBoolean(field != null);
+                        if (field != null)
+                            out.writeUTF(field);
+                    }
+                }
+
+                writeInts(out, offsets);
+                writeInts(out, targets);
+                writeInts(out, weights);
+
+                // The checksum covers every byte written so far
+                out.flush();
+                out.writeLong(crc.getValue());
+                out.flush();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Loads a network saved by {@link #write} from a network of the complete route policy.
+     *
+     * @param file path of the snapshot file.
+     * @param sourceFingerprint fingerprint of the current source of the airports.
+     * @return snapshot read, or null if there is no file or it is stale.
+     * @throws IOException thrown if the file could not be read or is corrupt.
+     * @see #read(Path, long, RoutePolicy)
+     */
+    public static NetworkSnapshot read(Path file, long sourceFingerprint) throws IOException {
+        return read(file, sourceFingerprint, RoutePolicy.complete());
+    }
+
+    /**
+     * Loads a network saved by {@link #write}. The whole file is read at once, its checksum is verified, and the
+     * route arrays are copied straight from the bytes read.
+     *
+     * @param file path of the snapshot file.
+     * @param sourceFingerprint fingerprint of the current source of the airports.
+     * @param routePolicy policy that chooses the routes of the airports opened later, which should be the policy of
+     * the saved network. If the policy may change between launches, it should be part of the fingerprint.
+     * @return snapshot read, or null if there is no file or it is stale.
+     * @throws IOException thrown if the file could not be read or is corrupt.
+     */
+    public static NetworkSnapshot read(Path file, long sourceFingerprint, RoutePolicy routePolicy)
+            throws IOException {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+
+        if (bytes.length < HEADER_BYTES + 8)
+            throw new IOException("Network snapshot is truncated: " + file);
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a network snapshot: " + file);
+        if (buffer.getInt() != FORMAT_VERSION || buffer.getLong() != sourceFingerprint)
+            return null;
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length - 8);
+        if (crc.getValue() != buffer.getLong(bytes.length - 8))
+            throw new IOException("Network snapshot is corrupt: " + file);
+
+        int graphTypeOrdinal = buffer.getInt();
+        if (graphTypeOrdinal < 0 || graphTypeOrdinal >= AirportNetwork.GraphType.values().length)
+            throw new IOException("Network snapshot has an unknown graph type: " + file);
+        AirportNetwork.GraphType graphType = AirportNetwork.GraphType.values()[graphTypeOrdinal];
+        if ((buffer.getInt() != 0) != routePolicy.isComplete())
+            return null;
+
+        int airportCount = buffer.getInt();
+        int routeCount = buffer.getInt();
+        int minRouteDistance = buffer.getInt();
+
+        // The airports are read as modified UTF-8, then the arrays straight from the buffer
+        ByteArrayInputStream stream = new ByteArrayInputStream(bytes, HEADER_BYTES, bytes.length - HEADER_BYTES);
+        DataInputStream in = new DataInputStream(stream);
+        List<Airport> airports = new ArrayList<>(airportCount);
+        String[] data = new String[19];
+        for (int i = 0; i != airportCount; ++i) {
+            for (int field = 0; field != data.length; ++field)
+                data[field] = in.readBoolean() ? in.readUTF() : null;
+            airports.add(new Airport(data));
+        }
+
+        buffer.position(bytes.length - stream.available());
+        if (buffer.remaining() != 4L * (airportCount + 1 + 2L * routeCount) + 8)
+            throw new IOException("Network snapshot has arrays of unexpected size: " + file);
+        int[] offsets = new int[airportCount + 1];
+        int[] targets = new int[routeCount];
+        int[] weights = new int[routeCount];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + 4 * offsets.length);
+        buffer.asIntBuffer().get(targets);
+        buffer.position(buffer.position() + 4 * targets.length);
+        buffer.asIntBuffer().get(weights);
+
+        try {
+            return new NetworkSnapshot(airports, new AirportNetwork(airports, graphType, routePolicy, offsets, targets,
+                    weights, minRouteDistance));
+        } catch (NodeAlreadyPresentException | IllegalArgumentException e) {
+            throw new IOException("Network snapshot is corrupt: " + file, e);
+        }
+    }
+
+    /**
+     * Gets the index of an airport of a graph.
+     */
+    private static int indexOf(GraphSnapshot<Airport> graph, Airport airport) {
+        try {
+            return graph.getNodeIndex(airport);
+        } catch (NodeNotPresentException e) {
+            // This will never be reached, as the airports come from the graph
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Sorts a row of routes by destiny, if the graph did not visit them in that order.
+     */
+    private static void sortRow(int[] targets, int[] weights, int from, int to) {
+        boolean sorted = true;
+        for (int k = from + 1; k < to && sorted; ++k)
+            sorted = targets[k - 1] < targets[k];
+        if (sorted)
+            return;
+
+        long[] row = new long[to - from];
+        for (int k = from; k != to; ++k)
+            row[k - from] = (long) targets[k] << 32 | (weights[k] & 0xFFFFFFFFL);
+        Arrays.sort(row);
+        for (int k = from; k != to; ++k) {
+            targets[k] = (int) (row[k - from] >>> 32);
+            weights[k] = (int) row[k - from];
+        }
+    }
+
+    /**
+     * Writes an array of ints in chunks, through a byte buffer instead of one int at a time.
+     */
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(4 * CHUNK_INTS);
+        for (int from = 0; from < values.length; from += CHUNK_INTS) {
+            int length = Math.min(CHUNK_INTS, values.length - from);
+            chunk.clear();
+            chunk.asIntBuffer().put(values, from, length);
+            out.write(chunk.array(), 0, 4 * length);
+        }
+    }
+}
@@ -0,0 +1,234 @@
+package labprog2.model;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.KdTree;
+
+/**
+ * Decides which pairs of airports of a network are connected by a route. The complete policy connects every pair,
+ * as networks did originally; the other policies generate sparse networks, whose shortest paths are found without
+ * relaxing a route to every airport. Policies based on distances search a {@link KdTree} of the airports, so the
+ * routes of N airports are generated in O(N log N) time rather than by measuring all N^2 pairs.
+ */
+public abstract class RoutePolicy {
+
+    /**
+     * Generates the routes between a list of airports.
+     *
+     * @param airports airports of the network.
+     * @param coordinates coordinates of the airports, in the same order.
+     * @return positions of the destiny airports of the routes out of each airport, in increasing order and without
+     * the airport itself.
+     */
+    public abstract int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates);
+
+    /**
+     * Tells whether the policy connects every pair of airports, in which case networks may be built without
+     * generating the routes one by one.
+     *
+     * @return true for the complete policy, false otherwise.
+     */
+    public boolean isComplete() {
+        return false;
+    }
+
+    /**
+     * Connects every pair of distinct airports.
+     *
+     * @return complete policy.
+     */
+    public static RoutePolicy complete() {
+        return new RoutePolicy() {
+            @Override
+            public int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates) {
+                int size = airports.size();
+                return IntStream.range(0, size).mapToObj(i -> IntStream.range(0, size).filter(j -> j != i).toArray())
+                        .toArray(int[][]::new);
+            }
+
+            @Override
+            public boolean isComplete() {
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Connects each airport to its k nearest airports, in both directions: two airports are connected if either of
+     * them is among the k nearest of the other. Every airport thus has at least k routes, and a route can be taken
+     * back.
+     *
+     * @param k number of nearest airports of each airport to be connected to it.
+     * @return policy of nearest neighbours.
+     */
+    public static RoutePolicy nearest(int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Number of neighbours must not be negative: " + k);
+
+        return new RoutePolicy() {
+            @Override
+            public int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates) {
+                KdTree tree = new KdTree(coordinates);
+                int[][] nearest = IntStream.range(0, tree.size()).parallel().mapToObj(i -> tree.nearest(i, k))
+                        .toArray(int[][]::new);
+                return symmetrize(nearest);
+            }
+        };
+    }
+
+    /**
+     * Connects every pair of airports whose distance does not exceed a range, e.g. that of the aircraft flying the
+     * routes.
+     *
+     * @param range greatest length of a route, in km.
+     * @return policy of limited range.
+     */
+    public static RoutePolicy withinRange(double range) {
+        return new RoutePolicy() {
+            @Override
+            public int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates) {
+                KdTree tree = new KdTree(coordinates);
+                return IntStream.range(0, tree.size()).parallel().mapToObj(i -> tree.within(i, range))
+                        .toArray(int[][]::new);
+            }
+        };
+    }
+
+    /**
+     * Connects the airports of an explicit list of routes, e.g. the routes flown by the airlines. Routes go only in
+     * the listed direction. A route is opened only while both of its airports are in the network: routes to or from
+     * other airports, e.g. closed ones or ones yet to be opened, are skipped.
+     *
+     * @param routes destiny airports of the routes out of each origin airport.
+     * @return policy of listed routes.
+     */
+    public static RoutePolicy listed(Map<Airport, ? extends Collection<Airport>> routes) {
+        return new RoutePolicy() {
+            @Override
+            public int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates) {
+                Map<Airport, Integer> positions = new HashMap<>();
+                for (int i = 0; i != airports.size(); ++i)
+                    positions.put(airports.get(i), i);
+
+                int[][] result = new int[airports.size()][];
+                Arrays.fill(result, new int[0]);
+                for (Map.Entry<Airport, ? extends Collection<Airport>> origin : routes.entrySet()) {
+                    Integer i = positions.get(origin.getKey());
+                    if (i == null)
+                        continue;
+                    int[] destinies = new int[origin.getValue().size()];
+                    int count = 0;
+                    for (Airport destiny : origin.getValue()) {
+                        Integer j = positions.get(destiny);
+                        if (j != null && !j.equals(i))
+                            destinies[count++] = j;
+                    }
+                    result[i] = sortedDistinct(destinies, count);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Connects the pairs of airports connected by any of the given policies, e.g. the nearest airports and the
+     * routes flown by the airlines.
+     *
+     * @param policies policies to be combined.
+     * @return union of the policies.
+     */
+    public static RoutePolicy union(RoutePolicy... policies) {
+        for (RoutePolicy policy : policies)
+            if (policy.isComplete())
+                return policy;
+
+        return new RoutePolicy() {
+            @Override
+            public int[][] getRoutes(List<Airport> airports, CoordinateArrays coordinates) {
+                int[][] result = new int[airports.size()][0];
+                for (RoutePolicy policy : policies) {
+                    int[][] routes = policy.getRoutes(airports, coordinates);
+                    for (int i = 0; i != result.length; ++i)
+                        result[i] = merge(result[i], routes[i]);
+                }
+                return result;
+            }
+        };
+    }
+
+    /**
+     * Adds the opposite of every route, so that each route can be taken in both directions.
+     *
+     * @param routes destiny positions of the routes out of each airport.
+     * @return destiny positions of the routes in either direction, in increasing order.
+     */
+    private static int[][] symmetrize(int[][] routes) {
+        // Count the routes of each airport in both directions, then place them
+        int[] counts = new int[routes.length];
+        for (int i = 0; i != routes.length; ++i) {
+            counts[i] += routes[i].length;
+            for (int j : routes[i])
+                ++counts[j];
+        }
+
+        int[][] both = new int[routes.length][];
+        for (int i = 0; i != routes.length; ++i)
+            both[i] = new int[counts[i]];
+        Arrays.fill(counts, 0);
+        for (int i = 0; i != routes.length; ++i) {
+            for (int j : routes[i]) {
+                both[i][counts[i]++] = j;
+                both[j][counts[j]++] = i;
+            }
+        }
+
+        for (int i = 0; i != both.length; ++i)
+            both[i] = sortedDistinct(both[i], both[i].length);
+        return both;
+    }
+
+    /**
+     * Sorts the first values of an array and drops the repeated ones.
+     *
+     * @param values array of values.
+     * @param count number of values at the start of the array.
+     * @return new array of the distinct values, in increasing order.
+     */
+    private static int[] sortedDistinct(int[] values, int count) {
+        int[] sorted = Arrays.copyOf(values, count);
+        Arrays.sort(sorted);
+
+        int distinct = 0;
+        for (int i = 0; i != count; ++i)
+            if (distinct == 0 || sorted[distinct - 1] != sorted[i])
+                sorted[distinct++] = sorted[i];
+        return Arrays.copyOf(sorted, distinct);
+    }
+
+    /**
+     * Merges two arrays of distinct values in increasing order.
+     *
+     * @return new array of the distinct values of both, in increasing order.
+     */
+    private static int[] merge(int[] first, int[] second) {
+        int[] merged = new int[first.length + second.length];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i != first.length || j != second.length) {
+            int value;
+            if (j == second.length || (i != first.length && first[i] < second[j]))
+                value = first[i++];
+            else if (i == first.length || second[j] < first[i])
+                value = second[j++];
+            else {
+                value = first[i++];
+                ++j;
+            }
+            merged[count++] = value;
+        }
+        return Arrays.copyOf(merged, count);
+    }
+}
@@ -0,0 +1,385 @@
+package labprog2.util.graph;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Skeleton of a graph whose nodes are mapped to integer indexes. Implementations provide the mapping and a way to
+ * visit the edges of a node by index, and the path finding queries are implemented on top of them with a
+ * {@link ShortestPathEngine}.
+ */
+public abstract class AbstractGraph<Node> implements Graph<Node> {
+
+    /**
+     * Creates an independent copy of the graph, with the same nodes at the same indexes and the same edges. Changes
+     * to either graph are not seen by the other.
+     *
+     * @return copy of the graph.
+     */
+    abstract AbstractGraph<Node> copy();
+
+    /**
+     * Creates an independent copy of the graph whose nodes are mapped to the indexes between 0 and the number of
+     * nodes - 1, i.e., without the holes left by removed nodes. Nodes keep their relative order.
+     *
+     * @return compacted copy of the graph.
+     */
+    abstract AbstractGraph<Node> compactCopy();
+
+    /**
+     * Sets the edges between every ordered pair of nodes at once. Implemented by adding the edges one at a time;
+     * implementations that can write their storage directly should override it.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        List<Node> nodes = getNodes();
+        try {
+            for (Node srcNode : nodes) {
+                int srcIndex = getNodeIndex(srcNode);
+                for (Node desNode : nodes) {
+                    int weight = weights.getWeight(srcIndex, getNodeIndex(desNode));
+                    if (weight != 0)
+                        addEdge(new Edge<>(srcNode, desNode, weight));
+                    else if (connects(srcNode, desNode))
+                        removeEdgeBetween(srcNode, desNode);
+                }
+            }
+        } catch (NodeNotPresentException | EdgeNotPresentException e) {
+            // This will never be reached, as the nodes come from this graph
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns the shortest path between two nodes within a graph. Implemented with Dijkstra's path finding algorithm,
+     * which stops as soon as the destiny node is settled.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return getShortestPathByIndex(getNodeIndex(srcNode), getNodeIndex(desNode));
+    }
+
+    /**
+     * Returns the shortest path between two nodes, given by their indexes. Implemented with Dijkstra's path finding
+     * algorithm, which stops as soon as the destiny node is settled.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     */
+    @Override
+    public Path<Node> getShortestPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException {
+        checkIndex(srcIndex);
+        checkIndex(desIndex);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.run(this, srcIndex, desIndex, Integer.MAX_VALUE);
+
+        return engine.getPath(this, desIndex);
+    }
+
+    /**
+     * Verifies that an index is mapped to a node, so that it may be searched.
+     *
+     * @param index queried index.
+     * @throws NodeNotPresentException thrown if the index is not mapped to a node.
+     */
+    private void checkIndex(int index) throws NodeNotPresentException {
+        getNodeAtIndex(index);
+    }
+
+    /**
+     * Returns the shortest path between two nodes within a graph, given its cost does not exceed a limit.
+     * Implemented with Dijkstra's path finding algorithm, which stops as soon as the destiny node is settled or the
+     * next node to be settled costs more than the limit.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param maxCost greatest accepted cost of the path.
+     * @return shortest path, or an empty path with infinite cost if there is no path within the limit.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode, int maxCost) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.run(this, srcIndex, desIndex, maxCost);
+
+        return engine.getPath(this, desIndex);
+    }
+
+    /**
+     * Returns the shortest path between two nodes within a graph, guiding the search with a heuristic. Implemented
+     * with A* search, which settles nodes in order of their distance plus the estimated remaining cost and stops as
+     * soon as the destiny node is settled.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode, Heuristic<Node> heuristic)
+            throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.run(this, srcIndex, desIndex, Integer.MAX_VALUE, toLowerBound(heuristic, desNode));
+
+        return engine.getPath(this, desIndex);
+    }
+
+    /**
+     * Adapts a heuristic to the node indexes searched by the engine.
+     *
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @param desNode destiny node of the search.
+     * @return lower bound on the cost from a node, given by its index, to the destiny node.
+     */
+    private ShortestPathEngine.LowerBound toLowerBound(Heuristic<Node> heuristic, Node desNode) {
+        return index -> {
+            try {
+                return heuristic.estimate(getNodeAtIndex(index), desNode);
+            } catch (NodeNotPresentException e) {
+                // This will never be reached, as the engine only visits indexes mapped to nodes
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Returns the shortest path between two nodes within a graph with a bidirectional search. Implemented with two
+     * instances of Dijkstra's path finding algorithm, one forward from the source node and one backward (over
+     * incoming edges) from the destiny node. The search with the closest frontier is always advanced, and both stop
+     * once the sum of their frontier distances reaches the cost of the cheapest path through a node reached by both.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getBidirectionalShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        Path<Node> path = new Path<>();
+
+        if (srcIndex == desIndex) {
+            path.addNode(srcNode);
+            return path;
+        }
+
+        ShortestPathEngine forward = ShortestPathEngine.forCurrentThread();
+        ShortestPathEngine backward = ShortestPathEngine.backwardForCurrentThread();
+
+        forward.start(this, srcIndex, false, null);
+        backward.start(this, desIndex, true, null);
+        forward.meet(backward);
+        backward.meet(forward);
+
+        while (forward.hasNext() && backward.hasNext()) {
+            int meetingCost = Math.min(forward.getMeetingCost(), backward.getMeetingCost());
+
+            // No path through a node that is not yet settled by either search can be cheaper than the meeting
+            if ((long) forward.peekKey() + backward.peekKey() >= meetingCost)
+                break;
+
+            if (forward.peekKey() <= backward.peekKey())
+                forward.settleNext();
+            else
+                backward.settleNext();
+        }
+
+        forward.finish();
+        backward.finish();
+
+        ShortestPathEngine meeting = forward.getMeetingCost() <= backward.getMeetingCost() ? forward : backward;
+        int meetingNode = meeting.getMeetingNode();
+
+        // If the searches never met (the nodes are not connected)
+        if (meetingNode == -1) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        path.setCost(meeting.getMeetingCost());
+
+        // Construct the path from the meeting node back to the source, then reverse it
+        for (int index = meetingNode; index != -1; index = forward.getPrevious(index))
+            path.addNode(getNodeAtIndex(index));
+        path.reverse();
+
+        // Append the path from the meeting node to the destiny, as found by the backward search
+        for (int index = backward.getPrevious(meetingNode); index != -1; index = backward.getPrevious(index))
+            path.addNode(getNodeAtIndex(index));
+
+        return path;
+    }
+
+    /**
+     * Returns every node that can be reached from a node with a cost that does not exceed a limit. Implemented with
+     * Dijkstra's path finding algorithm, which stops before settling the first node that costs more than the limit.
+     *
+     * @param srcNode source node.
+     * @param maxCost greatest accepted cost.
+     * @return map from each reachable node (including the source node) to the cost of its shortest path, iterated
+     * in order of increasing cost.
+     * @throws NodeNotPresentException thrown if the specified node is not present.
+     */
+    @Override
+    public Map<Node, Integer> getNodesWithin(Node srcNode, int maxCost) throws NodeNotPresentException {
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.run(this, getNodeIndex(srcNode), ShortestPathEngine.NO_TARGET, maxCost);
+
+        Map<Node, Integer> nodes = new LinkedHashMap<>();
+
+        for (int position = 0; position != engine.getSettledCount(); ++position) {
+            int index = engine.getSettledNode(position);
+            nodes.put(getNodeAtIndex(index), engine.getDistance(index));
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two specified nodes. Implemented
+     * with Dijkstra's path finding algorithm, which does not follow the direct edge between the nodes. The graph
+     * is not modified, so the search may run concurrently with other searches.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return getShortestNonDirectPathByIndex(getNodeIndex(srcNode), getNodeIndex(desNode));
+    }
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two nodes, given by their indexes.
+     * Implemented with Dijkstra's path finding algorithm, which does not follow the direct edge between the nodes.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     */
+    @Override
+    public Path<Node> getShortestNonDirectPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException {
+        checkIndex(srcIndex);
+        checkIndex(desIndex);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.runNonDirect(this, srcIndex, desIndex, null);
+
+        return engine.getPath(this, desIndex);
+    }
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two specified nodes, guiding the search
+     * with a heuristic. Implemented with A* search, which does not follow the direct edge between the nodes. The
+     * graph is not modified, so the search may run concurrently with other searches.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode, Heuristic<Node> heuristic)
+            throws NodeNotPresentException {
+        return getShortestNonDirectPathByIndex(getNodeIndex(srcNode), getNodeIndex(desNode), heuristic);
+    }
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two nodes, given by their indexes, guiding
+     * the search with a heuristic. Implemented with A* search, which does not follow the direct edge between the
+     * nodes.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     */
+    @Override
+    public Path<Node> getShortestNonDirectPathByIndex(int srcIndex, int desIndex, Heuristic<Node> heuristic)
+            throws NodeNotPresentException {
+        checkIndex(srcIndex);
+        Node desNode = getNodeAtIndex(desIndex);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.runNonDirect(this, srcIndex, desIndex, toLowerBound(heuristic, desNode));
+
+        return engine.getPath(this, desIndex);
+    }
+
+    /**
+     * Verifies the presence of an edge in the graph.
+     *
+     * @param edge queried edge.
+     * @return true if the edge is present, false otherwise.
+     * @throws NodeNotPresentException if either of the provided edge endpoints (nodes) is not present in the graph.
+     */
+    @Override
+    public boolean has(Edge<Node> edge) throws NodeNotPresentException {
+        Node srcNode = edge.getSrcNode();
+        Node desNode = edge.getDesNode();
+        try {
+            return connects(srcNode, desNode) && getWeightBetween(srcNode, desNode) == edge.getWeight();
+        } catch (EdgeNotPresentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Verifies whether an edge may be added between two nodes in the graph. Implemented by checking that both nodes
+     * are present, as most graphs may connect any pair of nodes; graphs of frozen topology should override it.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if an edge may be added between the nodes, false otherwise.
+     * @throws NodeNotPresentException If either of the specified nodes is not present in the graph.
+     */
+    @Override
+    public boolean canConnect(Node srcNode, Node desNode) throws NodeNotPresentException {
+        getNodeIndex(srcNode);
+        getNodeIndex(desNode);
+        return true;
+    }
+
+    /**
+     * Retrieves the edge between two nodes in the graph, if it exists.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return returns the edge between the specified nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present.
+     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes.
+     */
+    @Override
+    public Edge<Node> getEdgeBetween(Node srcNode, Node desNode) throws NodeNotPresentException, EdgeNotPresentException {
+        int weight = getWeightBetween(srcNode, desNode);
+
+        return new Edge<>(srcNode, desNode, weight);
+    }
+}
@@ -0,0 +1,551 @@
+package labprog2.util.graph;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Implements a directional weighted graph as a matrix with a compact encoding. The presence of each edge is kept in
+ * a bitset, one bit per entry of the matrix, so {@link #connects(Object, Object)} and the edge visits only read the
+ * bitset, which is 32 times smaller than a matrix of ints and fits in cache for networks of a few thousand nodes.
+ * Weights are kept in a separate matrix of 16-bit unsigned values, half the size of a matrix of ints.
+ * <p>
+ * Weights up to 65535 are stored exactly. Greater weights are quantized: every weight is stored as a multiple of a
+ * scale chosen from the greatest weight the graph must hold, rounding up. Rounding up never makes a path look
+ * cheaper than it is, so heuristics that never overestimate the real weights remain valid, but paths whose costs
+ * differ by less than the scale may be ranked in either order.
+ */
+public class CompactMatrixGraph<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Greatest value of a stored weight.
+     */
+    private static final int MAX_STORED_WEIGHT = Character.MAX_VALUE;
+
+    /**
+     * Greatest order of the matrix, whose square fits in an array; some virtual machines reserve a few words of the
+     * largest arrays.
+     */
+    private static final int MAX_CAPACITY = (int) Math.sqrt(Integer.MAX_VALUE - 8);
+
+    /**
+     * Presence of the edge (i, j) at bit j % 64 of the word i * words + j / 64.
+     */
+    private long[] adjacency;
+
+    /**
+     * Number of longs in each row of the bitset.
+     */
+    private int words;
+
+    /**
+     * Weight of the edge (i, j), divided by the scale, at position i * capacity + j. Meaningful only where the
+     * bitset has the edge.
+     */
+    private char[] weights;
+
+    private int capacity;
+
+    /**
+     * Number of edges that go into each node, which lets column scans stop once all of them were found.
+     */
+    private int[] inDegrees;
+
+    /**
+     * Quantum of the stored weights.
+     */
+    private final int scale;
+
+    private final NodeIndex<Node> nodeIndex;
+
+    /**
+     * Implements a directional weighted graph as a compact matrix.
+     *
+     * @param maxNodes initial capacity of the graph (order of the matrix). The graph grows beyond it as needed.
+     * @param maxWeight greatest weight of an edge of the graph, which determines the scale of the stored weights.
+     * @throws IllegalArgumentException thrown if the greatest weight is not positive.
+     */
+    public CompactMatrixGraph(int maxNodes, int maxWeight) {
+        if (maxWeight <= 0)
+            throw new IllegalArgumentException("The greatest weight must be positive");
+
+        this.scale = (maxWeight + MAX_STORED_WEIGHT - 1) / MAX_STORED_WEIGHT;
+        this.nodeIndex = new NodeIndex<>(maxNodes);
+        allocate(maxNodes);
+    }
+
+    /**
+     * Creates a copy of a graph stored as a compact matrix, with its own arrays and mappings.
+     *
+     * @param other graph to be copied.
+     */
+    private CompactMatrixGraph(CompactMatrixGraph<Node> other) {
+        this.adjacency = other.adjacency.clone();
+        this.words = other.words;
+        this.weights = other.weights.clone();
+        this.capacity = other.capacity;
+        this.inDegrees = other.inDegrees.clone();
+        this.scale = other.scale;
+        this.nodeIndex = new NodeIndex<>(other.nodeIndex);
+    }
+
+    /**
+     * Creates an empty graph that shares the scale of another graph and uses the given node mappings.
+     *
+     * @param nodeIndex mapping between the nodes and their indexes.
+     * @param scale quantum of the stored weights.
+     */
+    private CompactMatrixGraph(NodeIndex<Node> nodeIndex, int scale) {
+        this.scale = scale;
+        this.nodeIndex = nodeIndex;
+        allocate(nodeIndex.getIndexBound());
+    }
+
+    /**
+     * Implements a directional weighted graph as a compact matrix whose weights are stored exactly, which requires
+     * every weight to be at most 65535.
+     *
+     * @param V set of vertices of the graph.
+     * @param E set of edges of the graph.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in V.
+     * @throws NodeNotPresentException thrown if E contains an edge that has at least one endpoint
+     * not contained in V.
+     * @throws IllegalArgumentException thrown if E contains an edge whose weight is negative or greater than 65535.
+     */
+    public CompactMatrixGraph(List<Node> V, List<Edge<Node>> E)
+            throws NodeAlreadyPresentException, NodeNotPresentException {
+
+        // Sets the initial capacity of the graph (order of the matrix) to the number of nodes provided.
+        this(V.size(), MAX_STORED_WEIGHT);
+
+        for (Node v : V)
+            addNode(v);
+
+        for (Edge<Node> e : E)
+            addEdge(e);
+    }
+
+    /**
+     * Allocates empty arrays for a matrix of the given order.
+     *
+     * @param capacity order of the matrix.
+     * @throws IllegalArgumentException thrown if the matrix does not fit in an array.
+     */
+    private void allocate(int capacity) {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Compact matrix of order " + capacity + " does not fit in an array");
+
+        this.capacity = capacity;
+        this.words = (capacity + 63) >>> 6;
+        this.adjacency = new long[capacity * words];
+        this.weights = new char[capacity * capacity];
+        this.inDegrees = new int[capacity];
+    }
+
+    /**
+     *
+     * @return quantum of the stored weights. Weights are rounded up to a multiple of it.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    /**
+     *
+     * @return number of bytes taken by the bitset, the weights and the degrees.
+     */
+    public long getMemoryBytes() {
+        return 8L * adjacency.length + 2L * weights.length + 4L * inDegrees.length;
+    }
+
+    /**
+     * Adds a node to the graph, given it is not already present. Implemented by mapping the node to an index of
+     * the matrix, preferably one freed by a removed node. If every index is taken, the bitset and the weights are
+     * copied into a matrix of twice the order.
+     *
+     * @param node object implementing the node interface to be added to the graph.
+     * @throws NodeAlreadyPresentException thrown if the node being added is already present
+     * @throws IllegalArgumentException thrown if the graph is full at the greatest order a matrix may have.
+     *
+     * @see Node
+     */
+    @Override
+    public void addNode(Node node) throws NodeAlreadyPresentException {
+        // Past half the greatest order, grow to the greatest order, and fail only once that is full too
+        if (nodeIndex.size() == capacity && !nodeIndex.contains(node))
+            grow(capacity < MAX_CAPACITY ? (int) Math.min(Math.max(1, 2L * capacity), MAX_CAPACITY) : capacity + 1);
+
+        nodeIndex.add(node);
+    }
+
+    /**
+     * Copies the matrix into one of greater order.
+     *
+     * @param newCapacity new order of the matrix.
+     */
+    private void grow(int newCapacity) {
+        long[] oldAdjacency = adjacency;
+        char[] oldWeights = weights;
+        int[] oldInDegrees = inDegrees;
+        int oldWords = words;
+        int oldCapacity = capacity;
+
+        allocate(newCapacity);
+
+        for (int i = 0; i != oldCapacity; ++i) {
+            System.arraycopy(oldAdjacency, i * oldWords, adjacency, i * words, oldWords);
+            System.arraycopy(oldWeights, i * oldCapacity, weights, i * capacity, oldCapacity);
+        }
+        System.arraycopy(oldInDegrees, 0, inDegrees, 0, oldCapacity);
+    }
+
+    /**
+     * Encodes a weight as a stored value.
+     *
+     * @param weight non-negative weight.
+     * @return weight divided by the scale, rounded up.
+     * @throws IllegalArgumentException thrown if the weight is negative or does not fit the encoding.
+     */
+    private char encode(int weight) {
+        long stored = ((long) weight + scale - 1) / scale;
+        if (weight < 0 || stored > MAX_STORED_WEIGHT)
+            throw new IllegalArgumentException("Weight " + weight + " does not fit the compact encoding");
+        return (char) stored;
+    }
+
+    private boolean hasEdge(int srcIndex, int desIndex) {
+        return (adjacency[srcIndex * words + (desIndex >>> 6)] & (1L << desIndex)) != 0;
+    }
+
+    /**
+     * Adds an edge to the graph. Both ends must be nodes already present. If the edge is already present,
+     * it is substituted. Implemented by setting the bit of the edge and its encoded weight. As in the other
+     * implementations, a weight equal to zero removes the edge.
+     *
+     * @param edge Edge to be added or updated.
+     * @throws NodeNotPresentException thrown if either of the edge endpoints is not present in the graph.
+     * @throws IllegalArgumentException thrown if the weight is negative or greater than the greatest weight allowed.
+     *
+     * @see Edge
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(edge.getSrcNode());
+        int desIndex = getNodeIndex(edge.getDesNode());
+        char stored = encode(edge.getWeight());
+
+        int word = srcIndex * words + (desIndex >>> 6);
+        long bit = 1L << desIndex;
+        boolean present = (adjacency[word] & bit) != 0;
+
+        if (stored != 0 && !present) {
+            adjacency[word] |= bit;
+            ++inDegrees[desIndex];
+        } else if (stored == 0 && present) {
+            adjacency[word] &= ~bit;
+            --inDegrees[desIndex];
+        }
+
+        weights[srcIndex * capacity + desIndex] = stored;
+    }
+
+    /**
+     * Sets the edges between every ordered pair of nodes at once. Implemented by writing the rows of the bitset and
+     * of the weights in parallel, each row by a single task of the common fork-join pool. The in-degrees are counted
+     * afterwards from the set bits.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     * @throws IllegalArgumentException thrown if a weight is negative or greater than the greatest weight allowed.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        int bound = getIndexBound();
+
+        IntStream.range(0, bound).parallel().forEach(srcIndex -> {
+            int row = srcIndex * words;
+            Arrays.fill(adjacency, row, row + words, 0L);
+            if (!nodeIndex.hasIndex(srcIndex))
+                return;
+
+            for (int desIndex = 0; desIndex != bound; ++desIndex) {
+                char stored = nodeIndex.hasIndex(desIndex) ? encode(weights.getWeight(srcIndex, desIndex)) : 0;
+                this.weights[srcIndex * capacity + desIndex] = stored;
+                if (stored != 0)
+                    adjacency[row + (desIndex >>> 6)] |= 1L << desIndex;
+            }
+        });
+
+        Arrays.fill(inDegrees, 0);
+        for (int srcIndex = 0; srcIndex != bound; ++srcIndex)
+            forEachEdgeFrom(srcIndex, (desIndex, weight) -> ++inDegrees[desIndex]);
+    }
+
+    /**
+     * Removes a node and its edges. Implemented by clearing the row of the node in the bitset, word by word, and the
+     * bits of its column, and by freeing its index.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    @Override
+    public void removeNode(Node node) throws NodeNotPresentException {
+        int index = getNodeIndex(node);
+
+        forEachEdgeFrom(index, (desIndex, weight) -> --inDegrees[desIndex]);
+        Arrays.fill(adjacency, index * words, (index + 1) * words, 0L);
+
+        int word = index >>> 6;
+        long bit = 1L << index;
+        for (int srcIndex = 0; inDegrees[index] != 0; ++srcIndex) {
+            if ((adjacency[srcIndex * words + word] & bit) != 0) {
+                adjacency[srcIndex * words + word] &= ~bit;
+                --inDegrees[index];
+            }
+        }
+
+        nodeIndex.remove(node);
+    }
+
+    /**
+     * Removes the directional edge between the specified nodes, if it exists.
+     *
+     * @param srcNode source node of the edge to be removed.
+     * @param desNode destiny node of the edge to be removed.
+     * @return returns the edge that was removed.
+     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        Edge<Node> edge = getEdgeBetween(srcNode, desNode);
+
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        adjacency[srcIndex * words + (desIndex >>> 6)] &= ~(1L << desIndex);
+        --inDegrees[desIndex];
+
+        return edge;
+    }
+
+    /**
+     * Returns a list containing all the edges that come out of the specified node.
+     *
+     * @param srcNode source node of all the queried edges.
+     * @return List containing all the edges.
+     * @throws NodeNotPresentException thrown if the specified node is not present in the graph.
+     */
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+
+        int degree = 0;
+        for (int w = srcIndex * words; w != (srcIndex + 1) * words; ++w)
+            degree += Long.bitCount(adjacency[w]);
+
+        List<Edge<Node>> edges = new ArrayList<>(degree);
+        for (int w = 0; w != words; ++w) {
+            for (long bits = adjacency[srcIndex * words + w]; bits != 0; bits &= bits - 1) {
+                int desIndex = (w << 6) + Long.numberOfTrailingZeros(bits);
+                edges.add(new Edge<>(srcNode, getNodeAtIndex(desIndex), getWeight(srcIndex, desIndex)));
+            }
+        }
+
+        return edges;
+    }
+
+    private int getWeight(int srcIndex, int desIndex) {
+        return weights[srcIndex * capacity + desIndex] * scale;
+    }
+
+    /**
+     * Passes every edge that comes out of a node to a visitor. Implemented by iterating over the set bits of the row
+     * of the node, 64 entries per word, and reading the weights of those entries only.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        int row = srcIndex * words;
+        for (int w = 0; w != words; ++w) {
+            for (long bits = adjacency[row + w]; bits != 0; bits &= bits - 1) {
+                int desIndex = (w << 6) + Long.numberOfTrailingZeros(bits);
+                visitor.visit(desIndex, getWeight(srcIndex, desIndex));
+            }
+        }
+    }
+
+    /**
+     * Passes every edge that goes into a node to a visitor. Implemented by testing the bit of the node in each row,
+     * until as many edges as its in-degree were found.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        int remaining = inDegrees[desIndex];
+
+        for (int srcIndex = 0; remaining != 0; ++srcIndex) {
+            if (hasEdge(srcIndex, desIndex)) {
+                visitor.visit(srcIndex, getWeight(srcIndex, desIndex));
+                --remaining;
+            }
+        }
+    }
+
+    /**
+     * Creates a copy of the graph. Implemented by copying the bitset and the weights.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    CompactMatrixGraph<Node> copy() {
+        return new CompactMatrixGraph<>(this);
+    }
+
+    /**
+     * Creates a compacted copy of the graph. Implemented by moving every edge to the new indexes of its nodes, in a
+     * matrix whose order is the number of nodes.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    CompactMatrixGraph<Node> compactCopy() {
+        NodeIndex<Node> compactedIndex = new NodeIndex<>(nodeIndex);
+        int[] newIndexes = compactedIndex.compact();
+
+        CompactMatrixGraph<Node> compacted = new CompactMatrixGraph<>(compactedIndex, scale);
+
+        for (int i = 0; i != newIndexes.length; ++i) {
+            // Freed indexes have empty rows and columns
+            if (newIndexes[i] == -1)
+                continue;
+
+            final int srcIndex = i;
+            final int newSrcIndex = newIndexes[i];
+            forEachEdgeFrom(srcIndex, (desIndex, weight) -> {
+                int newDesIndex = newIndexes[desIndex];
+                compacted.adjacency[newSrcIndex * compacted.words + (newDesIndex >>> 6)] |= 1L << newDesIndex;
+                compacted.weights[newSrcIndex * compacted.capacity + newDesIndex] =
+                        weights[srcIndex * capacity + desIndex];
+                ++compacted.inDegrees[newDesIndex];
+            });
+        }
+
+        return compacted;
+    }
+
+    /**
+     * Verifies whether there exists an edge between two nodes in the graph. Implemented by testing a single bit.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there exists an edge, false otherwise.
+     * @throws NodeNotPresentException If either of the specified edges is not present in the graph.
+     */
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return hasEdge(getNodeIndex(srcNode), getNodeIndex(desNode));
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes of the graph, as stored: rounded up to a multiple of the
+     * scale.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return weight of the edge with the specified endpoints.
+     * @throws EdgeNotPresentException thrown if there is no edge between such nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
+     */
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        if (!hasEdge(srcIndex, desIndex))
+            throw new EdgeNotPresentException(srcNode, desNode);
+
+        return getWeight(srcIndex, desIndex);
+    }
+
+    /**
+     * Verifies the presence of a node in the graph.
+     *
+     * @param node queried node.
+     * @return true if the node is present in the graph, false otherwise.
+     */
+    @Override
+    public boolean has(Node node) {
+        return nodeIndex.contains(node);
+    }
+
+    /**
+     * Verifies if graph is empty.
+     *
+     * @return true if there are no nodes, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    @Override
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
+    }
+
+    /**
+     * Gets the index mapped to an inserted node.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
+    }
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the index bound.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
+     */
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
+    }
+
+    /**
+     * Returns one more than the greatest index ever mapped to a node, which equals the number of nodes unless
+     * indexes were freed by removed nodes.
+     *
+     * @return an integer greater than the index of every node in the graph.
+     */
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
+    }
+
+}
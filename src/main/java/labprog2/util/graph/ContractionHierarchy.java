@@ -0,0 +1,542 @@
+package labprog2.util.graph;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Answers shortest path queries with a contraction hierarchy built over a graph.
+ * <p>
+ * Preprocessing contracts the nodes one at a time, from the least to the most important. Contracting a node
+ * removes it from the remaining graph and, for every pair of remaining neighbours whose shortest path went through
+ * it, adds a shortcut edge that skips it. Every edge then leads either up or down in the contraction order, and the
+ * shortest path between any two nodes can be found by two searches that only go up: one forward from the source
+ * and one backward from the destiny. These searches settle a small fraction of the graph, and the shortcuts on the
+ * resulting path are unpacked into the edges they replaced.
+ * <p>
+ * The hierarchy reflects the edges of the graph when it was built; it must be built again after the graph changes.
+ * Queries do not modify it, so it may be shared by several threads.
+ */
+public class ContractionHierarchy<Node> implements PathFinder<Node> {
+
+    /**
+     * Greatest number of nodes settled by a witness search, which looks for a path that makes a shortcut
+     * unnecessary. Stopping a witness search early is safe, but may add shortcuts that are not needed.
+     */
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    /**
+     * Edges that lead from a node to a node contracted after it, shortcuts included.
+     */
+    private final CsrGraph<Node> upward;
+
+    /**
+     * Edges that lead to a node from a node contracted after it, shortcuts included. The backward search follows
+     * them against their direction.
+     */
+    private final CsrGraph<Node> downward;
+
+    /**
+     * Node skipped by each shortcut, keyed by the indexes of the shortcut endpoints.
+     */
+    private final Map<Long, Integer> middles;
+
+    private ContractionHierarchy(CsrGraph<Node> upward, CsrGraph<Node> downward, Map<Long, Integer> middles) {
+        this.upward = upward;
+        this.downward = downward;
+        this.middles = middles;
+    }
+
+    /**
+     * Builds the contraction hierarchy of a graph. Nodes are contracted in order of edge difference: the number of
+     * shortcuts their contraction adds minus the number of edges it removes, plus the number of neighbours already
+     * contracted, which spreads contraction evenly over the graph.
+     *
+     * @param graph graph to be preprocessed.
+     * @return contraction hierarchy of the graph.
+     */
+    public static <Node> ContractionHierarchy<Node> build(Graph<Node> graph) {
+        return new Contractor<>(graph).contract();
+    }
+
+    /**
+     * Returns the shortest path between two nodes. Implemented with two upward searches, forward from the source
+     * node and backward from the destiny node, that stop once their frontiers are farther than the cheapest path
+     * through a node reached by both.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int srcIndex = upward.getNodeIndex(srcNode);
+        int desIndex = upward.getNodeIndex(desNode);
+
+        Path<Node> path = new Path<>();
+
+        if (srcIndex == desIndex) {
+            path.addNode(srcNode);
+            return path;
+        }
+
+        ShortestPathEngine forward = ShortestPathEngine.forCurrentThread();
+        ShortestPathEngine backward = ShortestPathEngine.backwardForCurrentThread();
+
+        forward.start(upward, srcIndex, false, null);
+        backward.start(downward, desIndex, true, null);
+        forward.meet(backward);
+        backward.meet(forward);
+
+        while (true) {
+            int meetingCost = Math.min(forward.getMeetingCost(), backward.getMeetingCost());
+
+            // Upward searches cannot stop when their frontiers meet, only once each frontier is too far
+            boolean forwardOpen = forward.hasNext() && forward.peekKey() < meetingCost;
+            boolean backwardOpen = backward.hasNext() && backward.peekKey() < meetingCost;
+
+            if (!forwardOpen && !backwardOpen)
+                break;
+
+            if (forwardOpen && (!backwardOpen || forward.peekKey() <= backward.peekKey()))
+                forward.settleNext();
+            else
+                backward.settleNext();
+        }
+
+        forward.finish();
+        backward.finish();
+
+        ShortestPathEngine meeting = forward.getMeetingCost() <= backward.getMeetingCost() ? forward : backward;
+        int meetingNode = meeting.getMeetingNode();
+
+        // If the searches never met (the nodes are not connected)
+        if (meetingNode == -1) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        path.setCost(meeting.getMeetingCost());
+
+        // Collect the path through the hierarchy, from source to meeting node and then to destiny
+        int length = 0;
+        int[] packed = new int[16];
+        for (int index = meetingNode; index != -1; index = forward.getPrevious(index)) {
+            if (length == packed.length)
+                packed = Arrays.copyOf(packed, 2 * length);
+            packed[length++] = index;
+        }
+        reverse(packed, length);
+        for (int index = backward.getPrevious(meetingNode); index != -1; index = backward.getPrevious(index)) {
+            if (length == packed.length)
+                packed = Arrays.copyOf(packed, 2 * length);
+            packed[length++] = index;
+        }
+
+        // Replace every shortcut by the edges it skips
+        path.addNode(srcNode);
+        for (int k = 0; k + 1 < length; ++k)
+            unpack(packed[k], packed[k + 1], path);
+
+        return path;
+    }
+
+    /**
+     * Appends to a path the nodes of an edge of the hierarchy, after its source node. Shortcuts are unpacked with
+     * an explicit stack, as they may nest as deep as the hierarchy.
+     *
+     * @param srcIndex index of the source node of the edge, already in the path.
+     * @param desIndex index of the destiny node of the edge.
+     * @param path path being constructed.
+     * @throws NodeNotPresentException thrown if the edge contains an index that is not mapped to a node.
+     */
+    private void unpack(int srcIndex, int desIndex, Path<Node> path) throws NodeNotPresentException {
+        int size = 0;
+        long[] stack = new long[16];
+        stack[size++] = key(srcIndex, desIndex);
+
+        while (size != 0) {
+            long edge = stack[--size];
+            Integer middle = middles.get(edge);
+
+            if (middle == null) {
+                path.addNode(upward.getNodeAtIndex((int) edge));
+                continue;
+            }
+
+            if (size + 2 > stack.length)
+                stack = Arrays.copyOf(stack, 2 * stack.length);
+
+            // The second half is pushed first, so that the first half is unpacked first
+            stack[size++] = key(middle, (int) edge);
+            stack[size++] = key((int) (edge >>> 32), middle);
+        }
+    }
+
+    /**
+     *
+     * @return key that identifies the edge between two node indexes.
+     */
+    private static long key(int srcIndex, int desIndex) {
+        return ((long) srcIndex << 32) | desIndex;
+    }
+
+    /**
+     * Reverses the first positions of an array.
+     */
+    private static void reverse(int[] array, int length) {
+        for (int i = 0, j = length - 1; i < j; ++i, --j) {
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * Contracts the nodes of a graph and collects the resulting upward and downward edges. Holds the remaining
+     * graph as growable adjacency lists in both directions, whose entries refer to contracted nodes are skipped.
+     */
+    private static class Contractor<Node> {
+
+        private final Graph<Node> graph;
+
+        private final int nodes;
+
+        /**
+         * Outgoing edges of each node: destiny, weight and skipped node (-1 for an edge of the original graph).
+         */
+        private final int[][] outNodes;
+        private final int[][] outWeights;
+        private final int[][] outMiddles;
+        private final int[] outSize;
+
+        /**
+         * Incoming edges of each node: source, weight and skipped node (-1 for an edge of the original graph).
+         */
+        private final int[][] inNodes;
+        private final int[][] inWeights;
+        private final int[][] inMiddles;
+        private final int[] inSize;
+
+        private final boolean[] contracted;
+
+        private final int[] contractedNeighbours;
+
+        /**
+         * Index of each node in the graphs of the hierarchy, which differs from its index in the original graph if
+         * the latter has indexes freed by removed nodes (-1 for those).
+         */
+        private final int[] hierarchyIndexes;
+
+        /**
+         * Scratch space of the witness searches, tagged with the stamp of the search that wrote it.
+         */
+        private final int[] witnessDist;
+        private final int[] reachedStamp;
+        private final int[] settledStamp;
+        private final int[] targetStamp;
+        private final int[] targetCost;
+        private final IndexedHeap witnessHeap = new IndexedHeap();
+        private int stamp = 0;
+
+        private final CsrGraph.Builder<Node> upwardBuilder = new CsrGraph.Builder<>();
+        private final CsrGraph.Builder<Node> downwardBuilder = new CsrGraph.Builder<>();
+        private final Map<Long, Integer> middles = new HashMap<>();
+
+        Contractor(Graph<Node> graph) {
+            this.graph = graph;
+            this.nodes = graph.getIndexBound();
+
+            outNodes = new int[nodes][];
+            outWeights = new int[nodes][];
+            outMiddles = new int[nodes][];
+            outSize = new int[nodes];
+            inNodes = new int[nodes][];
+            inWeights = new int[nodes][];
+            inMiddles = new int[nodes][];
+            inSize = new int[nodes];
+
+            for (int v = 0; v != nodes; ++v) {
+                outNodes[v] = new int[4];
+                outWeights[v] = new int[4];
+                outMiddles[v] = new int[4];
+                inNodes[v] = new int[4];
+                inWeights[v] = new int[4];
+                inMiddles[v] = new int[4];
+            }
+
+            contracted = new boolean[nodes];
+            contractedNeighbours = new int[nodes];
+            hierarchyIndexes = new int[nodes];
+
+            witnessDist = new int[nodes];
+            reachedStamp = new int[nodes];
+            settledStamp = new int[nodes];
+            targetStamp = new int[nodes];
+            targetCost = new int[nodes];
+            witnessHeap.ensureCapacity(nodes);
+        }
+
+        /**
+         * Contracts every node of the graph.
+         *
+         * @return resulting contraction hierarchy.
+         */
+        ContractionHierarchy<Node> contract() {
+            int hierarchyNodes = 0;
+            for (int v = 0; v != nodes; ++v) {
+                Node node = getNode(v);
+
+                // Freed indexes have no edges and are left out of the hierarchy
+                if (node == null) {
+                    hierarchyIndexes[v] = -1;
+                    contracted[v] = true;
+                    continue;
+                }
+
+                try {
+                    upwardBuilder.addNode(node);
+                    downwardBuilder.addNode(node);
+                } catch (NodeAlreadyPresentException e) {
+                    // This will never be reached, as every index is mapped to a distinct node
+                    throw new RuntimeException(e);
+                }
+                hierarchyIndexes[v] = hierarchyNodes++;
+
+                final int srcIndex = v;
+                graph.forEachEdgeFrom(v, (desIndex, weight) -> {
+                    if (desIndex != srcIndex)
+                        addOrImproveEdge(srcIndex, desIndex, weight, -1);
+                });
+            }
+
+            IndexedHeap queue = new IndexedHeap();
+            queue.ensureCapacity(nodes);
+            for (int v = 0; v != nodes; ++v)
+                if (!contracted[v])
+                    queue.insertOrDecrease(v, getPriority(v));
+
+            while (!queue.isEmpty()) {
+                int v = queue.poll();
+
+                // Priorities are updated lazily: a node whose priority grew goes back to the queue
+                int priority = getPriority(v);
+                if (!queue.isEmpty() && priority > queue.peekKey()) {
+                    queue.insertOrDecrease(v, priority);
+                    continue;
+                }
+
+                // The remaining neighbours of the node will all be contracted after it
+                for (int k = 0; k != outSize[v]; ++k) {
+                    int x = outNodes[v][k];
+                    if (!contracted[x]) {
+                        addHierarchyEdge(upwardBuilder, v, x, outWeights[v][k], outMiddles[v][k]);
+                        ++contractedNeighbours[x];
+                    }
+                }
+                for (int k = 0; k != inSize[v]; ++k) {
+                    int u = inNodes[v][k];
+                    if (!contracted[u]) {
+                        addHierarchyEdge(downwardBuilder, u, v, inWeights[v][k], inMiddles[v][k]);
+                        ++contractedNeighbours[u];
+                    }
+                }
+
+                addShortcuts(v, false);
+                contracted[v] = true;
+            }
+
+            return new ContractionHierarchy<>(upwardBuilder.build(), downwardBuilder.build(), middles);
+        }
+
+        /**
+         * Computes the edge difference of a node plus its number of contracted neighbours.
+         */
+        private int getPriority(int v) {
+            int removedEdges = 0;
+            for (int k = 0; k != outSize[v]; ++k)
+                if (!contracted[outNodes[v][k]])
+                    ++removedEdges;
+            for (int k = 0; k != inSize[v]; ++k)
+                if (!contracted[inNodes[v][k]])
+                    ++removedEdges;
+
+            return addShortcuts(v, true) - removedEdges + contractedNeighbours[v];
+        }
+
+        /**
+         * Finds the shortcuts needed to contract a node: for every remaining in-neighbour u and out-neighbour x,
+         * a shortcut from u to x is needed unless a witness search finds a path from u to x that avoids the node
+         * and costs no more than the path through it.
+         *
+         * @param v node being contracted.
+         * @param simulate if true, the shortcuts are only counted.
+         * @return number of shortcuts needed.
+         */
+        private int addShortcuts(int v, boolean simulate) {
+            int shortcuts = 0;
+
+            for (int i = 0; i != inSize[v]; ++i) {
+                int u = inNodes[v][i];
+                if (contracted[u])
+                    continue;
+
+                int inWeight = inWeights[v][i];
+
+                // Mark the out-neighbours of the node as targets of the witness search
+                ++stamp;
+                int targets = 0;
+                int maxCost = 0;
+                for (int j = 0; j != outSize[v]; ++j) {
+                    int x = outNodes[v][j];
+                    if (contracted[x] || x == u)
+                        continue;
+                    targetStamp[x] = stamp;
+                    targetCost[x] = inWeight + outWeights[v][j];
+                    maxCost = Math.max(maxCost, targetCost[x]);
+                    ++targets;
+                }
+
+                if (targets == 0)
+                    continue;
+
+                searchWitnesses(u, v, maxCost, targets);
+
+                for (int j = 0; j != outSize[v]; ++j) {
+                    int x = outNodes[v][j];
+                    if (contracted[x] || x == u)
+                        continue;
+
+                    int cost = inWeight + outWeights[v][j];
+                    boolean witnessed = reachedStamp[x] == stamp && witnessDist[x] <= cost;
+
+                    if (!witnessed) {
+                        ++shortcuts;
+                        if (!simulate)
+                            addOrImproveEdge(u, x, cost, v);
+                    }
+                }
+            }
+
+            return shortcuts;
+        }
+
+        /**
+         * Runs Dijkstra's path finding algorithm from a node over the remaining graph without the node being
+         * contracted. Stops once every target was reached with a cost no greater than its path through the
+         * contracted node, or once the search is too far or too large.
+         *
+         * @param srcIndex source node of the search.
+         * @param avoidedIndex node being contracted.
+         * @param maxCost greatest cost of a path through the contracted node.
+         * @param targets number of targets marked with the current stamp.
+         */
+        private void searchWitnesses(int srcIndex, int avoidedIndex, int maxCost, int targets) {
+            witnessHeap.clear();
+            reachedStamp[srcIndex] = stamp;
+            witnessDist[srcIndex] = 0;
+            witnessHeap.insertOrDecrease(srcIndex, 0);
+
+            int settled = 0;
+
+            while (!witnessHeap.isEmpty() && targets != 0 && settled != WITNESS_SETTLE_LIMIT) {
+                if (witnessHeap.peekKey() > maxCost)
+                    break;
+
+                int y = witnessHeap.poll();
+                settledStamp[y] = stamp;
+                ++settled;
+
+                for (int k = 0; k != outSize[y]; ++k) {
+                    int z = outNodes[y][k];
+                    if (contracted[z] || z == avoidedIndex || settledStamp[z] == stamp)
+                        continue;
+
+                    int newDist = witnessDist[y] + outWeights[y][k];
+                    if (reachedStamp[z] == stamp && newDist >= witnessDist[z])
+                        continue;
+
+                    // Count a target the first time it is reached cheaply enough
+                    boolean wasWitnessed = reachedStamp[z] == stamp && witnessDist[z] <= targetCost[z];
+                    if (targetStamp[z] == stamp && !wasWitnessed && newDist <= targetCost[z])
+                        --targets;
+
+                    reachedStamp[z] = stamp;
+                    witnessDist[z] = newDist;
+                    witnessHeap.insertOrDecrease(z, newDist);
+                }
+            }
+        }
+
+        /**
+         * Adds an edge to the remaining graph or, if there already is one between the same nodes, lowers its
+         * weight.
+         */
+        private void addOrImproveEdge(int u, int x, int weight, int middle) {
+            for (int k = 0; k != outSize[u]; ++k) {
+                if (outNodes[u][k] == x) {
+                    if (weight < outWeights[u][k]) {
+                        outWeights[u][k] = weight;
+                        outMiddles[u][k] = middle;
+                        for (int l = 0; l != inSize[x]; ++l) {
+                            if (inNodes[x][l] == u) {
+                                inWeights[x][l] = weight;
+                                inMiddles[x][l] = middle;
+                            }
+                        }
+                    }
+                    return;
+                }
+            }
+
+            if (outSize[u] == outNodes[u].length) {
+                outNodes[u] = Arrays.copyOf(outNodes[u], 2 * outSize[u]);
+                outWeights[u] = Arrays.copyOf(outWeights[u], 2 * outSize[u]);
+                outMiddles[u] = Arrays.copyOf(outMiddles[u], 2 * outSize[u]);
+            }
+            outNodes[u][outSize[u]] = x;
+            outWeights[u][outSize[u]] = weight;
+            outMiddles[u][outSize[u]] = middle;
+            ++outSize[u];
+
+            if (inSize[x] == inNodes[x].length) {
+                inNodes[x] = Arrays.copyOf(inNodes[x], 2 * inSize[x]);
+                inWeights[x] = Arrays.copyOf(inWeights[x], 2 * inSize[x]);
+                inMiddles[x] = Arrays.copyOf(inMiddles[x], 2 * inSize[x]);
+            }
+            inNodes[x][inSize[x]] = u;
+            inWeights[x][inSize[x]] = weight;
+            inMiddles[x][inSize[x]] = middle;
+            ++inSize[x];
+        }
+
+        /**
+         * Adds an edge to the upward or downward graph of the hierarchy, remembering the node it skips.
+         */
+        private void addHierarchyEdge(CsrGraph.Builder<Node> builder, int u, int x, int weight, int middle) {
+            try {
+                builder.addEdge(new Edge<>(getNode(u), getNode(x), weight));
+            } catch (NodeNotPresentException e) {
+                // This will never be reached, as all nodes were added to the builders
+                throw new RuntimeException(e);
+            }
+            if (middle != -1)
+                middles.put(key(hierarchyIndexes[u], hierarchyIndexes[x]), hierarchyIndexes[middle]);
+        }
+
+        /**
+         * Gets the node mapped to an index, or null if the index was freed by a removed node.
+         */
+        private Node getNode(int index) {
+            try {
+                return graph.getNodeAtIndex(index);
+            } catch (NodeNotPresentException e) {
+                return null;
+            }
+        }
+    }
+}
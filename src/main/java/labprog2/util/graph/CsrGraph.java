@@ -0,0 +1,627 @@
+package labprog2.util.graph;
+
+import java.util.*;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Implements a directional weighted graph in compressed sparse row (CSR) format. The topology of the graph (its
+ * nodes and the pairs of nodes that may be connected) is frozen when the graph is built, which allows it to be stored
+ * in three primitive arrays whose size grows with the number of edges instead of the square of the number of nodes.
+ * The incoming edges of each node are indexed in the same way, for searches that follow edges backwards.
+ *
+ * @see CsrGraph.Builder
+ */
+public class CsrGraph<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Offsets of the rows of each node in the targets and weights arrays. The outgoing edges of the node of index i
+     * are stored in the positions between offsets[i] (inclusive) and offsets[i + 1] (exclusive), sorted by target.
+     */
+    private final int[] offsets;
+
+    /**
+     * Index of the destiny node of each edge slot.
+     */
+    private final int[] targets;
+
+    /**
+     * Weight of each edge slot. As in the matrix representation, a weight equal to zero indicates that the edge
+     * slot is currently empty (the edge was removed).
+     */
+    private final int[] weights;
+
+    /**
+     * Offsets of the incoming edges of each node in the sources and sourceSlots arrays. The edges that go into the
+     * node of index j are stored in the positions between inOffsets[j] (inclusive) and inOffsets[j + 1] (exclusive).
+     */
+    private final int[] inOffsets;
+
+    /**
+     * Index of the source node of each incoming edge.
+     */
+    private final int[] sources;
+
+    /**
+     * Slot of each incoming edge in the targets and weights arrays. Incoming edges refer to the slots of the
+     * outgoing ones instead of copying their weights, so that updates to a weight are seen in both directions.
+     */
+    private final int[] sourceSlots;
+
+    /**
+     * Maps each node to its index (integer between 0 and the number of nodes - 1, inclusive) and back. Removing a
+     * node frees its index, which is never reused since nodes cannot be added.
+     */
+    private final NodeIndex<Node> nodeIndex;
+
+    /**
+     * Creates a graph from the arrays assembled by a builder.
+     *
+     * @param nodeIndex mapping between the nodes and their indexes.
+     * @param offsets offsets of the rows.
+     * @param targets destiny node of each edge slot.
+     * @param weights weight of each edge slot.
+     * @param inOffsets offsets of the incoming edges of each node.
+     * @param sources source node of each incoming edge.
+     * @param sourceSlots slot of each incoming edge.
+     */
+    private CsrGraph(NodeIndex<Node> nodeIndex, int[] offsets, int[] targets, int[] weights, int[] inOffsets,
+                     int[] sources, int[] sourceSlots) {
+        this.nodeIndex = nodeIndex;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+        this.sourceSlots = sourceSlots;
+    }
+
+    /**
+     * Creates a graph directly from its rows, e.g. as read from a file written with the rows of another graph. No
+     * edge is sorted nor copied, so the graph is ready in time proportional to the number of edges.
+     *
+     * @param nodes nodes of the graph, which receive the indexes of their positions in the list.
+     * @param offsets offsets of the rows of each node in the targets and weights arrays, ending with the number of
+     * edges.
+     * @param targets index of the destiny node of each edge, in increasing order within each row.
+     * @param weights weight of each edge; zero for an empty slot.
+     * @param <Node> type of the nodes.
+     * @return graph with the given nodes and edges, which keeps the given arrays.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in the list.
+     * @throws IllegalArgumentException thrown if the arrays do not describe sorted rows of the given nodes.
+     */
+    public static <Node> CsrGraph<Node> fromRows(List<Node> nodes, int[] offsets, int[] targets, int[] weights)
+            throws NodeAlreadyPresentException {
+        NodeIndex<Node> nodeIndex = new NodeIndex<>(nodes.size());
+        for (Node node : nodes)
+            nodeIndex.add(node);
+
+        if (offsets.length != nodes.size() + 1 || offsets[0] != 0 || offsets[nodes.size()] != targets.length
+                || weights.length != targets.length)
+            throw new IllegalArgumentException("Rows do not match the nodes and edges");
+        for (int i = 0; i != nodes.size(); ++i) {
+            if (offsets[i] > offsets[i + 1])
+                throw new IllegalArgumentException("Row offsets decrease at node " + i);
+            for (int k = offsets[i]; k != offsets[i + 1]; ++k)
+                if (targets[k] < 0 || targets[k] >= nodes.size() || (k != offsets[i] && targets[k] <= targets[k - 1]))
+                    throw new IllegalArgumentException("Row of node " + i + " is not sorted by destiny");
+        }
+
+        return index(nodeIndex, offsets, targets, weights);
+    }
+
+    /**
+     * Completes the rows of a graph with the index of its incoming edges, which is built by counting sort over the
+     * destiny of each slot.
+     *
+     * @param nodeIndex mapping between the nodes and their indexes, without holes.
+     * @param offsets offsets of the rows.
+     * @param targets destiny node of each edge slot.
+     * @param weights weight of each edge slot.
+     * @param <Node> type of the nodes.
+     * @return graph with the given rows.
+     */
+    private static <Node> CsrGraph<Node> index(NodeIndex<Node> nodeIndex, int[] offsets, int[] targets,
+                                               int[] weights) {
+        int nodes = nodeIndex.size();
+        int slots = targets.length;
+
+        int[] inOffsets = new int[nodes + 1];
+        for (int k = 0; k != slots; ++k)
+            ++inOffsets[targets[k] + 1];
+        for (int j = 0; j != nodes; ++j)
+            inOffsets[j + 1] += inOffsets[j];
+
+        int[] sources = new int[slots];
+        int[] sourceSlots = new int[slots];
+        int[] inFill = Arrays.copyOf(inOffsets, nodes);
+        for (int i = 0; i != nodes; ++i) {
+            for (int k = offsets[i]; k != offsets[i + 1]; ++k) {
+                int position = inFill[targets[k]]++;
+                sources[position] = i;
+                sourceSlots[position] = k;
+            }
+        }
+
+        return new CsrGraph<>(nodeIndex, offsets, targets, weights, inOffsets, sources, sourceSlots);
+    }
+
+    /**
+     * Implements a directional weighted graph in compressed sparse row format.
+     *
+     * @param V set of vertices of the graph.
+     * @param E set of edges of the graph.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in V.
+     * @throws NodeNotPresentException thrown if E contains an edge that has at least one endpoint
+     * not contained in V.
+     */
+    public CsrGraph(List<Node> V, List<Edge<Node>> E) throws NodeAlreadyPresentException, NodeNotPresentException {
+        Builder<Node> builder = new Builder<>();
+
+        for (Node v : V)
+            builder.addNode(v);
+
+        for (Edge<Node> e : E)
+            builder.addEdge(e);
+
+        CsrGraph<Node> graph = builder.build();
+
+        this.nodeIndex = graph.nodeIndex;
+        this.offsets = graph.offsets;
+        this.targets = graph.targets;
+        this.weights = graph.weights;
+        this.inOffsets = graph.inOffsets;
+        this.sources = graph.sources;
+        this.sourceSlots = graph.sourceSlots;
+    }
+
+    /**
+     * Nodes cannot be added once the topology is frozen, so the graph is always full.
+     *
+     * @param node object to be added to the graph.
+     * @throws FullGraphException always thrown if the node is not already present.
+     * @throws NodeAlreadyPresentException thrown if the node being added is already present
+     */
+    @Override
+    public void addNode(Node node) throws FullGraphException, NodeAlreadyPresentException {
+        if (has(node))
+            throw new NodeAlreadyPresentException(node);
+        throw new FullGraphException(nodeIndex.size());
+    }
+
+    /**
+     * Adds an edge to the graph. If the edge is already present, it is substituted. Implemented by setting the
+     * weight of the edge slot between the endpoints. Since the topology is frozen, the slot must have been created
+     * by the builder, which {@link #canConnect(Object, Object)} verifies.
+     *
+     * @param edge Edge to be added or updated.
+     * @throws NodeNotPresentException thrown if either of the edge endpoints is not present in the graph.
+     * @throws UnsupportedOperationException thrown if the builder created no slot between the endpoints.
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) throws NodeNotPresentException {
+        int slot = getSlot(getNodeIndex(edge.getSrcNode()), getNodeIndex(edge.getDesNode()));
+
+        if (slot == -1)
+            throw new UnsupportedOperationException("The topology of a CSR graph cannot be changed after it is built");
+
+        weights[slot] = edge.getWeight();
+    }
+
+    /**
+     * Sets the edges between the pairs of nodes that have a slot, which are the only ones the graph may connect.
+     * Implemented by writing the weight of each slot, so the weights of the other pairs are never asked for.
+     *
+     * @param weights weight of the edge between each pair of nodes, called once per slot.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        for (int i = 0; i != offsets.length - 1; ++i) {
+            if (!nodeIndex.hasIndex(i))
+                continue;
+            for (int slot = offsets[i]; slot != offsets[i + 1]; ++slot)
+                if (nodeIndex.hasIndex(targets[slot]))
+                    this.weights[slot] = weights.getWeight(i, targets[slot]);
+        }
+    }
+
+    /**
+     * Removes a node and its edges. Implemented by emptying the slots of its outgoing and incoming edges and by
+     * freeing its index. The slots are kept until the graph is compacted.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    @Override
+    public void removeNode(Node node) throws NodeNotPresentException {
+        int index = getNodeIndex(node);
+
+        for (int slot = offsets[index]; slot != offsets[index + 1]; ++slot)
+            weights[slot] = 0;
+        for (int k = inOffsets[index]; k != inOffsets[index + 1]; ++k)
+            weights[sourceSlots[k]] = 0;
+
+        nodeIndex.remove(node);
+    }
+
+    /**
+     * Removes the directional edge between the specified nodes, if it exists. Implemented by emptying its slot.
+     *
+     * @param srcNode source node of the edge to be removed.
+     * @param desNode destiny node of the edge to be removed.
+     * @return returns the edge that was removed.
+     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        Edge<Node> edge = getEdgeBetween(srcNode, desNode);
+
+        weights[getSlot(getNodeIndex(srcNode), getNodeIndex(desNode))] = 0;
+
+        return edge;
+    }
+
+    /**
+     * Returns a list containing all the edges that come out of the specified node. Implemented by iterating over
+     * the row of the node, so it takes time proportional to its degree.
+     *
+     * @param srcNode source node of all the queried edges.
+     * @return List containing all the edges.
+     * @throws NodeNotPresentException thrown if the specified node is not present in the graph.
+     */
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+
+        List<Edge<Node>> edges = new ArrayList<>(offsets[srcIndex + 1] - offsets[srcIndex]);
+
+        for (int slot = offsets[srcIndex]; slot != offsets[srcIndex + 1]; ++slot) {
+            if (weights[slot] != 0)
+                edges.add(new Edge<>(srcNode, nodeIndex.getNode(targets[slot]), weights[slot]));
+        }
+
+        return edges;
+    }
+
+    /**
+     * Verifies whether there exists an edge between two nodes in the graph. Checks if there is a non-empty slot
+     * between the provided nodes.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there exists an edge, false otherwise.
+     * @throws NodeNotPresentException If either of the specified edges is not present in the graph.
+     */
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int slot = getSlot(getNodeIndex(srcNode), getNodeIndex(desNode));
+        return slot != -1 && weights[slot] != 0;
+    }
+
+    /**
+     * Verifies whether an edge may be added between two nodes in the graph. Checks if the builder created a slot
+     * between the provided nodes, whether or not it is empty.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there is a slot between the nodes, false otherwise.
+     * @throws NodeNotPresentException If either of the specified nodes is not present in the graph.
+     */
+    @Override
+    public boolean canConnect(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return getSlot(getNodeIndex(srcNode), getNodeIndex(desNode)) != -1;
+    }
+
+    /**
+     * Verifies the presence of a node in the graph.
+     *
+     * @param node queried node.
+     * @return true if the node is present in the graph, false otherwise.
+     */
+    @Override
+    public boolean has(Node node) {
+        return nodeIndex.contains(node);
+    }
+
+    /**
+     * Verifies if graph is empty.
+     *
+     * @return true if there are no nodes, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    @Override
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes of the graph.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return weight of the edge with the specified endpoints.
+     * @throws EdgeNotPresentException thrown if there is no edge between such nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
+     */
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        int slot = getSlot(getNodeIndex(srcNode), getNodeIndex(desNode));
+
+        if (slot == -1 || weights[slot] == 0)
+            throw new EdgeNotPresentException(srcNode, desNode);
+
+        return weights[slot];
+    }
+
+    /**
+     * Gets the index mapped to a node of the graph.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
+    }
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the number of nodes.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
+     */
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
+    }
+
+    /**
+     *
+     * @return number of nodes the graph was built with, as the indexes of removed nodes are not reused.
+     */
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
+    }
+
+    /**
+     * Passes every edge that comes out of a node to a visitor. Implemented by visiting the non-empty slots of the
+     * row of the node.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        for (int slot = offsets[srcIndex]; slot != offsets[srcIndex + 1]; ++slot) {
+            if (weights[slot] != 0)
+                visitor.visit(targets[slot], weights[slot]);
+        }
+    }
+
+    /**
+     * Passes every edge that goes into a node to a visitor. Implemented by visiting the non-empty slots referred
+     * to by the incoming edges of the node.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        for (int k = inOffsets[desIndex]; k != inOffsets[desIndex + 1]; ++k) {
+            int weight = weights[sourceSlots[k]];
+            if (weight != 0)
+                visitor.visit(sources[k], weight);
+        }
+    }
+
+    /**
+     * Creates a copy of the graph. Implemented by copying only the weights and the node mappings, as the remaining
+     * arrays never change once the graph is built and may be shared.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    CsrGraph<Node> copy() {
+        return new CsrGraph<>(new NodeIndex<>(nodeIndex), offsets, targets, weights.clone(), inOffsets, sources,
+                sourceSlots);
+    }
+
+    /**
+     * Creates a compacted copy of the graph. Implemented by building a new graph with the remaining nodes and the
+     * slots between them, empty slots included, so that the compacted graph has the same topology.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    CsrGraph<Node> compactCopy() {
+        NodeIndex<Node> compactedIndex = new NodeIndex<>(nodeIndex);
+        int[] newIndexes = compactedIndex.compact();
+        List<Node> nodes = compactedIndex.getNodes();
+
+        Builder<Node> builder = new Builder<>();
+
+        try {
+            for (Node node : nodes)
+                builder.addNode(node);
+
+            for (int srcIndex = 0; srcIndex != newIndexes.length; ++srcIndex) {
+                if (newIndexes[srcIndex] == -1)
+                    continue;
+
+                Node srcNode = nodes.get(newIndexes[srcIndex]);
+                for (int slot = offsets[srcIndex]; slot != offsets[srcIndex + 1]; ++slot) {
+                    // Slots that led to removed nodes are dropped
+                    int desIndex = newIndexes[targets[slot]];
+                    if (desIndex != -1)
+                        builder.addEdge(new Edge<>(srcNode, nodes.get(desIndex), weights[slot]));
+                }
+            }
+        } catch (NodeAlreadyPresentException | NodeNotPresentException e) {
+            // This will never be reached, as the nodes come from this graph
+            throw new RuntimeException(e);
+        }
+
+        return builder.build();
+    }
+
+    /**
+     * Finds the edge slot between two nodes with a binary search over the row of the source node.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return position of the slot in the targets and weights arrays, or -1 if there is no such slot.
+     */
+    private int getSlot(int srcIndex, int desIndex) {
+        int slot = Arrays.binarySearch(targets, offsets[srcIndex], offsets[srcIndex + 1], desIndex);
+        return slot < 0 ? -1 : slot;
+    }
+
+    /**
+     * Collects the nodes and edges of a CSR graph and freezes them into its arrays. Nodes receive indexes in the
+     * order they are added. Edges may be added in any order; if an edge is added more than once, the last weight
+     * is kept.
+     */
+    public static class Builder<Node> {
+
+        private final NodeIndex<Node> nodeIndex = new NodeIndex<>(16);
+
+        /**
+         * Source index, destiny index and weight of every edge added, in insertion order.
+         */
+        private int[] srcIndexes = new int[16];
+        private int[] desIndexes = new int[16];
+        private int[] edgeWeights = new int[16];
+
+        private int edgeCount = 0;
+
+        /**
+         * Adds a node to the graph being built.
+         *
+         * @param node node to be added.
+         * @return reference to current builder.
+         * @throws NodeAlreadyPresentException thrown if the node was already added.
+         */
+        public Builder<Node> addNode(Node node) throws NodeAlreadyPresentException {
+            nodeIndex.add(node);
+
+            return this;
+        }
+
+        /**
+         * Adds an edge to the graph being built. Both ends must be nodes already added.
+         *
+         * @param edge edge to be added.
+         * @return reference to current builder.
+         * @throws NodeNotPresentException thrown if either of the edge endpoints was not added.
+         */
+        public Builder<Node> addEdge(Edge<Node> edge) throws NodeNotPresentException {
+            return addEdge(nodeIndex.getIndex(edge.getSrcNode()), nodeIndex.getIndex(edge.getDesNode()),
+                    edge.getWeight());
+        }
+
+        /**
+         * Adds an edge to the graph being built, given the indexes of its endpoints, which are the positions in
+         * which the nodes were added. No edge object is needed, which suits builders that add many edges.
+         *
+         * @param srcIndex index of the source node.
+         * @param desIndex index of the destiny node.
+         * @param weight weight of the edge.
+         * @return reference to current builder.
+         * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+         */
+        public Builder<Node> addEdge(int srcIndex, int desIndex, int weight) throws NodeNotPresentException {
+            // Both indexes must be mapped to nodes
+            nodeIndex.getNode(srcIndex);
+            nodeIndex.getNode(desIndex);
+
+            if (edgeCount == srcIndexes.length) {
+                srcIndexes = Arrays.copyOf(srcIndexes, 2 * edgeCount);
+                desIndexes = Arrays.copyOf(desIndexes, 2 * edgeCount);
+                edgeWeights = Arrays.copyOf(edgeWeights, 2 * edgeCount);
+            }
+
+            srcIndexes[edgeCount] = srcIndex;
+            desIndexes[edgeCount] = desIndex;
+            edgeWeights[edgeCount] = weight;
+            ++edgeCount;
+
+            return this;
+        }
+
+        /**
+         * Freezes the nodes and edges added so far into a CSR graph. The builder may still be used afterwards,
+         * without affecting the graphs already built.
+         *
+         * @return graph containing all the nodes and edges added.
+         */
+        public CsrGraph<Node> build() {
+            int nodes = nodeIndex.size();
+
+            // Count the edges of each row and turn the counts into offsets (counting sort by source)
+            int[] rowStart = new int[nodes + 1];
+            for (int e = 0; e != edgeCount; ++e)
+                ++rowStart[srcIndexes[e] + 1];
+            for (int i = 0; i != nodes; ++i)
+                rowStart[i + 1] += rowStart[i];
+
+            // Place each edge in its row, packing destiny and insertion order so rows can be sorted by destiny
+            // while keeping the edges added later after the ones added earlier
+            long[] sortedEdges = new long[edgeCount];
+            int[] fill = Arrays.copyOf(rowStart, nodes);
+            for (int e = 0; e != edgeCount; ++e)
+                sortedEdges[fill[srcIndexes[e]]++] = ((long) desIndexes[e] << 32) | e;
+
+            int[] offsets = new int[nodes + 1];
+            int[] targets = new int[edgeCount];
+            int[] weights = new int[edgeCount];
+            int slot = 0;
+
+            for (int i = 0; i != nodes; ++i) {
+                Arrays.sort(sortedEdges, rowStart[i], rowStart[i + 1]);
+                offsets[i] = slot;
+
+                for (int k = rowStart[i]; k != rowStart[i + 1]; ++k) {
+                    int desIndex = (int) (sortedEdges[k] >>> 32);
+                    int e = (int) sortedEdges[k];
+
+                    // A repeated edge substitutes the previous one, as in the other graph implementations
+                    if (slot != offsets[i] && targets[slot - 1] == desIndex)
+                        --slot;
+
+                    targets[slot] = desIndex;
+                    weights[slot] = edgeWeights[e];
+                    ++slot;
+                }
+            }
+            offsets[nodes] = slot;
+
+            return index(new NodeIndex<>(nodeIndex), offsets, Arrays.copyOf(targets, slot),
+                    Arrays.copyOf(weights, slot));
+        }
+    }
+
+}
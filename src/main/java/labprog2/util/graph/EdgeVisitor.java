@@ -0,0 +1,18 @@
+package labprog2.util.graph;
+
+/**
+ * Callback that receives the edges of a node as primitive values, so that graph algorithms can iterate over
+ * neighbours without creating edge objects.
+ *
+ * @see Graph#forEachEdgeFrom(int, EdgeVisitor)
+ */
+public interface EdgeVisitor {
+    /**
+     * Visits one edge.
+     *
+     * @param desIndex index of the other endpoint of the edge: its destiny node for outgoing edges, its source node
+     * for incoming edges.
+     * @param weight weight of the edge.
+     */
+    void visit(int desIndex, int weight);
+}
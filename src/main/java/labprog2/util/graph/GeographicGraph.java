@@ -0,0 +1,626 @@
+package labprog2.util.graph;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.GeographicCoordinates;
+
+/**
+ * Implements a complete weighted graph of points on a sphere, whose edges weigh the great-circle distance between
+ * their nodes, truncated. Only the coordinates of the nodes are stored, as parallel arrays, and the weights are
+ * computed when the edges are visited, so the graph takes memory proportional to the number of nodes instead of
+ * its square. Nodes at a distance below one (e.g. the same node) are not connected, as a zero weight means no edge.
+ * <p>
+ * Edges may still be changed: an edge added with a weight other than the distance, or removed, is kept as an
+ * override of the computed weight. Overrides are expected to be few, e.g. closed routes.
+ * <p>
+ * Since every edge visit costs a distance computation, the weights of rows that are visited repeatedly are kept in
+ * a small direct-mapped cache: the row of a node may only be stored in the slot of its index modulo the number of
+ * slots, and only once the node missed its slot twice in succession. Reading threads may store rows at the same
+ * time; each slot holds an immutable row, so a thread sees either a complete row or none.
+ */
+public class GeographicGraph<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Weights of the edges out of a node, cached. Immutable, so it may be published to other threads without
+     * synchronization.
+     */
+    private static final class Row {
+        private final int srcIndex;
+        private final int[] weights;
+
+        private Row(int srcIndex, int[] weights) {
+            this.srcIndex = srcIndex;
+            this.weights = weights;
+        }
+    }
+
+    /**
+     * Gives the coordinates of each node as it is added.
+     */
+    private final Function<Node, GeographicCoordinates> locator;
+
+    /**
+     * Coordinates of the node at each index, in degrees, the cosine of its latitude and the radius of its planet.
+     * Entries of freed indexes are ignored.
+     */
+    private double[] latitudes;
+    private double[] longitudes;
+    private double[] cosLatitudes;
+    private double[] radii;
+
+    /**
+     * Weight of each overridden edge, by the indexes of its nodes (see {@link #key}), or zero for removed edges.
+     */
+    private final Map<Long, Integer> overrides;
+
+    /**
+     * Number of overridden edges out of and into each node, so that the nodes without overrides skip the lookups.
+     */
+    private int[] overridesFrom;
+    private int[] overridesTo;
+
+    /**
+     * Slots of the row cache, empty if there is no cache.
+     */
+    private Row[] cache;
+
+    /**
+     * Index of the node that last missed each slot of the cache, whose row is cached if it misses again. Written by
+     * reading threads without synchronization: a lost write only delays the caching of a row.
+     */
+    private int[] candidates;
+
+    /**
+     * Maps each node to the position of its coordinates and back.
+     */
+    private final NodeIndex<Node> nodeIndex;
+
+    /**
+     * Implements a complete graph of points on a sphere.
+     *
+     * @param locator function that gives the coordinates of each node.
+     * @param maxNodes initial capacity of the graph. The graph grows beyond it as needed.
+     * @param cachedRows number of rows of weights to be cached, each taking 4 bytes per node; zero disables the
+     * cache.
+     */
+    public GeographicGraph(Function<Node, GeographicCoordinates> locator, int maxNodes, int cachedRows) {
+        int capacity = Math.max(1, maxNodes);
+        this.locator = locator;
+        this.nodeIndex = new NodeIndex<>(maxNodes);
+        this.latitudes = new double[capacity];
+        this.longitudes = new double[capacity];
+        this.cosLatitudes = new double[capacity];
+        this.radii = new double[capacity];
+        this.overrides = new HashMap<>();
+        this.overridesFrom = new int[capacity];
+        this.overridesTo = new int[capacity];
+        this.cache = new Row[cachedRows];
+        this.candidates = newCandidates(cachedRows);
+    }
+
+    /**
+     * Creates a copy of a graph, with an empty cache of the same size.
+     *
+     * @param other graph to be copied.
+     */
+    private GeographicGraph(GeographicGraph<Node> other) {
+        this.locator = other.locator;
+        this.nodeIndex = new NodeIndex<>(other.nodeIndex);
+        this.latitudes = other.latitudes.clone();
+        this.longitudes = other.longitudes.clone();
+        this.cosLatitudes = other.cosLatitudes.clone();
+        this.radii = other.radii.clone();
+        this.overrides = new HashMap<>(other.overrides);
+        this.overridesFrom = other.overridesFrom.clone();
+        this.overridesTo = other.overridesTo.clone();
+        this.cache = new Row[other.cache.length];
+        this.candidates = newCandidates(other.cache.length);
+    }
+
+    private static int[] newCandidates(int cachedRows) {
+        int[] candidates = new int[cachedRows];
+        Arrays.fill(candidates, -1);
+        return candidates;
+    }
+
+    /**
+     * Implements a complete graph of points on a sphere.
+     *
+     * @param locator function that gives the coordinates of each node.
+     * @param V set of vertices of the graph.
+     * @param cachedRows number of rows of weights to be cached; zero disables the cache.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in V.
+     */
+    public GeographicGraph(Function<Node, GeographicCoordinates> locator, List<Node> V, int cachedRows)
+            throws NodeAlreadyPresentException {
+        this(locator, V.size(), cachedRows);
+
+        for (Node v : V)
+            addNode(v);
+    }
+
+    /**
+     * Packs the indexes of the nodes of an edge into a key of the overrides.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return key of the edge.
+     */
+    private static long key(int srcIndex, int desIndex) {
+        return (long) srcIndex << 32 | desIndex;
+    }
+
+    /**
+     * Computes the weight an edge has unless it is overridden.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return distance between the nodes, truncated, or zero for the same node.
+     */
+    private int distance(int srcIndex, int desIndex) {
+        if (srcIndex == desIndex)
+            return 0;
+
+        return (int) CoordinateArrays.distance(latitudes[srcIndex], longitudes[srcIndex], cosLatitudes[srcIndex],
+                latitudes[desIndex], longitudes[desIndex], cosLatitudes[desIndex], radii[srcIndex]);
+    }
+
+    /**
+     * Computes the current weight of an edge, taking its override into account.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return weight of the edge, or zero if there is no edge.
+     */
+    private int weight(int srcIndex, int desIndex) {
+        if (overridesFrom[srcIndex] != 0) {
+            Integer weight = overrides.get(key(srcIndex, desIndex));
+            if (weight != null)
+                return weight;
+        }
+
+        return distance(srcIndex, desIndex);
+    }
+
+    /**
+     * Sets the weight of an edge, keeping an override only if it differs from the distance between its nodes.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @param weight new weight of the edge, or zero to remove it.
+     */
+    private void setWeight(int srcIndex, int desIndex, int weight) {
+        long key = key(srcIndex, desIndex);
+        boolean wasOverridden = overrides.containsKey(key);
+
+        if (weight == distance(srcIndex, desIndex)) {
+            if (wasOverridden) {
+                overrides.remove(key);
+                --overridesFrom[srcIndex];
+                --overridesTo[desIndex];
+            }
+        } else {
+            overrides.put(key, weight);
+            if (!wasOverridden) {
+                ++overridesFrom[srcIndex];
+                ++overridesTo[desIndex];
+            }
+        }
+
+        // Cached rows may hold the previous weight
+        Arrays.fill(cache, null);
+    }
+
+    /**
+     * Adds a node to the graph, given it is not already present, together with its edges to every other node.
+     * Implemented by storing the coordinates of the node at its index, preferably one freed by a removed node. If
+     * every index is taken, the coordinate arrays are copied into arrays twice as long.
+     *
+     * @param node object implementing the node interface to be added to the graph.
+     * @throws NodeAlreadyPresentException thrown if the node being added is already present
+     *
+     * @see Node
+     */
+    @Override
+    public void addNode(Node node) throws NodeAlreadyPresentException {
+        if (nodeIndex.size() == latitudes.length && !nodeIndex.contains(node)) {
+            int capacity = 2 * latitudes.length;
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            cosLatitudes = Arrays.copyOf(cosLatitudes, capacity);
+            radii = Arrays.copyOf(radii, capacity);
+            overridesFrom = Arrays.copyOf(overridesFrom, capacity);
+            overridesTo = Arrays.copyOf(overridesTo, capacity);
+        }
+
+        int index = nodeIndex.add(node);
+
+        GeographicCoordinates coordinates = locator.apply(node);
+        latitudes[index] = coordinates.getLatitude();
+        longitudes[index] = coordinates.getLongitude();
+        cosLatitudes[index] = Math.cos(Math.toRadians(coordinates.getLatitude()));
+        radii[index] = coordinates.getRadius();
+
+        // Rows cached before hold no weight for the new index
+        Arrays.fill(cache, null);
+    }
+
+    /**
+     * Adds an edge to the graph. If the edge is already present, it is substituted. Implemented by overriding the
+     * weight of the edge, unless it equals the distance between its nodes.
+     *
+     * @param edge Edge to be added or updated.
+     * @throws NodeNotPresentException thrown if either of the edge endpoints is not present in the graph.
+     *
+     * @see Edge
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) throws NodeNotPresentException {
+        setWeight(getNodeIndex(edge.getSrcNode()), getNodeIndex(edge.getDesNode()), edge.getWeight());
+    }
+
+    /**
+     * Sets the edges between every ordered pair of nodes at once. Implemented by comparing, in parallel, the given
+     * weights with the distances between the nodes; only the pairs whose weights differ are overridden.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        int bound = getIndexBound();
+
+        // Find the differing weights of each row in parallel, as pairs of destiny index and weight
+        int[][] differences = IntStream.range(0, bound).parallel().mapToObj(srcIndex -> {
+            int[] row = new int[0];
+            int size = 0;
+            if (nodeIndex.hasIndex(srcIndex)) {
+                for (int desIndex = 0; desIndex != bound; ++desIndex) {
+                    if (!nodeIndex.hasIndex(desIndex))
+                        continue;
+                    int weight = weights.getWeight(srcIndex, desIndex);
+                    if (weight != distance(srcIndex, desIndex)) {
+                        if (size == row.length)
+                            row = Arrays.copyOf(row, Math.max(4, 2 * size));
+                        row[size++] = desIndex;
+                        row[size++] = weight;
+                    }
+                }
+            }
+            return Arrays.copyOf(row, size);
+        }).toArray(int[][]::new);
+
+        overrides.clear();
+        Arrays.fill(overridesFrom, 0);
+        Arrays.fill(overridesTo, 0);
+        for (int srcIndex = 0; srcIndex != bound; ++srcIndex) {
+            int[] row = differences[srcIndex];
+            for (int i = 0; i != row.length; i += 2) {
+                overrides.put(key(srcIndex, row[i]), row[i + 1]);
+                ++overridesFrom[srcIndex];
+                ++overridesTo[row[i]];
+            }
+        }
+
+        Arrays.fill(cache, null);
+    }
+
+    /**
+     * Removes a node and its edges. Implemented by freeing its index and dropping the overrides of its edges.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    @Override
+    public void removeNode(Node node) throws NodeNotPresentException {
+        int index = getNodeIndex(node);
+
+        if (overridesFrom[index] != 0 || overridesTo[index] != 0) {
+            Iterator<Long> keys = overrides.keySet().iterator();
+            while (keys.hasNext()) {
+                long key = keys.next();
+                int srcIndex = (int) (key >>> 32);
+                int desIndex = (int) key;
+                if (srcIndex == index || desIndex == index) {
+                    keys.remove();
+                    --overridesFrom[srcIndex];
+                    --overridesTo[desIndex];
+                }
+            }
+        }
+
+        nodeIndex.remove(node);
+        Arrays.fill(cache, null);
+    }
+
+    /**
+     * Removes the edge between the specified nodes, if it exists. Implemented by overriding its weight with zero.
+     *
+     * @param srcNode source node of the edge to be removed.
+     * @param desNode destiny node of the edge to be removed.
+     * @return returns the edge that was removed.
+     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        Edge<Node> edge = getEdgeBetween(srcNode, desNode);
+
+        setWeight(getNodeIndex(srcNode), getNodeIndex(desNode), 0);
+
+        return edge;
+    }
+
+    /**
+     * Returns a list containing all the edges that come out of the specified node.
+     *
+     * @param srcNode source node of all the queried edges.
+     * @return List containing all the edges.
+     * @throws NodeNotPresentException thrown if the specified node is not present in the graph.
+     */
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        List<Edge<Node>> edges = new ArrayList<>();
+
+        forEachEdgeFrom(getNodeIndex(srcNode), (desIndex, weight) -> {
+            try {
+                edges.add(new Edge<>(srcNode, getNodeAtIndex(desIndex), weight));
+            } catch (NodeNotPresentException e) {
+                // This will never be reached, as only the indexes of nodes are visited
+                throw new RuntimeException(e);
+            }
+        });
+
+        return edges;
+    }
+
+    /**
+     * Passes every edge that comes out of a node to a visitor. Implemented by reading the row of the node from the
+     * cache or, if it is not cached, by computing the distance to every other node as it is visited. A row is only
+     * built and cached when its node misses its slot twice in succession, so that a search that visits each node
+     * once allocates nothing.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        int slot = cache.length != 0 ? srcIndex % cache.length : -1;
+        int[] weights = null;
+        if (slot != -1) {
+            // Read the slot once, as other threads may replace its row meanwhile
+            Row row = cache[slot];
+            if (row != null && row.srcIndex == srcIndex) {
+                weights = row.weights;
+            } else if (candidates[slot] == srcIndex) {
+                weights = computeRow(srcIndex);
+                cache[slot] = new Row(srcIndex, weights);
+            } else {
+                candidates[slot] = srcIndex;
+            }
+        }
+
+        if (weights != null) {
+            for (int desIndex = 0; desIndex != weights.length; ++desIndex)
+                if (weights[desIndex] != 0)
+                    visitor.visit(desIndex, weights[desIndex]);
+            return;
+        }
+
+        if (!nodeIndex.hasIndex(srcIndex))
+            return;
+
+        int bound = getIndexBound();
+        for (int desIndex = 0; desIndex != bound; ++desIndex) {
+            if (!nodeIndex.hasIndex(desIndex))
+                continue;
+            int weight = weight(srcIndex, desIndex);
+            if (weight != 0)
+                visitor.visit(desIndex, weight);
+        }
+    }
+
+    /**
+     * Computes the weights of the edges out of a node.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @return weight of the edge to each index below the index bound, or zero where there is no edge.
+     */
+    private int[] computeRow(int srcIndex) {
+        int[] weights = new int[getIndexBound()];
+        if (nodeIndex.hasIndex(srcIndex))
+            for (int desIndex = 0; desIndex != weights.length; ++desIndex)
+                if (nodeIndex.hasIndex(desIndex))
+                    weights[desIndex] = weight(srcIndex, desIndex);
+        return weights;
+    }
+
+    /**
+     * Passes every edge that goes into a node to a visitor. Implemented by computing the weight from every other
+     * node, without the cache, which holds rows of outgoing edges.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        if (!nodeIndex.hasIndex(desIndex))
+            return;
+
+        int bound = getIndexBound();
+        for (int srcIndex = 0; srcIndex != bound; ++srcIndex) {
+            if (!nodeIndex.hasIndex(srcIndex))
+                continue;
+            int weight = weight(srcIndex, desIndex);
+            if (weight != 0)
+                visitor.visit(srcIndex, weight);
+        }
+    }
+
+    /**
+     * Creates a copy of the graph. Implemented by copying the coordinate arrays and the overrides; the copy starts
+     * with an empty cache.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    GeographicGraph<Node> copy() {
+        return new GeographicGraph<>(this);
+    }
+
+    /**
+     * Creates a compacted copy of the graph. Implemented by moving the coordinates and the overrides of every node
+     * to its new index.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    GeographicGraph<Node> compactCopy() {
+        GeographicGraph<Node> compacted = new GeographicGraph<>(this);
+        int[] newIndexes = compacted.nodeIndex.compact();
+
+        int nodes = compacted.nodeIndex.size();
+        compacted.latitudes = new double[Math.max(1, nodes)];
+        compacted.longitudes = new double[compacted.latitudes.length];
+        compacted.cosLatitudes = new double[compacted.latitudes.length];
+        compacted.radii = new double[compacted.latitudes.length];
+        compacted.overridesFrom = new int[compacted.latitudes.length];
+        compacted.overridesTo = new int[compacted.latitudes.length];
+
+        for (int index = 0; index != newIndexes.length; ++index) {
+            // Freed indexes have no coordinates
+            int newIndex = newIndexes[index];
+            if (newIndex == -1)
+                continue;
+
+            compacted.latitudes[newIndex] = latitudes[index];
+            compacted.longitudes[newIndex] = longitudes[index];
+            compacted.cosLatitudes[newIndex] = cosLatitudes[index];
+            compacted.radii[newIndex] = radii[index];
+            compacted.overridesFrom[newIndex] = overridesFrom[index];
+            compacted.overridesTo[newIndex] = overridesTo[index];
+        }
+
+        compacted.overrides.clear();
+        for (Map.Entry<Long, Integer> override : overrides.entrySet()) {
+            long key = override.getKey();
+            compacted.overrides.put(key(newIndexes[(int) (key >>> 32)], newIndexes[(int) key]), override.getValue());
+        }
+
+        return compacted;
+    }
+
+    /**
+     * Verifies whether there exists an edge between two nodes in the graph, i.e., whether they are at least one
+     * unit of distance apart and their edge was not removed.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there exists an edge, false otherwise.
+     * @throws NodeNotPresentException If either of the specified edges is not present in the graph.
+     */
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return weight(getNodeIndex(srcNode), getNodeIndex(desNode)) != 0;
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes of the graph. Implemented by computing the distance between
+     * them, unless the edge is overridden.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return weight of the edge with the specified endpoints.
+     * @throws EdgeNotPresentException thrown if there is no edge between such nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
+     */
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        int weight = weight(getNodeIndex(srcNode), getNodeIndex(desNode));
+
+        if (weight == 0)
+            throw new EdgeNotPresentException(srcNode, desNode);
+
+        return weight;
+    }
+
+    /**
+     * Verifies the presence of a node in the graph.
+     *
+     * @param node queried node.
+     * @return true if the node is present in the graph, false otherwise.
+     */
+    @Override
+    public boolean has(Node node) {
+        return nodeIndex.contains(node);
+    }
+
+    /**
+     * Verifies if graph is empty.
+     *
+     * @return true if there are no nodes, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    @Override
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
+    }
+
+    /**
+     * Gets the index mapped to an inserted node.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
+    }
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the index bound.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
+     */
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
+    }
+
+    /**
+     * Returns one more than the greatest index ever mapped to a node, which equals the number of nodes unless
+     * indexes were freed by removed nodes.
+     *
+     * @return an integer greater than the index of every node in the graph.
+     */
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
+    }
+
+}
@@ -6,11 +6,12 @@ import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface that specifies a directional weighted graph.
  */
-public interface Graph<Node> {
+public interface Graph<Node> extends PathFinder<Node> {
     /**
      * Adds a node to the graph, given it is not already present nor the graph is full.
      *
@@ -33,6 +34,24 @@ public interface Graph<Node> {
      */
     public void addEdge(Edge<Node> edge) throws NodeNotPresentException;
 
+    /**
+     * Sets the edges between every ordered pair of nodes at once, as given by a function of their indexes: a
+     * non-zero weight adds or substitutes the edge, a zero weight removes it. This is the fastest way to build a
+     * dense graph, as implementations may write their storage directly and split the work between threads.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     */
+    public void fillEdges(WeightFunction weights);
+
+    /**
+     * Removes a node and every edge that comes out of it or goes into it. The index of the node is freed and may be
+     * mapped to a node added later; the indexes of the other nodes do not change.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    public void removeNode(Node node) throws NodeNotPresentException;
+
     /**
      * Removes the directional edge between the specified nodes, if it exists.
      *
@@ -72,8 +91,68 @@ public interface Graph<Node> {
      * @return shortest path.
      * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
      */
+    @Override
     public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException;
 
+    /**
+     * Returns the shortest path between two nodes within a graph, given by their indexes. Callers that query the
+     * same nodes repeatedly may resolve their indexes once with {@link #getNodeIndex(Object)}.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     */
+    public Path<Node> getShortestPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException;
+
+    /**
+     * Returns the shortest path between two nodes within a graph, guiding the search with a heuristic (A* search).
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     *
+     * @see Heuristic
+     */
+    public Path<Node> getShortestPath(Node srcNode, Node desNode, Heuristic<Node> heuristic)
+            throws NodeNotPresentException;
+
+    /**
+     * Returns the shortest path between two nodes within a graph, searching simultaneously forward from the source
+     * node and backward from the destiny node.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public Path<Node> getBidirectionalShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException;
+
+    /**
+     * Returns the shortest path between two nodes within a graph, given its cost does not exceed a limit. The
+     * search gives up as soon as every remaining path costs more than the limit.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param maxCost greatest accepted cost of the path.
+     * @return shortest path, or an empty path with infinite cost if there is no path within the limit.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public Path<Node> getShortestPath(Node srcNode, Node desNode, int maxCost) throws NodeNotPresentException;
+
+    /**
+     * Returns every node that can be reached from a node with a cost that does not exceed a limit.
+     *
+     * @param srcNode source node.
+     * @param maxCost greatest accepted cost.
+     * @return map from each reachable node (including the source node) to the cost of its shortest path, iterated
+     * in order of increasing cost.
+     * @throws NodeNotPresentException thrown if the specified node is not present.
+     */
+    public Map<Node, Integer> getNodesWithin(Node srcNode, int maxCost) throws NodeNotPresentException;
+
     /**
      * Gets the shortest path with at least one intermediate node between two specified nodes.
      *
@@ -85,6 +164,46 @@ public interface Graph<Node> {
     public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode)
             throws NodeNotPresentException;
 
+    /**
+     * Gets the shortest path with at least one intermediate node between two nodes, given by their indexes.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     */
+    public Path<Node> getShortestNonDirectPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException;
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two specified nodes, guiding the search
+     * with a heuristic (A* search).
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     *
+     * @see Heuristic
+     */
+    public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode, Heuristic<Node> heuristic)
+            throws NodeNotPresentException;
+
+    /**
+     * Gets the shortest path with at least one intermediate node between two nodes, given by their indexes, guiding
+     * the search with a heuristic (A* search).
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @param heuristic consistent estimate of the cost to reach the destiny node.
+     * @return shortest path with at least one intermediate node.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     *
+     * @see Heuristic
+     */
+    public Path<Node> getShortestNonDirectPathByIndex(int srcIndex, int desIndex, Heuristic<Node> heuristic)
+            throws NodeNotPresentException;
+
     /**
      * Verifies whether there exists an edge between two nodes in the graph.
      *
@@ -95,6 +214,17 @@ public interface Graph<Node> {
      */
     public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException;
 
+    /**
+     * Verifies whether an edge may be added between two nodes in the graph. Graphs whose topology is frozen when
+     * they are built, such as {@link CsrGraph}, only hold edges between the pairs of nodes they were built with.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if {@link #addEdge(Edge)} may add an edge between the nodes, false otherwise.
+     * @throws NodeNotPresentException If either of the specified nodes is not present in the graph.
+     */
+    public boolean canConnect(Node srcNode, Node desNode) throws NodeNotPresentException;
+
     /**
      * Verifies the presence of a node in the graph.
      *
@@ -119,6 +249,18 @@ public interface Graph<Node> {
      */
     public boolean isEmpty();
 
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    public int getNodeCount();
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    public List<Node> getNodes();
+
     /**
      * Returns the weight of the edge between two nodes of the graph.
      *
@@ -129,4 +271,47 @@ public interface Graph<Node> {
      * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
      */
     public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException;
+
+    /**
+     *
+     * @return an integer greater than the index of every node in the graph. Indexes freed by removed nodes may lie
+     * below the bound, in which case it is greater than the number of nodes.
+     */
+    public int getIndexBound();
+
+    /**
+     * Gets the index mapped to an inserted node. Indexes are integers between 0 and the index bound, and identify
+     * nodes in the index-based methods of the graph.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    public int getNodeIndex(Node node) throws NodeNotPresentException;
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the index bound.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node, e.g. because the index was freed.
+     */
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException;
+
+    /**
+     * Passes every edge that comes out of a node to a visitor. Unlike {@link #getEdgesFrom(Object)}, no list nor
+     * edge objects are created, so graph algorithms should prefer this method.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor);
+
+    /**
+     * Passes every edge that goes into a node to a visitor, without creating edge objects.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor);
 }
@@ -0,0 +1,183 @@
+package labprog2.util.graph;
+
+import java.util.List;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Immutable version of a graph published by a {@link VersionedGraph}. The snapshot owns a private copy of the
+ * graph and only exposes its reading methods, so any number of threads may search it without synchronization while
+ * newer versions are published.
+ */
+public final class GraphSnapshot<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Private copy of the graph, which is never modified after the snapshot is created.
+     */
+    private final AbstractGraph<Node> graph;
+
+    private final long version;
+
+    /**
+     * Wraps a graph that no other object refers to.
+     *
+     * @param graph graph to be wrapped.
+     * @param version number of the version, starting at zero.
+     */
+    GraphSnapshot(AbstractGraph<Node> graph, long version) {
+        this.graph = graph;
+        this.version = version;
+    }
+
+    /**
+     *
+     * @return number of the version, which grows by one with every published batch of changes.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Snapshots are read-only.
+     *
+     * @param node object to be added to the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void addNode(Node node) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    /**
+     * Snapshots are read-only.
+     *
+     * @param edge edge to be added to the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    /**
+     * Snapshots are read-only.
+     *
+     * @param srcNode source node of the edge.
+     * @param desNode destiny node of the edge.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    /**
+     * Snapshots are read-only.
+     *
+     * @param weights weights of the edges.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    /**
+     * Snapshots are read-only.
+     *
+     * @param node node to be removed from the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void removeNode(Node node) {
+        throw new UnsupportedOperationException("Graph snapshots are read-only");
+    }
+
+    // The reading methods delegate to the wrapped graph
+
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        return graph.getEdgesFrom(srcNode);
+    }
+
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return graph.connects(srcNode, desNode);
+    }
+
+    @Override
+    public boolean canConnect(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return graph.canConnect(srcNode, desNode);
+    }
+
+    @Override
+    public boolean has(Node node) {
+        return graph.has(node);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return graph.isEmpty();
+    }
+
+    @Override
+    public int getNodeCount() {
+        return graph.getNodeCount();
+    }
+
+    @Override
+    public List<Node> getNodes() {
+        return graph.getNodes();
+    }
+
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        return graph.getWeightBetween(srcNode, desNode);
+    }
+
+    @Override
+    public int getIndexBound() {
+        return graph.getIndexBound();
+    }
+
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return graph.getNodeIndex(node);
+    }
+
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return graph.getNodeAtIndex(index);
+    }
+
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        graph.forEachEdgeFrom(srcIndex, visitor);
+    }
+
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        graph.forEachEdgeTo(desIndex, visitor);
+    }
+
+    /**
+     * Creates a mutable copy of the wrapped graph, from which the next version is derived.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    AbstractGraph<Node> copy() {
+        return graph.copy();
+    }
+
+    /**
+     * Creates a mutable, compacted copy of the wrapped graph.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    AbstractGraph<Node> compactCopy() {
+        return graph.compactCopy();
+    }
+}
@@ -0,0 +1,18 @@
+package labprog2.util.graph;
+
+/**
+ * Estimates the cost of reaching a node, used to guide path finding towards the destiny node (A* search).
+ * For the resulting paths to be the shortest ones, the estimate must be consistent: it must never exceed the cost
+ * of an edge plus the estimate from the node it leads to, and it must be zero at the destiny node. A consistent
+ * estimate never exceeds the cost of the shortest path.
+ */
+public interface Heuristic<Node> {
+    /**
+     * Estimates the cost of the shortest path between two nodes.
+     *
+     * @param node node from which the cost is estimated.
+     * @param desNode destiny node of the search.
+     * @return lower bound for the cost of the shortest path from node to desNode.
+     */
+    int estimate(Node node, Node desNode);
+}
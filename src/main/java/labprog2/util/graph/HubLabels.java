@@ -0,0 +1,442 @@
+package labprog2.util.graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Answers distance queries from hub labels. Every node has an out-label, listing hubs it reaches and the distances
+ * to them, and an in-label, listing hubs that reach it and the distances from them, such that the shortest path
+ * between any two nodes passes through a hub in both the out-label of its source and the in-label of its destiny.
+ * A distance query only merges two labels, sorted by hub, so it neither searches the graph nor allocates.
+ * <p>
+ * Labels are computed by pruned landmark labeling and stored in flat arrays, one pair of offsets, hubs and
+ * distances for each direction. They reflect the edges of the graph when they were built, and may be saved and
+ * loaded again for a graph with the same nodes added in the same order.
+ */
+public class HubLabels<Node> implements PathFinder<Node> {
+
+    private final Graph<Node> graph;
+
+    /**
+     * Out-labels: the entries of the node with index i are at positions outOffsets[i] to outOffsets[i + 1] - 1
+     * of outHubs and outDists, sorted by hub.
+     */
+    private final int[] outOffsets;
+    private final int[] outHubs;
+    private final int[] outDists;
+
+    /**
+     * In-labels, stored as the out-labels.
+     */
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final int[] inDists;
+
+    private HubLabels(Graph<Node> graph, int[] outOffsets, int[] outHubs, int[] outDists,
+                      int[] inOffsets, int[] inHubs, int[] inDists) {
+        this.graph = graph;
+        this.outOffsets = outOffsets;
+        this.outHubs = outHubs;
+        this.outDists = outDists;
+        this.inOffsets = inOffsets;
+        this.inHubs = inHubs;
+        this.inDists = inDists;
+    }
+
+    /**
+     * Computes the hub labels of a graph with pruned landmark labeling. Nodes are taken as hubs in order of
+     * decreasing degree; a forward and a backward search from each hub add it to the labels of the nodes they
+     * settle, but do not go past nodes whose distance the labels computed so far already give.
+     *
+     * @param graph graph to be preprocessed.
+     * @return hub labels of the graph.
+     */
+    public static <Node> HubLabels<Node> build(Graph<Node> graph) {
+        return new Labeler<>(graph).label();
+    }
+
+    /**
+     * Returns the cost of the shortest path between two nodes. Implemented by merging the out-label of the source
+     * node with the in-label of the destiny node.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return cost of the shortest path, or Integer.MAX_VALUE if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public int getDistance(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return getDistance(graph.getNodeIndex(srcNode), graph.getNodeIndex(desNode));
+    }
+
+    /**
+     * Returns the shortest path between two nodes. Implemented by following, from the source node, an edge whose
+     * weight plus the distance from the node it leads to is the remaining distance, until the destiny node is
+     * reached. Only a label query per edge is needed, but callers that only need the cost should use
+     * {@link #getDistance(Object, Object)}.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int srcIndex = graph.getNodeIndex(srcNode);
+        int desIndex = graph.getNodeIndex(desNode);
+
+        Path<Node> path = new Path<>();
+        int distance = getDistance(srcIndex, desIndex);
+
+        // If the nodes are not connected
+        if (distance == Integer.MAX_VALUE) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        path.setCost(distance);
+        path.addNode(srcNode);
+
+        // Next node of the path and the remaining distance from the current one
+        int[] next = new int[2];
+
+        for (int index = srcIndex; index != desIndex; index = next[0]) {
+            next[0] = -1;
+            next[1] = distance;
+            graph.forEachEdgeFrom(index, (neighbour, weight) -> {
+                if (next[0] == -1 && weight <= next[1] && getDistance(neighbour, desIndex) == next[1] - weight)
+                    next[0] = neighbour;
+            });
+            distance = getDistance(next[0], desIndex);
+            path.addNode(graph.getNodeAtIndex(next[0]));
+        }
+
+        return path;
+    }
+
+    /**
+     * Merges the out-label of a node with the in-label of another.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return smallest sum of distances through a common hub, or Integer.MAX_VALUE if there is none.
+     */
+    private int getDistance(int srcIndex, int desIndex) {
+        long best = Integer.MAX_VALUE;
+
+        int i = outOffsets[srcIndex], iEnd = outOffsets[srcIndex + 1];
+        int j = inOffsets[desIndex], jEnd = inOffsets[desIndex + 1];
+
+        while (i != iEnd && j != jEnd) {
+            int outHub = outHubs[i];
+            int inHub = inHubs[j];
+
+            if (outHub < inHub)
+                ++i;
+            else if (outHub > inHub)
+                ++j;
+            else {
+                best = Math.min(best, (long) outDists[i] + inDists[j]);
+                ++i;
+                ++j;
+            }
+        }
+
+        return (int) best;
+    }
+
+    /**
+     *
+     * @return total number of entries in the out-labels and in-labels of all nodes.
+     */
+    public int getLabelEntryCount() {
+        return outHubs.length + inHubs.length;
+    }
+
+    /**
+     * Writes the labels to a stream, so that they may be loaded instead of computed again.
+     *
+     * @param out stream to which the labels are written. It is not closed.
+     * @throws IOException thrown if the stream cannot be written.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(graph.getIndexBound());
+        writeArray(data, outOffsets);
+        writeArray(data, outHubs);
+        writeArray(data, outDists);
+        writeArray(data, inOffsets);
+        writeArray(data, inHubs);
+        writeArray(data, inDists);
+
+        data.flush();
+    }
+
+    /**
+     * Reads labels written by {@link #save(OutputStream)}. The graph must have the same nodes, added in the same
+     * order, as the graph the labels were computed for.
+     *
+     * @param graph graph the labels were computed for.
+     * @param in stream from which the labels are read. It is not closed.
+     * @return hub labels of the graph.
+     * @throws IOException thrown if the stream cannot be read, or if the labels do not match the graph.
+     */
+    public static <Node> HubLabels<Node> load(Graph<Node> graph, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+
+        int nodes = data.readInt();
+        if (nodes != graph.getIndexBound())
+            throw new IOException("Hub labels were computed for " + nodes + " nodes, but the graph has "
+                    + graph.getIndexBound());
+
+        int[] outOffsets = readArray(data);
+        int[] outHubs = readArray(data);
+        int[] outDists = readArray(data);
+        int[] inOffsets = readArray(data);
+        int[] inHubs = readArray(data);
+        int[] inDists = readArray(data);
+
+        if (outOffsets.length != nodes + 1 || inOffsets.length != nodes + 1
+                || outOffsets[nodes] != outHubs.length || inOffsets[nodes] != inHubs.length
+                || outHubs.length != outDists.length || inHubs.length != inDists.length)
+            throw new IOException("Malformed hub labels");
+
+        return new HubLabels<>(graph, outOffsets, outHubs, outDists, inOffsets, inHubs, inDists);
+    }
+
+    private static void writeArray(DataOutputStream data, int[] array) throws IOException {
+        data.writeInt(array.length);
+        for (int value : array)
+            data.writeInt(value);
+    }
+
+    private static int[] readArray(DataInputStream data) throws IOException {
+        int length = data.readInt();
+        if (length < 0)
+            throw new IOException("Malformed hub labels");
+
+        int[] array = new int[length];
+        for (int i = 0; i != length; ++i)
+            array[i] = data.readInt();
+        return array;
+    }
+
+    /**
+     * Computes hub labels with pruned searches. Labels grow in per-node arrays while hubs are processed, and are
+     * only flattened at the end. Hubs are identified by their rank, so entries are appended in sorted order.
+     */
+    private static class Labeler<Node> implements EdgeVisitor {
+
+        private final Graph<Node> graph;
+
+        private final int nodes;
+
+        private final int[][] outLabelHubs;
+        private final int[][] outLabelDists;
+        private final int[] outLabelSize;
+
+        private final int[][] inLabelHubs;
+        private final int[][] inLabelDists;
+        private final int[] inLabelSize;
+
+        /**
+         * Distances of the label of the current hub, indexed by hub rank, or Integer.MAX_VALUE for absent hubs.
+         */
+        private final int[] hubDists;
+
+        /**
+         * Scratch space of the pruned searches, tagged with the stamp of the search that wrote it.
+         */
+        private final int[] dist;
+        private final int[] reachedStamp;
+        private final int[] settledStamp;
+        private final IndexedHeap heap = new IndexedHeap();
+        private int stamp = 0;
+
+        /**
+         * Node whose edges are being relaxed, and its distance.
+         */
+        private int curDist;
+
+        Labeler(Graph<Node> graph) {
+            this.graph = graph;
+            this.nodes = graph.getIndexBound();
+
+            outLabelHubs = new int[nodes][2];
+            outLabelDists = new int[nodes][2];
+            outLabelSize = new int[nodes];
+            inLabelHubs = new int[nodes][2];
+            inLabelDists = new int[nodes][2];
+            inLabelSize = new int[nodes];
+
+            hubDists = new int[nodes];
+            Arrays.fill(hubDists, Integer.MAX_VALUE);
+
+            dist = new int[nodes];
+            reachedStamp = new int[nodes];
+            settledStamp = new int[nodes];
+            heap.ensureCapacity(nodes);
+        }
+
+        /**
+         * Processes every node as a hub, in order of decreasing degree.
+         *
+         * @return resulting hub labels.
+         */
+        HubLabels<Node> label() {
+            // Count the edges of each node, which rank the nodes as hubs
+            int[] degree = new int[nodes];
+            for (int v = 0; v != nodes; ++v) {
+                final int srcIndex = v;
+                graph.forEachEdgeFrom(v, (desIndex, weight) -> {
+                    ++degree[srcIndex];
+                    ++degree[desIndex];
+                });
+            }
+
+            Integer[] order = new Integer[nodes];
+            for (int v = 0; v != nodes; ++v)
+                order[v] = v;
+            Arrays.sort(order, (a, b) -> degree[a] != degree[b] ? degree[b] - degree[a] : a - b);
+
+            for (int rank = 0; rank != nodes; ++rank) {
+                int hub = order[rank];
+
+                // Forward search: the hub reaches the nodes it settles, whose in-labels it joins
+                setHubDists(outLabelHubs[hub], outLabelDists[hub], outLabelSize[hub]);
+                search(hub, rank, false);
+                clearHubDists(outLabelHubs[hub], outLabelSize[hub]);
+
+                // Backward search: the nodes it settles reach the hub, whose out-labels it joins
+                setHubDists(inLabelHubs[hub], inLabelDists[hub], inLabelSize[hub]);
+                search(hub, rank, true);
+                clearHubDists(inLabelHubs[hub], inLabelSize[hub]);
+            }
+
+            return new HubLabels<>(graph,
+                    flattenOffsets(outLabelSize),
+                    flatten(outLabelHubs, outLabelSize),
+                    flatten(outLabelDists, outLabelSize),
+                    flattenOffsets(inLabelSize),
+                    flatten(inLabelHubs, inLabelSize),
+                    flatten(inLabelDists, inLabelSize));
+        }
+
+        /**
+         * Runs a pruned Dijkstra search from a hub. A settled node whose distance is already given by the labels
+         * is neither labeled nor expanded.
+         *
+         * @param hub index of the hub.
+         * @param rank rank of the hub.
+         * @param backward if true, edges are followed against their direction.
+         */
+        private void search(int hub, int rank, boolean backward) {
+            ++stamp;
+            heap.clear();
+            reachedStamp[hub] = stamp;
+            dist[hub] = 0;
+            heap.insertOrDecrease(hub, 0);
+
+            while (!heap.isEmpty()) {
+                int v = heap.poll();
+                settledStamp[v] = stamp;
+                curDist = dist[v];
+
+                if (backward) {
+                    if (queryHubDists(outLabelHubs[v], outLabelDists[v], outLabelSize[v]) <= curDist)
+                        continue;
+                    addEntry(v, rank, curDist, true);
+                    graph.forEachEdgeTo(v, this);
+                } else {
+                    if (queryHubDists(inLabelHubs[v], inLabelDists[v], inLabelSize[v]) <= curDist)
+                        continue;
+                    addEntry(v, rank, curDist, false);
+                    graph.forEachEdgeFrom(v, this);
+                }
+            }
+        }
+
+        /**
+         * Relaxes an edge of the node being settled.
+         */
+        @Override
+        public void visit(int desIndex, int weight) {
+            if (settledStamp[desIndex] == stamp)
+                return;
+
+            int newDist = curDist + weight;
+
+            if (reachedStamp[desIndex] != stamp || newDist < dist[desIndex]) {
+                reachedStamp[desIndex] = stamp;
+                dist[desIndex] = newDist;
+                heap.insertOrDecrease(desIndex, newDist);
+            }
+        }
+
+        /**
+         *
+         * @return smallest distance through a hub of the given label and of the label of the current hub.
+         */
+        private long queryHubDists(int[] hubs, int[] dists, int size) {
+            long best = Long.MAX_VALUE;
+            for (int k = 0; k != size; ++k)
+                if (hubDists[hubs[k]] != Integer.MAX_VALUE)
+                    best = Math.min(best, (long) hubDists[hubs[k]] + dists[k]);
+            return best;
+        }
+
+        private void setHubDists(int[] hubs, int[] dists, int size) {
+            for (int k = 0; k != size; ++k)
+                hubDists[hubs[k]] = dists[k];
+        }
+
+        private void clearHubDists(int[] hubs, int size) {
+            for (int k = 0; k != size; ++k)
+                hubDists[hubs[k]] = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Appends an entry to the out-label or in-label of a node.
+         */
+        private void addEntry(int v, int rank, int distance, boolean outLabel) {
+            int[][] hubs = outLabel ? outLabelHubs : inLabelHubs;
+            int[][] dists = outLabel ? outLabelDists : inLabelDists;
+            int[] sizes = outLabel ? outLabelSize : inLabelSize;
+
+            if (sizes[v] == hubs[v].length) {
+                hubs[v] = Arrays.copyOf(hubs[v], 2 * sizes[v]);
+                dists[v] = Arrays.copyOf(dists[v], 2 * sizes[v]);
+            }
+            hubs[v][sizes[v]] = rank;
+            dists[v][sizes[v]] = distance;
+            ++sizes[v];
+        }
+
+        private static int[] flattenOffsets(int[] sizes) {
+            int[] offsets = new int[sizes.length + 1];
+            for (int v = 0; v != sizes.length; ++v)
+                offsets[v + 1] = offsets[v] + sizes[v];
+            return offsets;
+        }
+
+        private static int[] flatten(int[][] arrays, int[] sizes) {
+            int total = 0;
+            for (int size : sizes)
+                total += size;
+
+            int[] flat = new int[total];
+            int position = 0;
+            for (int v = 0; v != arrays.length; ++v) {
+                System.arraycopy(arrays[v], 0, flat, position, sizes[v]);
+                position += sizes[v];
+            }
+            return flat;
+        }
+    }
+}
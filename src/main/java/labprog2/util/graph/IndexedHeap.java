@@ -0,0 +1,177 @@
+package labprog2.util.graph;
+
+import java.util.Arrays;
+
+/**
+ * Implements a d-ary min-heap of integer ids (node indexes) keyed by integer priorities. Each id may be present at
+ * most once, and its position is tracked so that its key can be decreased in place instead of inserting a duplicate.
+ * All storage is kept in primitive arrays that are reused between searches.
+ */
+final class IndexedHeap {
+
+    /**
+     * Number of children of each entry. A 4-ary heap is shallower than a binary heap and its children share
+     * cache lines, which makes sifting down cheaper.
+     */
+    private static final int ARITY = 4;
+
+    /**
+     * Ids in heap order.
+     */
+    private int[] heap = new int[0];
+
+    /**
+     * Key of each id, indexed by id.
+     */
+    private int[] keys = new int[0];
+
+    /**
+     * Position of each id in the heap array, indexed by id, or -1 if the id is not in the heap.
+     */
+    private int[] positions = new int[0];
+
+    private int size = 0;
+
+    /**
+     * Makes room for the ids between 0 and capacity - 1, inclusive.
+     *
+     * @param capacity number of ids that may be stored.
+     */
+    void ensureCapacity(int capacity) {
+        if (capacity <= positions.length)
+            return;
+
+        int oldCapacity = positions.length;
+
+        heap = Arrays.copyOf(heap, capacity);
+        keys = Arrays.copyOf(keys, capacity);
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldCapacity, capacity, -1);
+    }
+
+    /**
+     * Removes all ids from the heap. Takes time proportional to the number of ids still in it.
+     */
+    void clear() {
+        for (int i = 0; i != size; ++i)
+            positions[heap[i]] = -1;
+        size = 0;
+    }
+
+    /**
+     *
+     * @return true if there are no ids in the heap, false otherwise.
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Inserts an id with the given key or, if it is already present with a greater key, decreases its key.
+     *
+     * @param id id to be inserted or updated.
+     * @param key new key of the id.
+     */
+    void insertOrDecrease(int id, int key) {
+        int position = positions[id];
+
+        if (position == -1) {
+            position = size++;
+        } else if (key >= keys[id]) {
+            return;
+        }
+
+        keys[id] = key;
+        siftUp(id, position);
+    }
+
+    /**
+     *
+     * @return id with the smallest key. Must not be called on an empty heap.
+     */
+    int peek() {
+        return heap[0];
+    }
+
+    /**
+     *
+     * @return key of the id with the smallest key. Must not be called on an empty heap.
+     */
+    int peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * Removes the id with the smallest key from the heap.
+     *
+     * @return removed id. Must not be called on an empty heap.
+     */
+    int poll() {
+        int min = heap[0];
+        positions[min] = -1;
+
+        int last = heap[--size];
+        if (size != 0)
+            siftDown(last, 0);
+
+        return min;
+    }
+
+    /**
+     * Moves an id up from the given position until its parent has a smaller or equal key.
+     */
+    private void siftUp(int id, int position) {
+        int key = keys[id];
+
+        while (position != 0) {
+            int parentPosition = (position - 1) / ARITY;
+            int parent = heap[parentPosition];
+
+            if (keys[parent] <= key)
+                break;
+
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    /**
+     * Moves an id down from the given position until all its children have greater or equal keys.
+     */
+    private void siftDown(int id, int position) {
+        int key = keys[id];
+
+        while (true) {
+            int firstChild = position * ARITY + 1;
+            if (firstChild >= size)
+                break;
+
+            // Find the child with the smallest key
+            int lastChild = Math.min(firstChild + ARITY, size);
+            int minPosition = firstChild;
+            int minKey = keys[heap[firstChild]];
+            for (int child = firstChild + 1; child < lastChild; ++child) {
+                int childKey = keys[heap[child]];
+                if (childKey < minKey) {
+                    minKey = childKey;
+                    minPosition = child;
+                }
+            }
+
+            if (key <= minKey)
+                break;
+
+            int minId = heap[minPosition];
+            heap[position] = minId;
+            positions[minId] = position;
+            position = minPosition;
+        }
+
+        heap[position] = id;
+        positions[id] = position;
+    }
+}
@@ -0,0 +1,254 @@
+package labprog2.util.graph;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Answers shortest path queries with A* search guided by landmarks (ALT). The shortest distances from and to a few
+ * landmark nodes are precomputed, and by the triangle inequality the cost from a node v to a destiny node t is at
+ * least d(L, t) - d(L, v) and at least d(v, L) - d(t, L) for every landmark L. Unlike a geometric estimate, these
+ * bounds follow the actual weights of the graph, whatever they represent.
+ * <p>
+ * The tables are indexed by the node indexes of the graph. They remain valid while no edge weight decreases and
+ * no edge is added, and may be saved and loaded again for a graph with the same nodes added in the same order.
+ */
+public class Landmarks<Node> implements PathFinder<Node>, Heuristic<Node> {
+
+    private final Graph<Node> graph;
+
+    /**
+     * Indexes of the landmark nodes.
+     */
+    private final int[] landmarks;
+
+    /**
+     * Shortest distance from each landmark to each node, or Integer.MAX_VALUE if the node is not reachable.
+     */
+    private final int[][] fromLandmark;
+
+    /**
+     * Shortest distance from each node to each landmark, or Integer.MAX_VALUE if the landmark is not reachable.
+     */
+    private final int[][] toLandmark;
+
+    private Landmarks(Graph<Node> graph, int[] landmarks, int[][] fromLandmark, int[][] toLandmark) {
+        this.graph = graph;
+        this.landmarks = landmarks;
+        this.fromLandmark = fromLandmark;
+        this.toLandmark = toLandmark;
+    }
+
+    /**
+     * Selects landmarks and computes their distance tables. Landmarks are selected one at a time as the node
+     * farthest from those already selected, which places them at the borders of the graph, where their bounds are
+     * tightest.
+     *
+     * @param graph graph to be preprocessed.
+     * @param count number of landmarks, limited to the number of nodes of the graph.
+     * @return landmark tables of the graph.
+     */
+    public static <Node> Landmarks<Node> build(Graph<Node> graph, int count) {
+        int nodes = graph.getIndexBound();
+        count = Math.max(0, Math.min(count, nodes));
+
+        int[] landmarks = new int[count];
+        int[][] fromLandmark = new int[count][];
+        int[][] toLandmark = new int[count][];
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+
+        // Smallest distance from the selected landmarks to each node, starting with the distances from node 0
+        int[] minDist = new int[nodes];
+        if (nodes != 0) {
+            engine.run(graph, 0);
+            for (int v = 0; v != nodes; ++v)
+                minDist[v] = engine.getDistance(v);
+            engine.finish();
+        }
+
+        for (int k = 0; k != count; ++k) {
+            // Select the reachable node farthest from the selected landmarks, or any other node if there is none
+            int landmark = -1;
+            for (int v = 0; v != nodes; ++v) {
+                if (minDist[v] == -1)
+                    continue;
+                if (landmark == -1 || isFarther(minDist[v], minDist[landmark]))
+                    landmark = v;
+            }
+            landmarks[k] = landmark;
+
+            fromLandmark[k] = computeDistances(graph, landmark, false);
+            toLandmark[k] = computeDistances(graph, landmark, true);
+
+            minDist[landmark] = -1; // mark the node as selected
+            for (int v = 0; v != nodes; ++v)
+                if (minDist[v] != -1 && fromLandmark[k][v] != Integer.MAX_VALUE)
+                    minDist[v] = minDist[v] == Integer.MAX_VALUE ?
+                            fromLandmark[k][v] : Math.min(minDist[v], fromLandmark[k][v]);
+        }
+
+        return new Landmarks<>(graph, landmarks, fromLandmark, toLandmark);
+    }
+
+    /**
+     * Compares two distances from the selected landmarks, preferring any finite distance to an unreachable node.
+     */
+    private static boolean isFarther(int dist, int otherDist) {
+        return dist != Integer.MAX_VALUE && (otherDist == Integer.MAX_VALUE || dist > otherDist);
+    }
+
+    /**
+     * Computes the shortest distances from a node to all nodes, or from all nodes to it.
+     *
+     * @param graph graph to be searched.
+     * @param index index of the node.
+     * @param backward if true, computes the distances to the node by following edges against their direction.
+     * @return distance of each node, Integer.MAX_VALUE for the unreachable ones.
+     */
+    private static int[] computeDistances(Graph<?> graph, int index, boolean backward) {
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+
+        engine.start(graph, index, backward, null);
+        while (engine.hasNext())
+            engine.settleNext();
+        engine.finish();
+
+        int[] dist = new int[graph.getIndexBound()];
+        for (int v = 0; v != dist.length; ++v)
+            dist[v] = engine.getDistance(v);
+        return dist;
+    }
+
+    /**
+     * Returns the shortest path between two nodes. Implemented with A* search, with the greatest landmark bound as
+     * estimate of the remaining cost.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int srcIndex = graph.getNodeIndex(srcNode);
+        int desIndex = graph.getNodeIndex(desNode);
+
+        ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+        engine.run(graph, srcIndex, desIndex, Integer.MAX_VALUE, index -> getLowerBound(index, desIndex));
+
+        return engine.getPath(graph, desIndex);
+    }
+
+    /**
+     * Estimates the cost of the shortest path between two nodes with the landmark bounds, so that the landmarks may
+     * also guide the A* search of the graph itself. Nodes that are not present are estimated as zero.
+     *
+     * @param node node from which the cost is estimated.
+     * @param desNode destiny node of the search.
+     * @return lower bound for the cost of the shortest path from node to desNode.
+     */
+    @Override
+    public int estimate(Node node, Node desNode) {
+        try {
+            return getLowerBound(graph.getNodeIndex(node), graph.getNodeIndex(desNode));
+        } catch (NodeNotPresentException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Computes the greatest lower bound given by the landmarks for the cost from a node to another. Landmarks that
+     * do not reach, or are not reached by, either node give no bound.
+     *
+     * @param index index of the node from which the cost is estimated.
+     * @param desIndex index of the destiny node.
+     * @return lower bound for the cost of the shortest path.
+     */
+    private int getLowerBound(int index, int desIndex) {
+        int bound = 0;
+
+        for (int k = 0; k != landmarks.length; ++k) {
+            int[] from = fromLandmark[k];
+            if (from[index] != Integer.MAX_VALUE && from[desIndex] != Integer.MAX_VALUE)
+                bound = Math.max(bound, from[desIndex] - from[index]);
+
+            int[] to = toLandmark[k];
+            if (to[index] != Integer.MAX_VALUE && to[desIndex] != Integer.MAX_VALUE)
+                bound = Math.max(bound, to[index] - to[desIndex]);
+        }
+
+        return bound;
+    }
+
+    /**
+     *
+     * @return number of landmarks.
+     */
+    public int getLandmarkCount() {
+        return landmarks.length;
+    }
+
+    /**
+     * Writes the landmark tables to a stream, so that they may be loaded instead of computed again.
+     *
+     * @param out stream to which the tables are written. It is not closed.
+     * @throws IOException thrown if the stream cannot be written.
+     */
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+
+        data.writeInt(graph.getIndexBound());
+        data.writeInt(landmarks.length);
+
+        for (int k = 0; k != landmarks.length; ++k) {
+            data.writeInt(landmarks[k]);
+            for (int dist : fromLandmark[k])
+                data.writeInt(dist);
+            for (int dist : toLandmark[k])
+                data.writeInt(dist);
+        }
+
+        data.flush();
+    }
+
+    /**
+     * Reads landmark tables written by {@link #save(OutputStream)}. The graph must have the same nodes, added in
+     * the same order, as the graph the tables were computed for.
+     *
+     * @param graph graph the tables were computed for.
+     * @param in stream from which the tables are read. It is not closed.
+     * @return landmark tables of the graph.
+     * @throws IOException thrown if the stream cannot be read, or if the tables do not match the graph.
+     */
+    public static <Node> Landmarks<Node> load(Graph<Node> graph, InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+
+        int nodes = data.readInt();
+        if (nodes != graph.getIndexBound())
+            throw new IOException("Landmark tables were computed for " + nodes + " nodes, but the graph has "
+                    + graph.getIndexBound());
+
+        int count = data.readInt();
+        if (count < 0 || count > nodes)
+            throw new IOException("Invalid number of landmarks: " + count);
+
+        int[] landmarks = new int[count];
+        int[][] fromLandmark = new int[count][nodes];
+        int[][] toLandmark = new int[count][nodes];
+
+        for (int k = 0; k != count; ++k) {
+            landmarks[k] = data.readInt();
+            for (int v = 0; v != nodes; ++v)
+                fromLandmark[k][v] = data.readInt();
+            for (int v = 0; v != nodes; ++v)
+                toLandmark[k][v] = data.readInt();
+        }
+
+        return new Landmarks<>(graph, landmarks, fromLandmark, toLandmark);
+    }
+}
@@ -0,0 +1,554 @@
+package labprog2.util.graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Implements a read-only directional weighted graph whose edges are stored in a memory-mapped file, in compressed
+ * sparse rows. The arrays of the graph live outside the heap, in pages of the file that the operating system loads
+ * as they are read and may share between every process that maps the same file, and the garbage collector never
+ * scans them. Only the node objects and their mapping to indexes are kept on the heap.
+ * <p>
+ * The file is written by {@link #write(Path, Graph)} from any graph, and is made of, as little-endian ints:
+ * <ul>
+ *     <li> magic number, format version, number of nodes n and number of edges m </li>
+ *     <li> offsets of the outgoing edges of each node (n + 1 ints), then the destiny (m ints) and the weight
+ *     (m ints) of each outgoing edge, sorted by destiny within each row </li>
+ *     <li> offsets of the incoming edges of each node (n + 1 ints), then the source (m ints) and the weight
+ *     (m ints) of each incoming edge </li>
+ * </ul>
+ * Each array is mapped on its own, and a mapping cannot exceed 2 GB, so a graph may have up to 2^29 - 1 edges
+ * and one node fewer. Reads of a mapped buffer at absolute positions do not change it, so the graph may be searched
+ * by any number of threads.
+ */
+public class MappedGraph<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Identifies mapped graph files: "MGRF" in ASCII.
+     */
+    private static final int MAGIC = 0x4D475246;
+
+    private static final int FORMAT_VERSION = 1;
+
+    /**
+     * Number of ints before the arrays.
+     */
+    private static final int HEADER_INTS = 4;
+
+    /**
+     * Number of ints written at once by the writer.
+     */
+    private static final int CHUNK_INTS = 16384;
+
+    /**
+     * Largest number of ints of an array, so that its mapping does not exceed the 2 GB a buffer can hold.
+     */
+    private static final int MAX_ARRAY_INTS = Integer.MAX_VALUE / 4;
+
+    /**
+     * Mapped arrays of the outgoing edges, as in {@link CsrGraph}.
+     */
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+
+    /**
+     * Mapped arrays of the incoming edges: offsets of the edges into each node, and the source and weight of each.
+     */
+    private final IntBuffer inOffsets;
+    private final IntBuffer sources;
+    private final IntBuffer inWeights;
+
+    /**
+     * Maps each node to its index (its position in the list the graph was opened with) and back.
+     */
+    private final NodeIndex<Node> nodeIndex;
+
+    private MappedGraph(NodeIndex<Node> nodeIndex, IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+                        IntBuffer inOffsets, IntBuffer sources, IntBuffer inWeights) {
+        this.nodeIndex = nodeIndex;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.sources = sources;
+        this.inWeights = inWeights;
+    }
+
+    /**
+     * Maps a graph file into memory. The file must not be changed while it is mapped.
+     *
+     * @param file path of a file written by {@link #write(Path, Graph)}.
+     * @param nodes nodes of the graph, in the order returned by the writer.
+     * @param <Node> type of the nodes.
+     * @return graph whose edges are read from the file.
+     * @throws IOException thrown if the file could not be mapped or is not a graph file.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in the list.
+     * @throws IllegalArgumentException thrown if the number of nodes differs from that of the file.
+     */
+    public static <Node> MappedGraph<Node> open(Path file, List<Node> nodes)
+            throws IOException, NodeAlreadyPresentException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            IntBuffer header = map(channel, 0, HEADER_INTS);
+            if (header.get(0) != MAGIC || header.get(1) != FORMAT_VERSION)
+                throw new IOException("Not a mapped graph file of version " + FORMAT_VERSION + ": " + file);
+
+            int nodeCount = header.get(2);
+            int edgeCount = header.get(3);
+            if (nodeCount != nodes.size())
+                throw new IllegalArgumentException("Graph file has " + nodeCount + " nodes, not " + nodes.size());
+            if (nodeCount < 0 || nodeCount >= MAX_ARRAY_INTS || edgeCount < 0 || edgeCount > MAX_ARRAY_INTS)
+                throw new IOException("Graph file has arrays too large to be mapped: " + file);
+            long expectedSize = 4L * (HEADER_INTS + 2 * (nodeCount + 1) + 4L * edgeCount);
+            if (channel.size() != expectedSize)
+                throw new IOException("Graph file is truncated or too long: " + file);
+
+            NodeIndex<Node> nodeIndex = new NodeIndex<>(nodes.size());
+            for (Node node : nodes)
+                nodeIndex.add(node);
+
+            // Map the arrays one after the other
+            long position = 4L * HEADER_INTS;
+            IntBuffer offsets = map(channel, position, nodeCount + 1);
+            position += 4L * (nodeCount + 1);
+            IntBuffer targets = map(channel, position, edgeCount);
+            position += 4L * edgeCount;
+            IntBuffer weights = map(channel, position, edgeCount);
+            position += 4L * edgeCount;
+            IntBuffer inOffsets = map(channel, position, nodeCount + 1);
+            position += 4L * (nodeCount + 1);
+            IntBuffer sources = map(channel, position, edgeCount);
+            position += 4L * edgeCount;
+            IntBuffer inWeights = map(channel, position, edgeCount);
+
+            return new MappedGraph<>(nodeIndex, offsets, targets, weights, inOffsets, sources, inWeights);
+        }
+    }
+
+    /**
+     * Maps an array of ints of a file. The mapping stays valid after the channel is closed.
+     */
+    private static IntBuffer map(FileChannel channel, long position, int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * length).order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+    }
+
+    /**
+     * Writes a graph to a file that can be mapped by {@link #open(Path, List)}. The nodes are numbered in the order
+     * of their indexes, skipping the holes left by removed nodes. The edges are written a row at a time, so no array
+     * of all the edges is built on the heap. The file is written under a temporary name and then renamed, so a graph
+     * already mapped from it keeps its pages and a failed write never leaves a partial file behind.
+     *
+     * @param file path of the file, which is replaced if it exists.
+     * @param graph graph to be written.
+     * @param <Node> type of the nodes.
+     * @return nodes of the graph, in the order the file numbers them.
+     * @throws IOException thrown if the file could not be written.
+     * @throws IllegalArgumentException thrown if the graph has more nodes or edges than can be mapped.
+     */
+    public static <Node> List<Node> write(Path file, Graph<Node> graph) throws IOException {
+        List<Node> nodes = new ArrayList<>(graph.getNodes());
+        if (nodes.size() >= MAX_ARRAY_INTS)
+            throw new IllegalArgumentException("Graph has too many nodes to be mapped: " + nodes.size());
+
+        // Number the nodes by their positions in the list, and count the edges out of and into each node
+        int[] graphIndexes = new int[nodes.size()];
+        int[] positions = new int[graph.getIndexBound()];
+        try {
+            for (int i = 0; i != nodes.size(); ++i) {
+                graphIndexes[i] = graph.getNodeIndex(nodes.get(i));
+                positions[graphIndexes[i]] = i;
+            }
+        } catch (NodeNotPresentException e) {
+            // This will never be reached, as the nodes come from the graph
+            throw new RuntimeException(e);
+        }
+
+        int[] outDegrees = new int[nodes.size()];
+        int[] inDegrees = new int[nodes.size()];
+        long edgeCount = 0;
+        for (int i = 0; i != nodes.size(); ++i) {
+            int[] degree = { 0 };
+            graph.forEachEdgeFrom(graphIndexes[i], (desIndex, weight) -> {
+                ++degree[0];
+                ++inDegrees[positions[desIndex]];
+            });
+            outDegrees[i] = degree[0];
+            edgeCount += degree[0];
+        }
+        if (edgeCount > MAX_ARRAY_INTS)
+            throw new IllegalArgumentException("Graph has too many edges to be mapped: " + edgeCount);
+
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                IntWriter out = new IntWriter(channel);
+                out.write(MAGIC);
+                out.write(FORMAT_VERSION);
+                out.write(nodes.size());
+                out.write((int) edgeCount);
+
+                // Outgoing edges: offsets, destinies, weights
+                writeOffsets(out, outDegrees);
+                for (boolean ends : new boolean[] { true, false }) {
+                    for (int i = 0; i != nodes.size(); ++i) {
+                        long[] row = readRow(graph, graphIndexes[i], positions, outDegrees[i], true);
+                        for (long edge : row)
+                            out.write(ends ? (int) (edge >>> 32) : (int) edge);
+                    }
+                }
+
+                // Incoming edges: offsets, sources, weights
+                writeOffsets(out, inDegrees);
+                for (boolean ends : new boolean[] { true, false }) {
+                    for (int j = 0; j != nodes.size(); ++j) {
+                        long[] row = readRow(graph, graphIndexes[j], positions, inDegrees[j], false);
+                        for (long edge : row)
+                            out.write(ends ? (int) (edge >>> 32) : (int) edge);
+                    }
+                }
+
+                out.flush();
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+
+        return nodes;
+    }
+
+    /**
+     * Writes the offsets of rows of the given lengths.
+     */
+    private static void writeOffsets(IntWriter out, int[] degrees) throws IOException {
+        int offset = 0;
+        out.write(offset);
+        for (int degree : degrees) {
+            offset += degree;
+            out.write(offset);
+        }
+    }
+
+    /**
+     * Reads the edges out of or into a node, sorted by the position of the other node.
+     *
+     * @return position of the other node and weight of each edge, packed into a long.
+     */
+    private static long[] readRow(Graph<?> graph, int index, int[] positions, int degree, boolean outgoing) {
+        long[] row = new long[degree];
+        int[] count = { 0 };
+        EdgeVisitor visitor = (otherIndex, weight) ->
+                row[count[0]++] = (long) positions[otherIndex] << 32 | (weight & 0xFFFFFFFFL);
+        if (outgoing)
+            graph.forEachEdgeFrom(index, visitor);
+        else
+            graph.forEachEdgeTo(index, visitor);
+        Arrays.sort(row);
+        return row;
+    }
+
+    /**
+     * Writes little-endian ints to a channel through a buffer.
+     */
+    private static final class IntWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(4 * CHUNK_INTS).order(ByteOrder.LITTLE_ENDIAN);
+
+        private IntWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void write(int value) throws IOException {
+            if (!buffer.hasRemaining())
+                flush();
+            buffer.putInt(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     *
+     * @param node object to be added to the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void addNode(Node node) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     *
+     * @param edge edge to be added to the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     *
+     * @param weights weights of the edges.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     *
+     * @param node node to be removed from the graph.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public void removeNode(Node node) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     *
+     * @param srcNode source node of the edge.
+     * @param desNode destiny node of the edge.
+     * @throws UnsupportedOperationException always thrown.
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only");
+    }
+
+    /**
+     * Returns a list containing all the edges that come out of the specified node.
+     *
+     * @param srcNode source node of all the queried edges.
+     * @return List containing all the edges.
+     * @throws NodeNotPresentException thrown if the specified node is not present in the graph.
+     */
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+
+        List<Edge<Node>> edges = new ArrayList<>(offsets.get(srcIndex + 1) - offsets.get(srcIndex));
+        for (int slot = offsets.get(srcIndex); slot != offsets.get(srcIndex + 1); ++slot)
+            edges.add(new Edge<>(srcNode, getNodeAtIndex(targets.get(slot)), weights.get(slot)));
+
+        return edges;
+    }
+
+    /**
+     * Passes every edge that comes out of a node to a visitor, reading its row of the mapped arrays.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        int end = offsets.get(srcIndex + 1);
+        for (int slot = offsets.get(srcIndex); slot != end; ++slot)
+            visitor.visit(targets.get(slot), weights.get(slot));
+    }
+
+    /**
+     * Passes every edge that goes into a node to a visitor, reading its row of the mapped incoming arrays.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        int end = inOffsets.get(desIndex + 1);
+        for (int slot = inOffsets.get(desIndex); slot != end; ++slot)
+            visitor.visit(sources.get(slot), inWeights.get(slot));
+    }
+
+    /**
+     * Finds the edge slot between two nodes with a binary search over the row of the source node.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return position of the slot in the targets and weights arrays, or -1 if there is no such slot.
+     */
+    private int getSlot(int srcIndex, int desIndex) {
+        int low = offsets.get(srcIndex);
+        int high = offsets.get(srcIndex + 1) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int target = targets.get(middle);
+            if (target < desIndex)
+                low = middle + 1;
+            else if (target > desIndex)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * Verifies whether there exists an edge between two nodes in the graph.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there exists an edge, false otherwise.
+     * @throws NodeNotPresentException If either of the specified edges is not present in the graph.
+     */
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int slot = getSlot(getNodeIndex(srcNode), getNodeIndex(desNode));
+        return slot != -1 && weights.get(slot) != 0;
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes of the graph.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return weight of the edge with the specified endpoints.
+     * @throws EdgeNotPresentException thrown if there is no edge between such nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
+     */
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        int slot = getSlot(getNodeIndex(srcNode), getNodeIndex(desNode));
+
+        if (slot == -1 || weights.get(slot) == 0)
+            throw new EdgeNotPresentException(srcNode, desNode);
+
+        return weights.get(slot);
+    }
+
+    /**
+     * The graph never changes, so it is its own copy.
+     *
+     * @return this graph.
+     */
+    @Override
+    MappedGraph<Node> copy() {
+        return this;
+    }
+
+    /**
+     * The nodes of a mapped graph have no holes between their indexes, so it is its own compacted copy.
+     *
+     * @return this graph.
+     */
+    @Override
+    MappedGraph<Node> compactCopy() {
+        return this;
+    }
+
+    /**
+     * Mapped graphs are read-only, so no edge may be added.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return false, always.
+     * @throws NodeNotPresentException If either of the specified nodes is not present in the graph.
+     */
+    @Override
+    public boolean canConnect(Node srcNode, Node desNode) throws NodeNotPresentException {
+        nodeIndex.getIndex(srcNode);
+        nodeIndex.getIndex(desNode);
+        return false;
+    }
+
+    /**
+     * Verifies the presence of a node in the graph.
+     *
+     * @param node queried node.
+     * @return true if the node is present in the graph, false otherwise.
+     */
+    @Override
+    public boolean has(Node node) {
+        return nodeIndex.contains(node);
+    }
+
+    /**
+     * Verifies if graph is empty.
+     *
+     * @return true if there are no nodes, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    @Override
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
+    }
+
+    /**
+     * Gets the index mapped to an inserted node.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
+    }
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the number of nodes - 1.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
+     */
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph, as they have no holes between their indexes.
+     */
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
+    }
+
+}
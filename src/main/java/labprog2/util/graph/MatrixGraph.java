@@ -1,55 +1,71 @@
 package labprog2.util.graph;
 
 import java.util.*;
+import java.util.stream.IntStream;
 
 import labprog2.util.graph.exceptions.EdgeNotPresentException;
-import labprog2.util.graph.exceptions.FullGraphException;
 import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
 
-import org.javatuples.Pair;
-
-public class MatrixGraph<Node> implements Graph<Node> {
+public class MatrixGraph<Node> extends AbstractGraph<Node> {
 
     /**
      * Matrix representation of the graph that stores its topology. An entry at (i, j) equal to zero
      * indicates that there is no edge between node i and j. On the other hand, a non-zero entry specifies
-     * the presence of an edge and its value represents its weight.
+     * the presence of an edge and its value represents its weight. The order of the matrix is the capacity of the
+     * graph, which doubles whenever a node is added to a full graph, so that additions take amortized linear time.
      */
-    private final int[][] graph;
+    private int[][] graph;
 
     /**
-     * Stores the current number of nodes. Must be lesser than or equal to the maximum amount of nodes.
+     * Number of non-zero entries in each row of the matrix (outgoing edges of each node) and in each column
+     * (incoming edges), which lets edge visits stop once all the edges of a node were found.
      */
-    private int curNodes;
+    private int[] outDegrees;
+    private int[] inDegrees;
 
     /**
-     * Stores the maximum amount of nodes, which is implemented as the order of the matrix that represents
-     * the graph.
+     * Maps each node to an index of the matrix (integer between 0 and the capacity - 1, inclusive) and back. The
+     * indexes of removed nodes are reused by the nodes added next; until then their rows and columns are empty.
      */
-    private final int maxNodes;
+    private final NodeIndex<Node> nodeIndex;
 
     /**
-     * Dictionary that maps a node to an index of the matrix (integer between 0 and maxNodes-1, inclusive).
+     * Implements a directional weighted graph as a matrix.
+     *
+     * @param maxNodes initial capacity of the graph (order of the matrix). The graph grows beyond it as needed.
      */
-    private final Map<Node, Integer> nodeIndexes;
+    public MatrixGraph(int maxNodes) {
+        this(new NodeIndex<>(maxNodes), new int[maxNodes][maxNodes], new int[maxNodes], new int[maxNodes]);
+    }
 
     /**
-     * Dictionary an index of the matrix (integer between 0 and maxNodes-1, inclusive) to a node.
+     * Creates a graph from its matrix and mappings.
+     *
+     * @param nodeIndex mapping between the nodes and their indexes.
+     * @param graph matrix of the graph.
+     * @param outDegrees number of non-zero entries in each row.
+     * @param inDegrees number of non-zero entries in each column.
      */
-    private final Map<Integer, Node> indexNodes;
+    private MatrixGraph(NodeIndex<Node> nodeIndex, int[][] graph, int[] outDegrees, int[] inDegrees) {
+        this.nodeIndex = nodeIndex;
+        this.graph = graph;
+        this.outDegrees = outDegrees;
+        this.inDegrees = inDegrees;
+    }
 
     /**
-     * Implements a directional weighted graph as a matrix.
+     * Creates a copy of a graph stored as a matrix, with its own matrix and mappings.
      *
-     * @param maxNodes maximum number of allowed nodes (order of the matrix).
+     * @param other graph to be copied.
      */
-    public MatrixGraph(int maxNodes) {
-        this.graph = new int[maxNodes][maxNodes];
-        this.curNodes = 0;
-        this.maxNodes = maxNodes;
-        this.nodeIndexes = new HashMap<>();
-        this.indexNodes = new HashMap<>();
+    private MatrixGraph(MatrixGraph<Node> other) {
+        this.graph = new int[other.graph.length][];
+        for (int i = 0; i != other.graph.length; ++i)
+            this.graph[i] = other.graph[i].clone();
+        this.outDegrees = other.outDegrees.clone();
+        this.inDegrees = other.inDegrees.clone();
+        this.nodeIndex = new NodeIndex<>(other.nodeIndex);
     }
 
     /**
@@ -64,13 +80,11 @@ public class MatrixGraph<Node> implements Graph<Node> {
     public MatrixGraph(List<Node> V, List<Edge<Node>> E)
             throws NodeAlreadyPresentException, NodeNotPresentException {
 
-        // Sets the maximum size of the graph (order of the matrix) to the number of nodes provided.
+        // Sets the initial capacity of the graph (order of the matrix) to the number of nodes provided.
         this(V.size());
 
-        for (Node v : V) {
-            try { addNode(v); }
-            catch (FullGraphException ignored) { /* This will not be reached, thus is ignored */ }
-        }
+        for (Node v : V)
+            addNode(v);
 
         for (Edge<Node> e : E)
             addEdge(e);
@@ -78,30 +92,104 @@ public class MatrixGraph<Node> implements Graph<Node> {
 
 
     /**
-     * Adds a node to the graph, given it is not already present nor the graph is full. Implemented by increasing
-     * the counter of the amount of current nodes and by mapping the node to an integer that represents an index
-     * of the matrix.
+     * Adds a node to the graph, given it is not already present. Implemented by mapping the node to an integer that
+     * represents an index of the matrix, preferably one freed by a removed node. If every index of the matrix is
+     * taken, the matrix is first copied into one of twice its order, so the graph is never full.
      *
      * @param node object implementing the node interface to be added to the graph.
-     * @throws FullGraphException thrown if the graph is already full, as defined by its implementation.
      * @throws NodeAlreadyPresentException thrown if the node being added is already present
      *
      * @see Node
      */
     @Override
-    public void addNode(Node node) throws FullGraphException, NodeAlreadyPresentException {
-        if (curNodes == maxNodes)
-            throw new FullGraphException(maxNodes);
+    public void addNode(Node node) throws NodeAlreadyPresentException {
+        if (nodeIndex.size() == graph.length && !nodeIndex.contains(node))
+            grow(Math.max(1, 2 * graph.length));
 
-        if (has(node))
-            throw new NodeAlreadyPresentException(node);
+        // Persist index-node relation: map node to an index of the matrix
+        nodeIndex.add(node);
+    }
 
-        // Increase counter
-        int index = curNodes++;
+    /**
+     * Sets the edges between every ordered pair of nodes at once. Implemented by writing the rows of the matrix in
+     * parallel, each row by a single task of the common fork-join pool, which also counts its out-degree. The
+     * in-degrees are counted afterwards in a single pass over the matrix.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        int bound = getIndexBound();
+
+        IntStream.range(0, bound).parallel().forEach(srcIndex -> {
+            if (!nodeIndex.hasIndex(srcIndex))
+                return;
+
+            int[] row = graph[srcIndex];
+            int degree = 0;
+            for (int desIndex = 0; desIndex != bound; ++desIndex) {
+                row[desIndex] = nodeIndex.hasIndex(desIndex) ? weights.getWeight(srcIndex, desIndex) : 0;
+                if (row[desIndex] != 0)
+                    ++degree;
+            }
+            outDegrees[srcIndex] = degree;
+        });
+
+        Arrays.fill(inDegrees, 0);
+        for (int srcIndex = 0; srcIndex != bound; ++srcIndex) {
+            int[] row = graph[srcIndex];
+            for (int desIndex = 0; desIndex != bound; ++desIndex)
+                if (row[desIndex] != 0)
+                    ++inDegrees[desIndex];
+        }
+    }
 
-        // Persist index-node relation: map node to an index of the matrix
-        nodeIndexes.put(node, index);
-        indexNodes.put(index, node);
+    /**
+     * Copies the matrix and the degrees into arrays of a greater order.
+     *
+     * @param capacity new order of the matrix.
+     */
+    private void grow(int capacity) {
+        int[][] grown = new int[capacity][];
+        for (int i = 0; i != graph.length; ++i)
+            grown[i] = Arrays.copyOf(graph[i], capacity);
+        for (int i = graph.length; i != capacity; ++i)
+            grown[i] = new int[capacity];
+
+        graph = grown;
+        outDegrees = Arrays.copyOf(outDegrees, capacity);
+        inDegrees = Arrays.copyOf(inDegrees, capacity);
+    }
+
+    /**
+     * Removes a node and its edges. Implemented by emptying the row and the column of the node, which takes time
+     * proportional to the capacity of the graph, and by freeing its index. The rest of the matrix is untouched.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    @Override
+    public void removeNode(Node node) throws NodeNotPresentException {
+        int index = getNodeIndex(node);
+
+        int[] row = graph[index];
+        for (int desIndex = 0; outDegrees[index] != 0; ++desIndex) {
+            if (row[desIndex] != 0) {
+                row[desIndex] = 0;
+                --outDegrees[index];
+                --inDegrees[desIndex];
+            }
+        }
+
+        for (int srcIndex = 0; inDegrees[index] != 0; ++srcIndex) {
+            if (graph[srcIndex][index] != 0) {
+                graph[srcIndex][index] = 0;
+                --outDegrees[srcIndex];
+                --inDegrees[index];
+            }
+        }
+
+        nodeIndex.remove(node);
     }
 
     /**
@@ -119,7 +207,19 @@ public class MatrixGraph<Node> implements Graph<Node> {
         int srcIndex = getNodeIndex(edge.getSrcNode());
         int desIndex = getNodeIndex(edge.getDesNode());
 
-        graph[srcIndex][desIndex] = edge.getWeight();
+        int oldWeight = graph[srcIndex][desIndex];
+        int newWeight = edge.getWeight();
+
+        // Keep the degrees up to date when an entry turns from zero to non-zero or vice versa
+        if (oldWeight == 0 && newWeight != 0) {
+            ++outDegrees[srcIndex];
+            ++inDegrees[desIndex];
+        } else if (oldWeight != 0 && newWeight == 0) {
+            --outDegrees[srcIndex];
+            --inDegrees[desIndex];
+        }
+
+        graph[srcIndex][desIndex] = newWeight;
     }
 
     /**
@@ -133,14 +233,15 @@ public class MatrixGraph<Node> implements Graph<Node> {
      */
     @Override
     public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
-        List<Edge<Node>> edges = new LinkedList<>();
-
         int srcIndex = getNodeIndex(srcNode);
 
-        for (int desIndex = 0; desIndex != curNodes; ++desIndex) {
-            int weight = graph[srcIndex][desIndex];
+        List<Edge<Node>> edges = new ArrayList<>(outDegrees[srcIndex]);
+
+        int[] row = graph[srcIndex];
+        for (int desIndex = 0; edges.size() != outDegrees[srcIndex]; ++desIndex) {
+            int weight = row[desIndex];
             if (weight != 0) {
-                Node desNode = indexNodes.get(desIndex);
+                Node desNode = getNodeAtIndex(desIndex);
                 edges.add(new Edge<>(srcNode, desNode, weight));
             }
         }
@@ -149,147 +250,127 @@ public class MatrixGraph<Node> implements Graph<Node> {
     }
 
     /**
-     * Returns the shortest path between two nodes within a graph. Implemented with Dijkstra's path finding algorithm.
+     * Gets the index mapped to an inserted node.
      *
-     * @param srcNode source node (starting node of the path).
-     * @param desNode destiny node (final node of the path).
-     * @return shortest path.
-     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
      */
     @Override
-    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
-        int srcIndex = getNodeIndex(srcNode);
-        int desIndex = getNodeIndex(desNode);
-
-        Pair<int[], int[]> dijkstraResults = getDijkstraResults(srcIndex);
-
-        int[] dist = dijkstraResults.getValue0();
-        int[] prev = dijkstraResults.getValue1();
-
-        Path<Node> path = new Path<>();
-
-        // Set the cost of the path as the cost to reach the destiny node
-        path.setCost(dist[desIndex]);
-
-        // If the distance to the destiny node is infinite (they are not connected)
-        if (dist[desIndex] == Integer.MAX_VALUE)
-            return path; // return empty path with infinite cost
-
-        // Construct the path from destiny to source by backtracking with the prev array
-        for (int index = desIndex; index != -1; index = prev[index])
-            path.addNode(getNodeAtIndex(index));
-
-        // Reverse the path, so it is directed from source to destiny
-        return path.reverse();
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
     }
 
     /**
-     * Gets the shortest path with at least one intermediate node between two specified nodes. Implemented
-     * with Dijkstra's path finding algorithm.
+     * Gets the node object that corresponds to an index.
      *
-     * @param srcNode source node (starting node of the path).
-     * @param desNode destiny node (final node of the path).
-     * @return shortest path with at least one intermediate node.
-     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     * @param index integer between 0 and the index bound.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
      */
     @Override
-    public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode)
-            throws NodeNotPresentException {
-
-        Path<Node> nonDirectPath;
-
-        try {
-            Edge<Node> directPathEdge = removeEdgeBetween(srcNode, desNode);
-            nonDirectPath = getShortestPath(srcNode, desNode);
-            addEdge(directPathEdge);
-        } catch (EdgeNotPresentException e) {
-            nonDirectPath = getShortestPath(srcNode, desNode);
-        }
-
-        return nonDirectPath;
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
     }
 
     /**
-     * Gets the index mapped to an inserted node.
+     * Returns one more than the greatest index ever mapped to a node, which equals the number of nodes unless
+     * indexes were freed by removed nodes.
      *
-     * @param node node currently in the graph.
-     * @return index mapped to the node.
-     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     * @return an integer greater than the index of every node in the graph.
      */
-    private int getNodeIndex(Node node) throws NodeNotPresentException {
-        if (!nodeIndexes.containsKey(node))
-            throw new NodeNotPresentException(node);
-        return nodeIndexes.get(node);
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
     }
 
     /**
-     * Gets the node object that corresponds to an index.
+     * Passes every edge that comes out of a node to a visitor. Implemented by visiting the non-zero entries (i,j)
+     * of the row i of the matrix, where i is the index of the provided node. The scan stops once as many entries
+     * as the out-degree of the node were visited, so nodes without outgoing edges cost nothing.
      *
-     * @param index integer between 0 and current amount of nodes.
-     * @return node corresponding to index.
-     * @throws NodeNotPresentException thrown if there is no such node.
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
      */
-    private Node getNodeAtIndex(int index) throws NodeNotPresentException {
-        if (index < 0 || index >= curNodes)
-            throw new NodeNotPresentException(null);
-        return indexNodes.get(index);
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        int[] row = graph[srcIndex];
+        int remaining = outDegrees[srcIndex];
+
+        for (int desIndex = 0; remaining != 0; ++desIndex) {
+            if (row[desIndex] != 0) {
+                visitor.visit(desIndex, row[desIndex]);
+                --remaining;
+            }
+        }
     }
 
     /**
-     * Applies Dijkstra's path finding algorithm to a node of the graph.
+     * Passes every edge that goes into a node to a visitor. Implemented by visiting the non-zero entries (i,j)
+     * of the column j of the matrix, where j is the index of the provided node, so the matrix serves as its own
+     * reverse adjacency structure. As with rows, the scan stops at the in-degree of the node.
      *
-     * @param srcIndex any node currently in the graph.
-     * @return A pair containing two arrays.The first array contains all the shortest distances from the specified node
-     * to all other nodes of the graph. The second array contains the previous node in the path to the nodes, which
-     * allows the reconstruction of the shortest path.
-     * @throws NodeNotPresentException thrown if the provided node is not present in the graph.
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
      */
-    private Pair<int[], int[]> getDijkstraResults(int srcIndex)
-            throws NodeNotPresentException {
-        boolean[] visitedNode = new boolean[curNodes];
-        int[] distToNode = new int[curNodes];
-        int[] prevNode = new int[curNodes];
-
-        Arrays.fill(visitedNode, false);
-        Arrays.fill(distToNode, Integer.MAX_VALUE);
-        Arrays.fill(prevNode, -1);
-
-        distToNode[srcIndex] = 0;
-
-        PriorityQueue<Pair<Integer, Integer>> pq = new PriorityQueue<>(Comparator.comparingInt(Pair::getValue1));
-
-        pq.add(new Pair<>(srcIndex, 0));
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        int remaining = inDegrees[desIndex];
 
-        while (pq.size() != 0) {
-            Pair<Integer, Integer> pair = pq.poll();
-            int index = pair.getValue0();
-            int minValue = pair.getValue1();
+        for (int srcIndex = 0; remaining != 0; ++srcIndex) {
+            int weight = graph[srcIndex][desIndex];
+            if (weight != 0) {
+                visitor.visit(srcIndex, weight);
+                --remaining;
+            }
+        }
+    }
 
-            visitedNode[index] = true;
+    /**
+     * Creates a copy of the graph. Implemented by copying every row of the matrix.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    MatrixGraph<Node> copy() {
+        return new MatrixGraph<>(this);
+    }
 
-            if (distToNode[index] < minValue)
+    /**
+     * Creates a compacted copy of the graph. Implemented by moving the entry (i,j) of the matrix to the new indexes
+     * of the nodes i and j, in a matrix whose order is the number of nodes.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    MatrixGraph<Node> compactCopy() {
+        NodeIndex<Node> compactedIndex = new NodeIndex<>(nodeIndex);
+        int[] newIndexes = compactedIndex.compact();
+
+        int nodes = compactedIndex.size();
+        int[][] compacted = new int[nodes][nodes];
+        int[] compactedOutDegrees = new int[nodes];
+        int[] compactedInDegrees = new int[nodes];
+
+        for (int i = 0; i != newIndexes.length; ++i) {
+            // Freed indexes have empty rows and columns, so only the rows of nodes hold entries
+            if (newIndexes[i] == -1)
                 continue;
 
-            List<Edge<Node>> edges = getEdgesFrom(getNodeAtIndex(index));
-
-            for (Edge<Node> edge : edges) {
-                int desIndex = getNodeIndex(edge.getDesNode());
-
-                if (visitedNode[desIndex])
-                    continue;
-
-                int newDist = distToNode[index] + edge.getWeight();
-
-                if (newDist < distToNode[desIndex]) {
-                    prevNode[desIndex] = index;
-                    distToNode[desIndex] = newDist;
-                    pq.add(new Pair<>(desIndex, newDist));
+            int[] row = graph[i];
+            int[] compactedRow = compacted[newIndexes[i]];
+            for (int j = 0, remaining = outDegrees[i]; remaining != 0; ++j) {
+                if (row[j] != 0) {
+                    compactedRow[newIndexes[j]] = row[j];
+                    --remaining;
                 }
-
             }
 
+            compactedOutDegrees[newIndexes[i]] = outDegrees[i];
+            compactedInDegrees[newIndexes[i]] = inDegrees[i];
         }
-        return new Pair<>(distToNode, prevNode);
+
+        return new MatrixGraph<>(compactedIndex, compacted, compactedOutDegrees, compactedInDegrees);
     }
 
     /**
@@ -316,35 +397,35 @@ public class MatrixGraph<Node> implements Graph<Node> {
      */
     @Override
     public boolean has(Node node) {
-        return nodeIndexes.containsKey(node);
+        return nodeIndex.contains(node);
     }
 
     /**
-     * Verifies the presence of an edge in the graph.
+     * Verifies if graph is empty.
      *
-     * @param edge queried edge.
-     * @return true if the edge is present, false otherwise.
-     * @throws NodeNotPresentException if either of the provided edge endpoints (nodes) is not present in the graph.
+     * @return true if there are no nodes, false otherwise.
      */
     @Override
-    public boolean has(Edge<Node> edge) throws NodeNotPresentException {
-        Node srcNode = edge.getSrcNode();
-        Node desNode = edge.getDesNode();
-        try {
-            return connects(srcNode, desNode) && getWeightBetween(srcNode, desNode) == edge.getWeight();
-        } catch (EdgeNotPresentException e) {
-            return  false;
-        }
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
     }
 
     /**
-     * Verifies if graph is empty.
      *
-     * @return true if there are no nodes, false otherwise.
+     * @return number of nodes in the graph.
      */
     @Override
-    public boolean isEmpty() {
-        return curNodes == 0;
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
     }
 
     /**
@@ -360,7 +441,12 @@ public class MatrixGraph<Node> implements Graph<Node> {
     public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
         Edge<Node> edge = getEdgeBetween(srcNode, desNode);
 
-        graph[getNodeIndex(edge.getSrcNode())][getNodeIndex(edge.getDesNode())] = 0;
+        int srcIndex = getNodeIndex(edge.getSrcNode());
+        int desIndex = getNodeIndex(edge.getDesNode());
+
+        graph[srcIndex][desIndex] = 0;
+        --outDegrees[srcIndex];
+        --inDegrees[desIndex];
 
         return edge;
     }
@@ -385,21 +471,4 @@ public class MatrixGraph<Node> implements Graph<Node> {
         return graph[srcIndex][desIndex];
     }
 
-    /**
-     * Retrieves the edge between two nodes in the graph, if it exists.
-     *
-     * @param srcNode source node of the queried edge.
-     * @param desNode destiny node of the queried edge.
-     * @return returns the edge between the specified nodes.
-     * @throws NodeNotPresentException thrown if either of the nodes is not present.
-     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes.
-     */
-    @Override
-    public Edge<Node> getEdgeBetween(Node srcNode, Node desNode) throws NodeNotPresentException, EdgeNotPresentException {
-
-        int weight = getWeightBetween(srcNode, desNode);
-
-        return new Edge<>(srcNode, desNode, weight);
-    }
-
 }
@@ -0,0 +1,293 @@
+package labprog2.util.graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Maps the nodes of a graph to dense integer indexes, in the order they are added. Indexes are mapped back to
+ * nodes by a plain array, and nodes to indexes by an open addressing hash table with linear probing whose values
+ * are primitive ints, so neither direction boxes an index and each lookup hashes the node once.
+ * <p>
+ * Removing a node frees its index, which is given to the next node added. Until then the index is a hole: it is
+ * below the index bound but mapped to no node. {@link #compact()} renumbers the nodes so that there are no holes.
+ */
+public final class NodeIndex<Node> {
+
+    /**
+     * Smallest capacity of the hash table, which must be a power of two.
+     */
+    private static final int MIN_CAPACITY = 16;
+
+    /**
+     * Node mapped to each index.
+     */
+    private Object[] nodes;
+
+    private int size = 0;
+
+    /**
+     * Number of indexes ever given out, i.e., one more than the greatest index that was mapped to a node.
+     */
+    private int bound = 0;
+
+    /**
+     * Stack of the indexes freed by removed nodes, which are reused before new indexes are given out.
+     */
+    private int[] freeIndexes = new int[0];
+    private int freeCount = 0;
+
+    /**
+     * Hash table of nodes (null for a free slot) and the index of the node in each slot. The table is kept at most
+     * half full, so probe sequences stay short.
+     */
+    private Object[] keys;
+    private int[] values;
+
+    /**
+     * Creates an empty index.
+     *
+     * @param expectedSize number of nodes expected to be added, so that the arrays need not grow.
+     */
+    public NodeIndex(int expectedSize) {
+        this.nodes = new Object[Math.max(expectedSize, 1)];
+
+        int capacity = MIN_CAPACITY;
+        while (capacity < 2 * expectedSize)
+            capacity *= 2;
+        this.keys = new Object[capacity];
+        this.values = new int[capacity];
+    }
+
+    /**
+     * Creates a copy of an index, which may be changed independently.
+     *
+     * @param other index to be copied.
+     */
+    public NodeIndex(NodeIndex<Node> other) {
+        this.nodes = other.nodes.clone();
+        this.size = other.size;
+        this.bound = other.bound;
+        this.freeIndexes = other.freeIndexes.clone();
+        this.freeCount = other.freeCount;
+        this.keys = other.keys.clone();
+        this.values = other.values.clone();
+    }
+
+    /**
+     * Maps a node to the most recently freed index or, if there is none, to the next index.
+     *
+     * @param node node to be added. Must not be null.
+     * @return index of the node.
+     * @throws NodeAlreadyPresentException thrown if the node was already added.
+     */
+    public int add(Node node) throws NodeAlreadyPresentException {
+        if (indexOf(node) != -1)
+            throw new NodeAlreadyPresentException(node);
+
+        if (freeCount == 0 && bound == nodes.length)
+            nodes = Arrays.copyOf(nodes, 2 * bound);
+        if (2 * (size + 1) > keys.length)
+            rehash(2 * keys.length);
+
+        int index = freeCount != 0 ? freeIndexes[--freeCount] : bound++;
+        nodes[index] = node;
+        ++size;
+        insert(node, index);
+        return index;
+    }
+
+    /**
+     * Removes a node, freeing its index. Implemented by backward shift deletion: the nodes that follow the removed
+     * one in its probe sequence are moved back, so the table needs no tombstones and lookups stay as short as if
+     * the node had never been added.
+     *
+     * @param node node to be removed.
+     * @return index that was mapped to the node.
+     * @throws NodeNotPresentException thrown if the node was not added.
+     */
+    public int remove(Node node) throws NodeNotPresentException {
+        if (node == null)
+            throw new NodeNotPresentException(null);
+
+        int mask = keys.length - 1;
+        int slot = hash(node) & mask;
+        while (keys[slot] != null && !keys[slot].equals(node))
+            slot = (slot + 1) & mask;
+        if (keys[slot] == null)
+            throw new NodeNotPresentException(node);
+
+        int index = values[slot];
+
+        // Move back every following node whose home slot is not between the emptied slot and its current slot
+        int empty = slot;
+        for (int next = (empty + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            if (((next - home) & mask) >= ((next - empty) & mask)) {
+                keys[empty] = keys[next];
+                values[empty] = values[next];
+                empty = next;
+            }
+        }
+        keys[empty] = null;
+
+        nodes[index] = null;
+        --size;
+        if (freeCount == freeIndexes.length)
+            freeIndexes = Arrays.copyOf(freeIndexes, Math.max(4, 2 * freeCount));
+        freeIndexes[freeCount++] = index;
+
+        return index;
+    }
+
+    /**
+     * Renumbers the nodes so that they are mapped to the indexes between 0 and the number of nodes - 1, keeping
+     * their relative order, and forgets the freed indexes.
+     *
+     * @return new index of the node that was mapped to each old index, or -1 for the holes.
+     */
+    public int[] compact() {
+        int[] newIndexes = new int[bound];
+        int next = 0;
+        for (int index = 0; index != bound; ++index) {
+            if (nodes[index] == null) {
+                newIndexes[index] = -1;
+            } else {
+                newIndexes[index] = next;
+                nodes[next++] = nodes[index];
+            }
+        }
+        Arrays.fill(nodes, next, bound, null);
+
+        bound = next;
+        freeCount = 0;
+        rehash(keys.length);
+
+        return newIndexes;
+    }
+
+    /**
+     *
+     * @param node queried node.
+     * @return index of the node, or -1 if it was not added.
+     */
+    public int indexOf(Object node) {
+        if (node == null)
+            return -1;
+
+        int mask = keys.length - 1;
+        for (int slot = hash(node) & mask; keys[slot] != null; slot = (slot + 1) & mask)
+            if (keys[slot].equals(node))
+                return values[slot];
+
+        return -1;
+    }
+
+    /**
+     *
+     * @param node queried node.
+     * @return index of the node.
+     * @throws NodeNotPresentException thrown if the node was not added.
+     */
+    public int getIndex(Node node) throws NodeNotPresentException {
+        int index = indexOf(node);
+        if (index == -1)
+            throw new NodeNotPresentException(node);
+        return index;
+    }
+
+    /**
+     *
+     * @param index integer between 0 and the index bound.
+     * @return node mapped to the index.
+     * @throws NodeNotPresentException thrown if no node is mapped to the index, e.g. because it was freed.
+     */
+    @SuppressWarnings("unchecked")
+    public Node getNode(int index) throws NodeNotPresentException {
+        if (index < 0 || index >= bound || nodes[index] == null)
+            throw new NodeNotPresentException(null);
+        return (Node) nodes[index];
+    }
+
+    /**
+     *
+     * @param index queried index.
+     * @return true if a node is mapped to the index, false otherwise (including freed indexes).
+     */
+    public boolean hasIndex(int index) {
+        return index >= 0 && index < bound && nodes[index] != null;
+    }
+
+    /**
+     *
+     * @param node queried node.
+     * @return true if the node was added, false otherwise.
+     */
+    public boolean contains(Object node) {
+        return indexOf(node) != -1;
+    }
+
+    /**
+     *
+     * @return number of nodes.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     *
+     * @return an integer greater than the index of every node, which equals the number of nodes unless there are
+     * freed indexes.
+     */
+    public int getIndexBound() {
+        return bound;
+    }
+
+    /**
+     *
+     * @return every node, in the order of their indexes.
+     */
+    @SuppressWarnings("unchecked")
+    public List<Node> getNodes() {
+        List<Node> list = new ArrayList<>(size);
+        for (int index = 0; index != bound; ++index)
+            if (nodes[index] != null)
+                list.add((Node) nodes[index]);
+        return list;
+    }
+
+    /**
+     * Spreads the hash code of a node, so that codes that only differ in their upper bits use different slots.
+     */
+    private static int hash(Object node) {
+        int h = node.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Stores a node in the first free slot of its probe sequence.
+     */
+    private void insert(Object node, int index) {
+        int mask = keys.length - 1;
+        int slot = hash(node) & mask;
+        while (keys[slot] != null)
+            slot = (slot + 1) & mask;
+        keys[slot] = node;
+        values[slot] = index;
+    }
+
+    /**
+     * Moves every node to a hash table of the given capacity.
+     */
+    private void rehash(int capacity) {
+        keys = new Object[capacity];
+        values = new int[capacity];
+        for (int index = 0; index != bound; ++index)
+            if (nodes[index] != null)
+                insert(nodes[index], index);
+    }
+}
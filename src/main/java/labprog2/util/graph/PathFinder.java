@@ -0,0 +1,19 @@
+package labprog2.util.graph;
+
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Strategy that answers shortest path queries between the nodes of a graph. Every graph is a path finder on its
+ * own; other implementations answer queries from data precomputed over a graph.
+ */
+public interface PathFinder<Node> {
+    /**
+     * Returns the shortest path between two nodes.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException;
+}
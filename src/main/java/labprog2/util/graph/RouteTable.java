@@ -0,0 +1,236 @@
+package labprog2.util.graph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Answers shortest path queries from a precomputed table of the distances and first hops between all pairs of
+ * nodes. A query costs a table lookup plus one lookup per node of the returned path, but the table takes
+ * 8 bytes per pair of nodes (about 8 MB for a thousand nodes, 800 MB for ten thousand) and one Dijkstra search per
+ * node to build. It pays off for small networks that are queried often, and should be replaced by
+ * {@link HubLabels} or {@link ContractionHierarchy} as the network grows.
+ * <p>
+ * The table reflects the edges of the graph when it was built; it must be built again after the graph changes.
+ */
+public class RouteTable<Node> implements PathFinder<Node> {
+
+    /**
+     * Largest number of pairs of nodes in a table, as some virtual machines reserve a few words of the largest
+     * arrays.
+     */
+    private static final long MAX_PAIRS = Integer.MAX_VALUE - 8;
+
+    private final Graph<Node> graph;
+
+    private final int nodes;
+
+    /**
+     * Shortest distance from the node with index i to the node with index j at position i * nodes + j, or
+     * Integer.MAX_VALUE if there is no path.
+     */
+    private final int[] dist;
+
+    /**
+     * Index of the node that follows the node with index i in the shortest path to the node with index j at
+     * position i * nodes + j, or -1 if there is no path or i equals j.
+     */
+    private final int[] next;
+
+    private final long buildTimeMillis;
+
+    private RouteTable(Graph<Node> graph, int[] dist, int[] next, long buildTimeMillis) {
+        this.graph = graph;
+        this.nodes = graph.getIndexBound();
+        this.dist = dist;
+        this.next = next;
+        this.buildTimeMillis = buildTimeMillis;
+    }
+
+    /**
+     * Computes the route table of a graph. Implemented with a complete Dijkstra search from every node, the
+     * searches running in parallel. The first hop of the path to each node is derived from the first hop of the
+     * path to its previous node, which is settled before it.
+     *
+     * @param graph graph to be preprocessed. It must not change while the table is built.
+     * @return route table of the graph.
+     * @throws IllegalArgumentException thrown if the graph has too many nodes for the table to fit in an array.
+     */
+    public static <Node> RouteTable<Node> build(Graph<Node> graph) {
+        long start = System.currentTimeMillis();
+
+        int nodes = graph.getIndexBound();
+        long pairs = (long) nodes * nodes;
+        if (pairs > MAX_PAIRS)
+            throw new IllegalArgumentException("Route table of " + nodes + " nodes does not fit in an array");
+        int[] dist = new int[(int) pairs];
+        int[] next = new int[(int) pairs];
+
+        IntStream.range(0, nodes).parallel().forEach(srcIndex -> {
+            int row = srcIndex * nodes;
+            Arrays.fill(dist, row, row + nodes, Integer.MAX_VALUE);
+            Arrays.fill(next, row, row + nodes, -1);
+
+            // Each thread of the pool searches with its own engine
+            ShortestPathEngine engine = ShortestPathEngine.forCurrentThread();
+            engine.run(graph, srcIndex);
+            engine.finish();
+
+            for (int k = 0; k != engine.getSettledCount(); ++k) {
+                int index = engine.getSettledNode(k);
+                int previous = engine.getPrevious(index);
+
+                dist[row + index] = engine.getDistance(index);
+                if (previous == srcIndex)
+                    next[row + index] = index;
+                else if (previous != -1)
+                    next[row + index] = next[row + previous];
+            }
+        });
+
+        return new RouteTable<>(graph, dist, next, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the cost of the shortest path between two nodes.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return cost of the shortest path, or Integer.MAX_VALUE if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public int getDistance(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return dist[graph.getNodeIndex(srcNode) * nodes + graph.getNodeIndex(desNode)];
+    }
+
+    /**
+     * Returns the shortest path between two nodes. Implemented by following the first hops of the table.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    @Override
+    public Path<Node> getShortestPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        int srcIndex = graph.getNodeIndex(srcNode);
+        int desIndex = graph.getNodeIndex(desNode);
+
+        Path<Node> path = new Path<>();
+
+        // If the nodes are not connected
+        if (dist[srcIndex * nodes + desIndex] == Integer.MAX_VALUE) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        path.setCost(dist[srcIndex * nodes + desIndex]);
+        path.addNode(srcNode);
+        appendRoute(srcIndex, desIndex, path);
+
+        return path;
+    }
+
+    /**
+     * Returns the shortest path between two nodes that is not direct, i.e., that does not consist of the edge that
+     * connects them. Implemented by choosing the cheapest edge out of the source node, other than the direct one,
+     * followed by the shortest path from the node it leads to. If that path goes back through the source node it
+     * may use the direct edge, so the query falls back to {@link Graph#getShortestNonDirectPath}.
+     *
+     * @param srcNode source node (starting node of the path).
+     * @param desNode destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present.
+     */
+    public Path<Node> getShortestNonDirectPath(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return getShortestNonDirectPathByIndex(graph.getNodeIndex(srcNode), graph.getNodeIndex(desNode));
+    }
+
+    /**
+     * Returns the shortest path between two nodes, given by their indexes, that is not direct.
+     *
+     * @param srcIndex index of the source node (starting node of the path).
+     * @param desIndex index of the destiny node (final node of the path).
+     * @return shortest path, or an empty path with infinite cost if there is none.
+     * @throws NodeNotPresentException thrown if either of the indexes is not mapped to a node.
+     * @see #getShortestNonDirectPath(Object, Object)
+     */
+    public Path<Node> getShortestNonDirectPathByIndex(int srcIndex, int desIndex) throws NodeNotPresentException {
+        // Both indexes must be mapped to nodes
+        Node srcNode = graph.getNodeAtIndex(srcIndex);
+        graph.getNodeAtIndex(desIndex);
+
+        if (srcIndex == desIndex)
+            return graph.getShortestNonDirectPathByIndex(srcIndex, desIndex);
+
+        // Cheapest first hop and the cost of the path through it
+        long[] best = { -1, Long.MAX_VALUE };
+        graph.forEachEdgeFrom(srcIndex, (hopIndex, weight) -> {
+            int remaining = dist[hopIndex * nodes + desIndex];
+            if (hopIndex != desIndex && remaining != Integer.MAX_VALUE && weight + (long) remaining < best[1]) {
+                best[0] = hopIndex;
+                best[1] = weight + (long) remaining;
+            }
+        });
+
+        Path<Node> path = new Path<>();
+
+        // If there is no path other than the direct one
+        if (best[0] == -1) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        int hopIndex = (int) best[0];
+        for (int index = hopIndex; index != desIndex; index = next[index * nodes + desIndex])
+            if (index == srcIndex)
+                return graph.getShortestNonDirectPathByIndex(srcIndex, desIndex);
+
+        path.setCost((int) best[1]);
+        path.addNode(srcNode);
+        path.addNode(graph.getNodeAtIndex(hopIndex));
+        appendRoute(hopIndex, desIndex, path);
+
+        return path;
+    }
+
+    /**
+     * Appends to a path the nodes of the shortest path between two nodes, after its source node.
+     *
+     * @param srcIndex index of the source node, already in the path.
+     * @param desIndex index of the destiny node, which must be reachable.
+     * @param path path being constructed.
+     * @throws NodeNotPresentException thrown if the route contains an index that is not mapped to a node.
+     */
+    private void appendRoute(int srcIndex, int desIndex, Path<Node> path) throws NodeNotPresentException {
+        for (int index = srcIndex; index != desIndex; ) {
+            index = next[index * nodes + desIndex];
+            path.addNode(graph.getNodeAtIndex(index));
+        }
+    }
+
+    /**
+     *
+     * @return graph the table was built from, whose indexes the table uses.
+     */
+    public Graph<Node> getGraph() {
+        return graph;
+    }
+
+    /**
+     *
+     * @return number of bytes taken by the distance and first-hop arrays.
+     */
+    public long getMemoryBytes() {
+        return 4L * dist.length + 4L * next.length;
+    }
+
+    /**
+     *
+     * @return time taken to build the table, in milliseconds.
+     */
+    public long getBuildTimeMillis() {
+        return buildTimeMillis;
+    }
+}
@@ -0,0 +1,450 @@
+package labprog2.util.graph;
+
+import java.util.Arrays;
+
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Runs Dijkstra's path finding algorithm over the node indexes of a graph, optionally guided by a lower bound on
+ * the remaining cost to the destiny node (A* search). The distance and previous-node arrays
+ * and the heap are kept between searches and only grow, so a search allocates nothing once the engine has reached
+ * the size of the graph. Entries are tagged with the search that wrote them instead of being cleared, so a search
+ * that stops early only pays for the nodes it touched. An engine is not thread-safe; {@link #forCurrentThread()}
+ * gives each thread its own.
+ */
+final class ShortestPathEngine implements EdgeVisitor {
+
+    /**
+     * Index passed as destiny when the search should not stop at any particular node.
+     */
+    static final int NO_TARGET = -1;
+
+    /**
+     * Lower bound on the cost from a node, given by its index, to the destiny node of a search.
+     */
+    interface LowerBound {
+        int estimate(int index);
+    }
+
+    private static final ThreadLocal<ShortestPathEngine> ENGINES = ThreadLocal.withInitial(ShortestPathEngine::new);
+
+    private static final ThreadLocal<ShortestPathEngine> BACKWARD_ENGINES =
+            ThreadLocal.withInitial(ShortestPathEngine::new);
+
+    /**
+     * Shortest distance found so far to each node. Only meaningful for nodes reached by the current search.
+     */
+    private int[] dist = new int[0];
+
+    /**
+     * Previous node in the shortest path to each node, or -1 for the source node. Only meaningful for nodes
+     * reached by the current search.
+     */
+    private int[] prev = new int[0];
+
+    /**
+     * Lower bound on the remaining cost from each node to the destiny node. Only meaningful for nodes reached by
+     * the current search.
+     */
+    private int[] estimates = new int[0];
+
+    /**
+     * Stamp of the last search that reached each node.
+     */
+    private int[] reachedStamp = new int[0];
+
+    /**
+     * Stamp of the last search that settled each node, that is, made its distance final.
+     */
+    private int[] settledStamp = new int[0];
+
+    /**
+     * Nodes settled by the current search, in order of increasing distance.
+     */
+    private int[] settledOrder = new int[0];
+
+    private int settledCount = 0;
+
+    /**
+     * Stamp of the current search.
+     */
+    private int stamp = 0;
+
+    private final IndexedHeap heap = new IndexedHeap();
+
+    /**
+     * Graph being searched, and whether its edges are followed against their direction.
+     */
+    private Graph<?> graph;
+    private boolean backward;
+
+    /**
+     * Lower bound used by the current search, or null for a plain Dijkstra search.
+     */
+    private LowerBound lowerBound;
+
+    /**
+     * Search in the opposite direction, with the cheapest path through a node reached by both searches.
+     */
+    private ShortestPathEngine opposite;
+    private int meetingCost;
+    private int meetingNode;
+
+    /**
+     * Endpoints of an edge that the current search does not follow, or -1 if it follows every edge.
+     */
+    private int excludedSrcIndex = -1;
+    private int excludedDesIndex = -1;
+
+    /**
+     * Node whose edges are being relaxed, and its distance.
+     */
+    private int curIndex;
+    private int curDist;
+
+    ShortestPathEngine() {
+    }
+
+    /**
+     *
+     * @return engine owned by the calling thread.
+     */
+    static ShortestPathEngine forCurrentThread() {
+        return ENGINES.get();
+    }
+
+    /**
+     *
+     * @return second engine owned by the calling thread, for the backward half of a bidirectional search.
+     */
+    static ShortestPathEngine backwardForCurrentThread() {
+        return BACKWARD_ENGINES.get();
+    }
+
+    /**
+     * Computes the shortest distances from a node to all other nodes of a graph.
+     *
+     * @param graph graph to be searched.
+     * @param srcIndex index of the source node.
+     */
+    void run(Graph<?> graph, int srcIndex) {
+        run(graph, srcIndex, NO_TARGET, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Computes shortest distances from a node, settling nodes in order of increasing distance. The search stops as
+     * soon as the destiny node is settled, or before settling the first node whose distance exceeds the maximum cost.
+     *
+     * @param graph graph to be searched.
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node, or {@link #NO_TARGET}.
+     * @param maxCost greatest distance of a node that may be settled.
+     */
+    void run(Graph<?> graph, int srcIndex, int desIndex, int maxCost) {
+        run(graph, srcIndex, desIndex, maxCost, null);
+    }
+
+    /**
+     * Computes the shortest path between two nodes with A* search: nodes are settled in order of their distance
+     * plus the lower bound on their remaining cost. If the lower bound is consistent, the distance of every settled
+     * node is final. The search stops as soon as the destiny node is settled, or before settling the first node
+     * whose distance plus lower bound exceeds the maximum cost.
+     *
+     * @param graph graph to be searched.
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @param maxCost greatest accepted cost of the path.
+     * @param lowerBound lower bound on the remaining cost to the destiny node, or null for a plain Dijkstra search.
+     */
+    void run(Graph<?> graph, int srcIndex, int desIndex, int maxCost, LowerBound lowerBound) {
+        start(graph, srcIndex, false, lowerBound);
+        searchTo(desIndex, maxCost);
+    }
+
+    /**
+     * Computes the shortest path between two nodes that is not direct, i.e., that does not consist of the edge
+     * between them. The edge is skipped during relaxation, which gives the same result as searching the graph
+     * without it, but leaves the graph untouched, so concurrent searches of the same graph are safe.
+     *
+     * @param graph graph to be searched.
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @param lowerBound lower bound on the remaining cost to the destiny node, or null for a plain Dijkstra search.
+     */
+    void runNonDirect(Graph<?> graph, int srcIndex, int desIndex, LowerBound lowerBound) {
+        start(graph, srcIndex, false, lowerBound);
+        this.excludedSrcIndex = srcIndex;
+        this.excludedDesIndex = desIndex;
+        searchTo(desIndex, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Settles nodes until the destiny node is settled, or before settling the first node whose distance plus
+     * lower bound exceeds the maximum cost, and then finishes the search.
+     */
+    private void searchTo(int desIndex, int maxCost) {
+        while (hasNext() && peekKey() <= maxCost) {
+            // The distance to the destiny is final once it is settled, and its edges need not be relaxed
+            if (heap.peek() == desIndex) {
+                settle();
+                break;
+            }
+            settleNext();
+        }
+
+        finish();
+    }
+
+    /**
+     * Starts a search from a node, which may then be advanced one node at a time with {@link #settleNext()}.
+     *
+     * @param graph graph to be searched.
+     * @param srcIndex index of the node where the search starts.
+     * @param backward if true, edges are followed against their direction, so the search computes the shortest
+     * distances from every node to the starting node.
+     * @param lowerBound lower bound on the remaining cost to the destiny node, or null for a plain Dijkstra search.
+     */
+    void start(Graph<?> graph, int srcIndex, boolean backward, LowerBound lowerBound) {
+        reset(graph.getIndexBound());
+        this.graph = graph;
+        this.backward = backward;
+        this.lowerBound = lowerBound;
+        this.opposite = null;
+        this.excludedSrcIndex = -1;
+        this.excludedDesIndex = -1;
+
+        reach(srcIndex, 0, -1);
+    }
+
+    /**
+     * Makes the search meet another search over the same graph in the opposite direction. Must be called after
+     * {@link #start}. Whenever a node reached
+     * by both searches is found, the cost of the path through it is compared with the best meeting found so far.
+     *
+     * @param opposite search in the opposite direction, or null to stop tracking meetings.
+     */
+    void meet(ShortestPathEngine opposite) {
+        this.opposite = opposite;
+        this.meetingCost = Integer.MAX_VALUE;
+        this.meetingNode = -1;
+    }
+
+    /**
+     * Releases the references to the graph and to the other objects used by the search, so that the engine does
+     * not keep them alive after the search. The results of the search remain available.
+     */
+    void finish() {
+        this.graph = null;
+        this.lowerBound = null;
+        this.opposite = null;
+    }
+
+    /**
+     *
+     * @return true if there are nodes reached but not yet settled, false otherwise.
+     */
+    boolean hasNext() {
+        return !heap.isEmpty();
+    }
+
+    /**
+     *
+     * @return distance plus lower bound of the next node to be settled. Must only be called if there is one.
+     */
+    int peekKey() {
+        return heap.peekKey();
+    }
+
+    /**
+     * Settles the reached node with the smallest distance plus lower bound, and relaxes its edges.
+     *
+     * @return index of the settled node. Must only be called if there is one.
+     */
+    int settleNext() {
+        int index = settle();
+
+        curIndex = index;
+        curDist = dist[index];
+        if (backward)
+            graph.forEachEdgeTo(index, this);
+        else
+            graph.forEachEdgeFrom(index, this);
+
+        return index;
+    }
+
+    /**
+     * Relaxes an edge that comes out of (or, in a backward search, goes into) the node being settled.
+     *
+     * @param desIndex index of the other endpoint of the edge.
+     * @param weight weight of the edge.
+     */
+    @Override
+    public void visit(int desIndex, int weight) {
+        if (settledStamp[desIndex] == stamp)
+            return;
+
+        if (curIndex == excludedSrcIndex && desIndex == excludedDesIndex)
+            return;
+
+        int newDist = curDist + weight;
+
+        if (reachedStamp[desIndex] != stamp || newDist < dist[desIndex])
+            reach(desIndex, newDist, curIndex);
+    }
+
+    /**
+     *
+     * @param index index of a node.
+     * @return true if the last search found the final shortest distance to the node, false otherwise.
+     */
+    boolean isSettled(int index) {
+        return settledStamp[index] == stamp;
+    }
+
+    /**
+     *
+     * @param index index of a node.
+     * @return shortest distance to the node found by the last search, or Integer.MAX_VALUE if it was not reached.
+     * The distance is only final if the node was settled.
+     */
+    int getDistance(int index) {
+        return reachedStamp[index] == stamp ? dist[index] : Integer.MAX_VALUE;
+    }
+
+    /**
+     *
+     * @param index index of a node.
+     * @return previous node in the shortest path to the node found by the last search, or -1 if there is none.
+     */
+    int getPrevious(int index) {
+        return reachedStamp[index] == stamp ? prev[index] : -1;
+    }
+
+    /**
+     *
+     * @return number of nodes settled by the last search.
+     */
+    int getSettledCount() {
+        return settledCount;
+    }
+
+    /**
+     *
+     * @param position integer between 0 and the number of settled nodes.
+     * @return index of the node settled at the given position, in order of increasing distance.
+     */
+    int getSettledNode(int position) {
+        return settledOrder[position];
+    }
+
+    /**
+     *
+     * @return smallest cost of a path through a node reached by both this search and the opposite one, or
+     * Integer.MAX_VALUE if there is none.
+     */
+    int getMeetingCost() {
+        return meetingCost;
+    }
+
+    /**
+     *
+     * @return node through which the cheapest path found by the meeting searches passes, or -1 if there is none.
+     */
+    int getMeetingNode() {
+        return meetingNode;
+    }
+
+    /**
+     * Constructs the shortest path to a node found by the last search.
+     *
+     * @param graph graph that was searched.
+     * @param desIndex index of the destiny node.
+     * @return shortest path from the source node to the destiny node, or an empty path with infinite cost if the
+     * destiny node was not settled.
+     * @throws NodeNotPresentException thrown if the path contains an index that is not mapped to a node.
+     */
+    <Node> Path<Node> getPath(Graph<Node> graph, int desIndex) throws NodeNotPresentException {
+        Path<Node> path = new Path<>();
+
+        // If the destiny node was not settled (they are not connected, or the search stopped before it)
+        if (!isSettled(desIndex)) {
+            path.setCost(Integer.MAX_VALUE);
+            return path; // return empty path with infinite cost
+        }
+
+        // Set the cost of the path as the cost to reach the destiny node
+        path.setCost(dist[desIndex]);
+
+        // Construct the path from destiny to source by backtracking with the prev array
+        for (int index = desIndex; index != -1; index = prev[index])
+            path.addNode(graph.getNodeAtIndex(index));
+
+        // Reverse the path, so it is directed from source to destiny
+        return path.reverse();
+    }
+
+    /**
+     * Removes the reached node with the smallest distance plus lower bound from the heap and marks it as settled.
+     *
+     * @return index of the settled node.
+     */
+    private int settle() {
+        int index = heap.poll();
+        settledStamp[index] = stamp;
+        settledOrder[settledCount++] = index;
+        return index;
+    }
+
+    /**
+     * Records a new tentative distance to a node and queues it. The lower bound of a node is only computed the
+     * first time it is reached.
+     */
+    private void reach(int index, int distance, int previous) {
+        if (reachedStamp[index] != stamp) {
+            reachedStamp[index] = stamp;
+            estimates[index] = lowerBound == null ? 0 : lowerBound.estimate(index);
+        }
+        dist[index] = distance;
+        prev[index] = previous;
+        heap.insertOrDecrease(index, distance + estimates[index]);
+
+        if (opposite != null && opposite.reachedStamp[index] == opposite.stamp) {
+            int cost = distance + opposite.dist[index];
+            if (cost < meetingCost) {
+                meetingCost = cost;
+                meetingNode = index;
+            }
+        }
+    }
+
+    /**
+     * Prepares the scratch arrays for a search over the given number of nodes by moving on to a new stamp.
+     *
+     * @param nodes number of node indexes of the graph to be searched.
+     */
+    private void reset(int nodes) {
+        if (dist.length < nodes) {
+            int capacity = Math.max(nodes, 2 * dist.length);
+            dist = new int[capacity];
+            prev = new int[capacity];
+            estimates = new int[capacity];
+            reachedStamp = new int[capacity];
+            settledStamp = new int[capacity];
+            settledOrder = new int[capacity];
+            heap.ensureCapacity(capacity);
+            stamp = 0;
+        }
+
+        // Stamps are only cleared when they are exhausted
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            stamp = 0;
+        }
+
+        ++stamp;
+        settledCount = 0;
+        heap.clear();
+    }
+}
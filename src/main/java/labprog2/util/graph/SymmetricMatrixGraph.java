@@ -0,0 +1,476 @@
+package labprog2.util.graph;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Implements an undirected weighted graph as the upper triangle of a symmetric matrix. Every edge connects its
+ * nodes in both directions with the same weight, as in networks whose weights are distances, so the entries (i, j)
+ * and (j, i) of the matrix are stored once: about half the memory of a {@link MatrixGraph} with the same nodes, and
+ * half the edges to be added. Graphs whose weights depend on the direction must use a directed implementation.
+ * <p>
+ * The triangle is packed column by column in a single array: the entry (i, j), with i not greater than j, is at
+ * position j * (j + 1) / 2 + i. Adding a node appends a column, so the graph grows without moving any entry.
+ */
+public class SymmetricMatrixGraph<Node> extends AbstractGraph<Node> {
+
+    /**
+     * Greatest order of the matrix, whose triangle fits in an array; some virtual machines reserve a few words of
+     * the largest arrays.
+     */
+    private static final int MAX_CAPACITY = (int) ((Math.sqrt(8.0 * (Integer.MAX_VALUE - 8) + 1) - 1) / 2);
+
+    /**
+     * Packed upper triangle of the matrix. As in the directed matrix, an entry equal to zero indicates that there
+     * is no edge between the nodes, and a non-zero entry is the weight of the edge. Its length is the number of
+     * entries of the triangle of order equal to the capacity of the graph.
+     */
+    private int[] triangle;
+
+    /**
+     * Number of edges of each node, which lets edge visits stop once all the edges of a node were found.
+     */
+    private int[] degrees;
+
+    /**
+     * Maps each node to a row and column of the matrix and back.
+     */
+    private final NodeIndex<Node> nodeIndex;
+
+    /**
+     * Implements an undirected weighted graph as a symmetric matrix.
+     *
+     * @param maxNodes initial capacity of the graph (order of the matrix). The graph grows beyond it as needed.
+     * @throws IllegalArgumentException thrown if the triangle of the matrix does not fit in an array.
+     */
+    public SymmetricMatrixGraph(int maxNodes) {
+        this(new NodeIndex<>(maxNodes), new int[triangleLength(maxNodes)], new int[maxNodes]);
+    }
+
+    /**
+     * Creates a graph from its triangle and mappings.
+     *
+     * @param nodeIndex mapping between the nodes and their indexes.
+     * @param triangle packed upper triangle of the matrix.
+     * @param degrees number of edges of each node.
+     */
+    private SymmetricMatrixGraph(NodeIndex<Node> nodeIndex, int[] triangle, int[] degrees) {
+        this.nodeIndex = nodeIndex;
+        this.triangle = triangle;
+        this.degrees = degrees;
+    }
+
+    /**
+     * Implements an undirected weighted graph as a symmetric matrix.
+     *
+     * @param V set of vertices of the graph.
+     * @param E set of edges of the graph. An edge and its opposite are the same edge, so only one of them is needed.
+     * @throws NodeAlreadyPresentException thrown if a node is duplicated in V.
+     * @throws NodeNotPresentException thrown if E contains an edge that has at least one endpoint
+     * not contained in V.
+     */
+    public SymmetricMatrixGraph(List<Node> V, List<Edge<Node>> E)
+            throws NodeAlreadyPresentException, NodeNotPresentException {
+
+        // Sets the initial capacity of the graph (order of the matrix) to the number of nodes provided.
+        this(V.size());
+
+        for (Node v : V)
+            addNode(v);
+
+        for (Edge<Node> e : E)
+            addEdge(e);
+    }
+
+    /**
+     * Computes the position of an entry in the packed triangle.
+     *
+     * @param i index of a node.
+     * @param j index of a node not less than i.
+     * @return position of the entry (i, j).
+     */
+    private static int position(int i, int j) {
+        return (int) ((long) j * (j + 1) / 2) + i;
+    }
+
+    /**
+     * Computes the number of entries of the packed triangle of a matrix.
+     *
+     * @param capacity order of the matrix.
+     * @return number of entries of the triangle.
+     * @throws IllegalArgumentException thrown if the triangle does not fit in an array.
+     */
+    private static int triangleLength(int capacity) {
+        if (capacity > MAX_CAPACITY)
+            throw new IllegalArgumentException("Symmetric matrix of order " + capacity + " does not fit in an array");
+        return position(0, capacity);
+    }
+
+    /**
+     * Computes the position of the entry between two nodes, given in any order.
+     *
+     * @param index1 index of a node.
+     * @param index2 index of another node.
+     * @return position of the entry shared by (index1, index2) and (index2, index1).
+     */
+    private static int entry(int index1, int index2) {
+        return index1 <= index2 ? position(index1, index2) : position(index2, index1);
+    }
+
+    /**
+     * Adds a node to the graph, given it is not already present. Implemented by mapping the node to an index of
+     * the matrix, preferably one freed by a removed node. If every index is taken, the packed triangle is copied
+     * into an array with room for twice as many columns; the existing columns stay where they are.
+     *
+     * @param node object implementing the node interface to be added to the graph.
+     * @throws NodeAlreadyPresentException thrown if the node being added is already present
+     * @throws IllegalArgumentException thrown if the graph is full at the greatest order a matrix may have.
+     *
+     * @see Node
+     */
+    @Override
+    public void addNode(Node node) throws NodeAlreadyPresentException {
+        if (nodeIndex.size() == degrees.length && !nodeIndex.contains(node)) {
+            // Past half the greatest order, grow to the greatest order, and fail only once that is full too
+            int capacity = degrees.length < MAX_CAPACITY
+                    ? (int) Math.min(Math.max(1, 2L * degrees.length), MAX_CAPACITY) : degrees.length + 1;
+            triangle = Arrays.copyOf(triangle, triangleLength(capacity));
+            degrees = Arrays.copyOf(degrees, capacity);
+        }
+
+        nodeIndex.add(node);
+    }
+
+    /**
+     * Adds an edge to the graph, which also connects its destiny node to its source node with the same weight.
+     * If the edge is already present, it is substituted. Implemented by setting the single entry of the triangle
+     * shared by both directions.
+     *
+     * @param edge Edge to be added or updated.
+     * @throws NodeNotPresentException thrown if either of the edge endpoints is not present in the graph.
+     *
+     * @see Edge
+     */
+    @Override
+    public void addEdge(Edge<Node> edge) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(edge.getSrcNode());
+        int desIndex = getNodeIndex(edge.getDesNode());
+        int position = entry(srcIndex, desIndex);
+
+        int oldWeight = triangle[position];
+        int newWeight = edge.getWeight();
+
+        // Keep the degrees up to date when an entry turns from zero to non-zero or vice versa
+        if (oldWeight == 0 && newWeight != 0) {
+            ++degrees[srcIndex];
+            if (desIndex != srcIndex)
+                ++degrees[desIndex];
+        } else if (oldWeight != 0 && newWeight == 0) {
+            --degrees[srcIndex];
+            if (desIndex != srcIndex)
+                --degrees[desIndex];
+        }
+
+        triangle[position] = newWeight;
+    }
+
+    /**
+     * Sets the edges between every pair of nodes at once. Since an edge serves both directions, the weight function
+     * is only called with a source index not greater than the destiny index. Implemented by writing the columns of
+     * the triangle in parallel, each column by a single task of the common fork-join pool. The degrees are counted
+     * afterwards in a single pass over the triangle.
+     *
+     * @param weights weight of the edge between each pair of nodes, called at most once per pair.
+     */
+    @Override
+    public void fillEdges(WeightFunction weights) {
+        int bound = getIndexBound();
+
+        IntStream.range(0, bound).parallel().forEach(j -> {
+            int column = position(0, j);
+            boolean present = nodeIndex.hasIndex(j);
+            for (int i = 0; i <= j; ++i)
+                triangle[column + i] = present && nodeIndex.hasIndex(i) ? weights.getWeight(i, j) : 0;
+        });
+
+        Arrays.fill(degrees, 0);
+        for (int j = 0; j != bound; ++j) {
+            int column = position(0, j);
+            for (int i = 0; i <= j; ++i) {
+                if (triangle[column + i] != 0) {
+                    ++degrees[i];
+                    if (i != j)
+                        ++degrees[j];
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes a node and its edges. Implemented by emptying the row of the node, which is stored partly in its
+     * column and partly across the following columns, and by freeing its index.
+     *
+     * @param node node to be removed.
+     * @throws NodeNotPresentException thrown if the node is not present in the graph.
+     */
+    @Override
+    public void removeNode(Node node) throws NodeNotPresentException {
+        int index = getNodeIndex(node);
+
+        for (int other = 0; degrees[index] != 0; ++other) {
+            int position = entry(index, other);
+            if (triangle[position] != 0) {
+                triangle[position] = 0;
+                --degrees[index];
+                if (other != index)
+                    --degrees[other];
+            }
+        }
+
+        nodeIndex.remove(node);
+    }
+
+    /**
+     * Removes the edge between the specified nodes, in both directions, if it exists.
+     *
+     * @param srcNode source node of the edge to be removed.
+     * @param desNode destiny node of the edge to be removed.
+     * @return returns the edge that was removed.
+     * @throws EdgeNotPresentException thrown if there is no edge between the specified nodes
+     * @throws NodeNotPresentException thrown if either of the specified nodes is not present
+     */
+    @Override
+    public Edge<Node> removeEdgeBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        Edge<Node> edge = getEdgeBetween(srcNode, desNode);
+
+        int srcIndex = getNodeIndex(srcNode);
+        int desIndex = getNodeIndex(desNode);
+
+        triangle[entry(srcIndex, desIndex)] = 0;
+        --degrees[srcIndex];
+        if (desIndex != srcIndex)
+            --degrees[desIndex];
+
+        return edge;
+    }
+
+    /**
+     * Returns a list containing all the edges that come out of the specified node, i.e., all its edges.
+     *
+     * @param srcNode source node of all the queried edges.
+     * @return List containing all the edges.
+     * @throws NodeNotPresentException thrown if the specified node is not present in the graph.
+     */
+    @Override
+    public List<Edge<Node>> getEdgesFrom(Node srcNode) throws NodeNotPresentException {
+        int srcIndex = getNodeIndex(srcNode);
+
+        List<Edge<Node>> edges = new ArrayList<>(degrees[srcIndex]);
+
+        for (int desIndex = 0; edges.size() != degrees[srcIndex]; ++desIndex) {
+            int weight = triangle[entry(srcIndex, desIndex)];
+            if (weight != 0)
+                edges.add(new Edge<>(srcNode, getNodeAtIndex(desIndex), weight));
+        }
+
+        return edges;
+    }
+
+    /**
+     * Passes every edge of a node to a visitor. Implemented by scanning the column of the node, which is contiguous
+     * and holds its edges to the nodes of lower index, and then its entries in the following columns, one column
+     * apart. The scan stops once as many edges as the degree of the node were visited.
+     *
+     * @param srcIndex index of the source node of the edges.
+     * @param visitor visitor that receives the index of the destiny node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeFrom(int srcIndex, EdgeVisitor visitor) {
+        int remaining = degrees[srcIndex];
+
+        int column = position(0, srcIndex);
+        for (int desIndex = 0; remaining != 0 && desIndex <= srcIndex; ++desIndex) {
+            int weight = triangle[column + desIndex];
+            if (weight != 0) {
+                visitor.visit(desIndex, weight);
+                --remaining;
+            }
+        }
+
+        // The entry (i, j) of the next column is j + 1 positions after the entry (i, j - 1)
+        int position = position(srcIndex, srcIndex);
+        for (int desIndex = srcIndex + 1; remaining != 0; ++desIndex) {
+            position += desIndex;
+            int weight = triangle[position];
+            if (weight != 0) {
+                visitor.visit(desIndex, weight);
+                --remaining;
+            }
+        }
+    }
+
+    /**
+     * Passes every edge that goes into a node to a visitor. Since edges go both ways, these are the same as the
+     * edges that come out of the node.
+     *
+     * @param desIndex index of the destiny node of the edges.
+     * @param visitor visitor that receives the index of the source node and the weight of each edge.
+     */
+    @Override
+    public void forEachEdgeTo(int desIndex, EdgeVisitor visitor) {
+        forEachEdgeFrom(desIndex, visitor);
+    }
+
+    /**
+     * Creates a copy of the graph. Implemented by copying the packed triangle.
+     *
+     * @return copy of the graph.
+     */
+    @Override
+    SymmetricMatrixGraph<Node> copy() {
+        return new SymmetricMatrixGraph<>(new NodeIndex<>(nodeIndex), triangle.clone(), degrees.clone());
+    }
+
+    /**
+     * Creates a compacted copy of the graph. Implemented by moving every entry of the triangle to the new indexes
+     * of its nodes, in a triangle whose order is the number of nodes.
+     *
+     * @return compacted copy of the graph.
+     */
+    @Override
+    SymmetricMatrixGraph<Node> compactCopy() {
+        NodeIndex<Node> compactedIndex = new NodeIndex<>(nodeIndex);
+        int[] newIndexes = compactedIndex.compact();
+
+        int nodes = compactedIndex.size();
+        int[] compacted = new int[position(0, nodes)];
+        int[] compactedDegrees = new int[nodes];
+
+        for (int j = 0; j != newIndexes.length; ++j) {
+            // Freed indexes have empty rows and columns
+            if (newIndexes[j] == -1)
+                continue;
+
+            int column = position(0, j);
+            for (int i = 0; i <= j; ++i)
+                if (triangle[column + i] != 0)
+                    compacted[position(newIndexes[i], newIndexes[j])] = triangle[column + i];
+
+            compactedDegrees[newIndexes[j]] = degrees[j];
+        }
+
+        return new SymmetricMatrixGraph<>(compactedIndex, compacted, compactedDegrees);
+    }
+
+    /**
+     * Verifies whether there exists an edge between two nodes in the graph. Checks if their entry of the triangle is
+     * not zero.
+     *
+     * @param srcNode source node.
+     * @param desNode destiny node.
+     * @return true if there exists an edge, false otherwise.
+     * @throws NodeNotPresentException If either of the specified edges is not present in the graph.
+     */
+    @Override
+    public boolean connects(Node srcNode, Node desNode) throws NodeNotPresentException {
+        return triangle[entry(getNodeIndex(srcNode), getNodeIndex(desNode))] != 0;
+    }
+
+    /**
+     * Returns the weight of the edge between two nodes of the graph, which is the same in both directions.
+     *
+     * @param srcNode source node of the queried edge.
+     * @param desNode destiny node of the queried edge.
+     * @return weight of the edge with the specified endpoints.
+     * @throws EdgeNotPresentException thrown if there is no edge between such nodes.
+     * @throws NodeNotPresentException thrown if either of the nodes is not present in the graph.
+     */
+    @Override
+    public int getWeightBetween(Node srcNode, Node desNode) throws EdgeNotPresentException, NodeNotPresentException {
+        int weight = triangle[entry(getNodeIndex(srcNode), getNodeIndex(desNode))];
+
+        if (weight == 0)
+            throw new EdgeNotPresentException(srcNode, desNode);
+
+        return weight;
+    }
+
+    /**
+     * Verifies the presence of a node in the graph.
+     *
+     * @param node queried node.
+     * @return true if the node is present in the graph, false otherwise.
+     */
+    @Override
+    public boolean has(Node node) {
+        return nodeIndex.contains(node);
+    }
+
+    /**
+     * Verifies if graph is empty.
+     *
+     * @return true if there are no nodes, false otherwise.
+     */
+    @Override
+    public boolean isEmpty() {
+        return nodeIndex.size() == 0;
+    }
+
+    /**
+     *
+     * @return number of nodes in the graph.
+     */
+    @Override
+    public int getNodeCount() {
+        return nodeIndex.size();
+    }
+
+    /**
+     *
+     * @return list containing every node of the graph, in the order of their indexes.
+     */
+    @Override
+    public List<Node> getNodes() {
+        return nodeIndex.getNodes();
+    }
+
+    /**
+     * Gets the index mapped to an inserted node.
+     *
+     * @param node node currently in the graph.
+     * @return index mapped to the node.
+     * @throws NodeNotPresentException thrown if there is no such node in the graph.
+     */
+    @Override
+    public int getNodeIndex(Node node) throws NodeNotPresentException {
+        return nodeIndex.getIndex(node);
+    }
+
+    /**
+     * Gets the node object that corresponds to an index.
+     *
+     * @param index integer between 0 and the index bound.
+     * @return node corresponding to index.
+     * @throws NodeNotPresentException thrown if there is no such node.
+     */
+    @Override
+    public Node getNodeAtIndex(int index) throws NodeNotPresentException {
+        return nodeIndex.getNode(index);
+    }
+
+    /**
+     * Returns one more than the greatest index ever mapped to a node, which equals the number of nodes unless
+     * indexes were freed by removed nodes.
+     *
+     * @return an integer greater than the index of every node in the graph.
+     */
+    @Override
+    public int getIndexBound() {
+        return nodeIndex.getIndexBound();
+    }
+
+}
@@ -0,0 +1,207 @@
+package labprog2.util.graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Graph that changes by publishing immutable versions. Readers take the current {@link GraphSnapshot} without
+ * locking and keep searching it for as long as they want. Writers collect edge changes in a {@link Batch} and
+ * apply it to a copy of the current version, which is then published atomically: readers see either all the
+ * changes of a batch or none of them. Writers are serialized among themselves, but never block readers.
+ * <p>
+ * Nodes may be added and removed as well. Removed nodes leave holes in the indexes, which {@link #compact()}
+ * closes by publishing a renumbered version.
+ */
+public class VersionedGraph<Node> {
+
+    private final AtomicReference<GraphSnapshot<Node>> current;
+
+    /**
+     * Creates a versioned graph whose first version is a copy of the given graph. Later changes to the given graph
+     * are not seen by the versioned graph.
+     *
+     * @param graph initial contents of the graph.
+     */
+    public VersionedGraph(AbstractGraph<Node> graph) {
+        this(new GraphSnapshot<>(graph.copy(), 0));
+    }
+
+    private VersionedGraph(GraphSnapshot<Node> first) {
+        this.current = new AtomicReference<>(first);
+    }
+
+    /**
+     * Creates a versioned graph whose first version is the given graph itself, without copying it. Meant for graphs
+     * built only to be versioned, whose copy would double the memory taken at startup: the caller must not change
+     * the given graph afterwards.
+     *
+     * @param graph initial contents of the graph, owned by the versioned graph from now on.
+     * @return versioned graph.
+     */
+    public static <Node> VersionedGraph<Node> wrap(AbstractGraph<Node> graph) {
+        return new VersionedGraph<>(new GraphSnapshot<>(graph, 0));
+    }
+
+    /**
+     *
+     * @return current version of the graph.
+     */
+    public GraphSnapshot<Node> getSnapshot() {
+        return current.get();
+    }
+
+    /**
+     * Applies a batch of changes to a copy of the current version and publishes it as the new current version. If
+     * any change fails, nothing is published.
+     *
+     * @param batch changes to be applied, in the order they were added to the batch.
+     * @return published version.
+     * @throws NodeNotPresentException thrown if a change refers to a node that is not present.
+     * @throws EdgeNotPresentException thrown if a change removes an edge that is not present.
+     */
+    public synchronized GraphSnapshot<Node> apply(Batch<Node> batch)
+            throws NodeNotPresentException, EdgeNotPresentException {
+        AbstractGraph<Node> graph = current.get().copy();
+        applyChanges(graph, batch);
+        return publish(graph);
+    }
+
+    /**
+     * Adds a node together with a batch of changes, typically the edges of the new node, and publishes the result
+     * as the new current version. If anything fails, nothing is published.
+     *
+     * @param node node to be added.
+     * @param batch changes to be applied after the node is added.
+     * @return published version.
+     * @throws FullGraphException thrown if the graph cannot hold more nodes.
+     * @throws NodeAlreadyPresentException thrown if the node is already present.
+     * @throws NodeNotPresentException thrown if a change refers to a node that is not present.
+     * @throws EdgeNotPresentException thrown if a change removes an edge that is not present.
+     */
+    public synchronized GraphSnapshot<Node> addNode(Node node, Batch<Node> batch)
+            throws FullGraphException, NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        AbstractGraph<Node> graph = current.get().copy();
+        graph.addNode(node);
+        applyChanges(graph, batch);
+        return publish(graph);
+    }
+
+    /**
+     * Removes a node and its edges and publishes the result as the new current version. The index of the node
+     * becomes a hole until the graph is compacted.
+     *
+     * @param node node to be removed.
+     * @return published version.
+     * @throws NodeNotPresentException thrown if the node is not present.
+     */
+    public synchronized GraphSnapshot<Node> removeNode(Node node) throws NodeNotPresentException {
+        AbstractGraph<Node> graph = current.get().copy();
+        graph.removeNode(node);
+        return publish(graph);
+    }
+
+    /**
+     * Publishes a version of the graph without the holes left by removed nodes, so that the indexes of the nodes
+     * are again dense. The compacted copy is created without holding the lock of the writers, since it may take
+     * long; if a writer publishes a version meanwhile, the compaction starts over from that version. Readers are
+     * never blocked. Note that compaction changes the indexes of the nodes that follow a hole.
+     *
+     * @return published version, or the current version if it has no holes.
+     */
+    public GraphSnapshot<Node> compact() {
+        while (true) {
+            GraphSnapshot<Node> snapshot = current.get();
+            if (snapshot.getNodeCount() == snapshot.getIndexBound())
+                return snapshot;
+
+            AbstractGraph<Node> graph = snapshot.compactCopy();
+
+            synchronized (this) {
+                if (current.get() == snapshot)
+                    return publish(graph);
+            }
+        }
+    }
+
+    /**
+     * Applies the changes of a batch to a graph, in the order they were added to the batch.
+     */
+    private static <Node> void applyChanges(AbstractGraph<Node> graph, Batch<Node> batch)
+            throws NodeNotPresentException, EdgeNotPresentException {
+        for (Change<Node> change : batch.changes) {
+            if (change.removal)
+                graph.removeEdgeBetween(change.edge.getSrcNode(), change.edge.getDesNode());
+            else
+                graph.addEdge(change.edge);
+        }
+    }
+
+    /**
+     * Publishes a graph as the version that follows the current one. Must be called by the thread that holds the
+     * lock of the writers.
+     */
+    private GraphSnapshot<Node> publish(AbstractGraph<Node> graph) {
+        GraphSnapshot<Node> next = new GraphSnapshot<>(graph, current.get().getVersion() + 1);
+        current.set(next);
+        return next;
+    }
+
+    /**
+     * Addition or removal of an edge.
+     */
+    private static class Change<Node> {
+        private final Edge<Node> edge;
+        private final boolean removal;
+
+        private Change(Edge<Node> edge, boolean removal) {
+            this.edge = edge;
+            this.removal = removal;
+        }
+    }
+
+    /**
+     * Changes to be published together as a single version of a graph.
+     */
+    public static class Batch<Node> {
+
+        private final List<Change<Node>> changes = new ArrayList<>();
+
+        /**
+         * Adds an edge, or replaces the weight of the edge between the same nodes. The edge is copied, so later
+         * changes to it do not affect the batch.
+         *
+         * @param edge edge to be added.
+         * @return this batch.
+         */
+        public Batch<Node> addEdge(Edge<Node> edge) {
+            changes.add(new Change<>(new Edge<>(edge), false));
+            return this;
+        }
+
+        /**
+         * Removes the edge between two nodes.
+         *
+         * @param srcNode source node of the edge.
+         * @param desNode destiny node of the edge.
+         * @return this batch.
+         */
+        public Batch<Node> removeEdgeBetween(Node srcNode, Node desNode) {
+            changes.add(new Change<>(new Edge<>(srcNode, desNode, 0), true));
+            return this;
+        }
+
+        /**
+         *
+         * @return true if the batch has no changes, false otherwise.
+         */
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+    }
+}
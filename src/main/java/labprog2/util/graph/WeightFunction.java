@@ -0,0 +1,18 @@
+package labprog2.util.graph;
+
+/**
+ * Computes the weight of the edge between two nodes from their indexes, so that graphs can set the weights of many
+ * edges at once without creating edge objects.
+ *
+ * @see Graph#fillEdges(WeightFunction)
+ */
+public interface WeightFunction {
+    /**
+     * Computes the weight of one edge. Must be safe to call from several threads at once.
+     *
+     * @param srcIndex index of the source node.
+     * @param desIndex index of the destiny node.
+     * @return weight of the edge, or zero if the nodes are not connected.
+     */
+    int getWeight(int srcIndex, int desIndex);
+}
@@ -0,0 +1,38 @@
+package labprog2.util.graph.exceptions;
+
+/**
+ * Exception to be thrown when an edge is added between nodes that a graph of frozen topology was not built to
+ * connect.
+ *
+ * @see labprog2.util.graph.Graph#canConnect(Object, Object)
+ */
+public class FrozenTopologyException extends GraphException {
+    private final Object srcNode;
+    private final Object desNode;
+
+    /**
+     *
+     * @param srcNode source node of the edge that caused the exception.
+     * @param desNode destiny node of the edge that caused the exception.
+     */
+    public FrozenTopologyException(Object srcNode, Object desNode) {
+        this.srcNode = srcNode;
+        this.desNode = desNode;
+    }
+
+    /**
+     *
+     * @return source node of the edge that caused the exception.
+     */
+    public Object getSrcNode() {
+        return srcNode;
+    }
+
+    /**
+     *
+     * @return destiny node of the edge that caused the exception.
+     */
+    public Object getDesNode() {
+        return desNode;
+    }
+}
@@ -0,0 +1,116 @@
+package labprog2.util.location;
+
+import java.util.List;
+
+/**
+ * Stores a list of geographical coordinates as parallel arrays of primitives (structure of arrays), together with the
+ * cosine of each latitude. Distances between every pair of points can then be computed without touching the
+ * coordinate objects and without recomputing the cosines, which {@link GeographicCoordinates#distanceTo} does for
+ * every pair. The arrays are never changed, so distances may be computed by any number of threads.
+ */
+public final class CoordinateArrays {
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+
+    /**
+     * Cosine of each latitude, in radians.
+     */
+    private final double[] cosLatitudes;
+
+    private final double[] radii;
+
+    /**
+     * Copies a list of coordinates into arrays.
+     *
+     * @param coordinates coordinates of the points, whose positions in the list identify them.
+     */
+    public CoordinateArrays(List<GeographicCoordinates> coordinates) {
+        int size = coordinates.size();
+        this.latitudes = new double[size];
+        this.longitudes = new double[size];
+        this.cosLatitudes = new double[size];
+        this.radii = new double[size];
+
+        for (int i = 0; i != size; ++i) {
+            GeographicCoordinates point = coordinates.get(i);
+            latitudes[i] = point.getLatitude();
+            longitudes[i] = point.getLongitude();
+            cosLatitudes[i] = Math.cos(Math.toRadians(point.getLatitude()));
+            radii[i] = point.getRadius();
+        }
+    }
+
+    /**
+     *
+     * @return number of points.
+     */
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     *
+     * @param i position of a point.
+     * @return latitude of the point, in degrees.
+     */
+    public double getLatitude(int i) {
+        return latitudes[i];
+    }
+
+    /**
+     *
+     * @param i position of a point.
+     * @return longitude of the point, in degrees.
+     */
+    public double getLongitude(int i) {
+        return longitudes[i];
+    }
+
+    /**
+     *
+     * @param i position of a point.
+     * @return radius of the planet of the point.
+     */
+    public double getRadius(int i) {
+        return radii[i];
+    }
+
+    /**
+     * Computes the great-circle distance between two points with the haversine formula. The result is the same as
+     * that of {@link GeographicCoordinates#distanceTo} for the same points.
+     *
+     * @param i position of the first point, whose planet radius is used.
+     * @param j position of the second point.
+     * @return distance between the points, in km.
+     */
+    public double distance(int i, int j) {
+        return distance(latitudes[i], longitudes[i], cosLatitudes[i], latitudes[j], longitudes[j], cosLatitudes[j],
+                radii[i]);
+    }
+
+    /**
+     * Computes the great-circle distance between two points with the haversine formula, given their coordinates and
+     * the cosines of their latitudes. Classes that store coordinates in their own arrays use it to obtain the same
+     * distances as {@link GeographicCoordinates#distanceTo}.
+     *
+     * @param latitude1 latitude of the first point, in degrees.
+     * @param longitude1 longitude of the first point, in degrees.
+     * @param cosLatitude1 cosine of the latitude of the first point.
+     * @param latitude2 latitude of the second point, in degrees.
+     * @param longitude2 longitude of the second point, in degrees.
+     * @param cosLatitude2 cosine of the latitude of the second point.
+     * @param radius radius of the planet.
+     * @return distance between the points, in the unit of the radius.
+     */
+    public static double distance(double latitude1, double longitude1, double cosLatitude1,
+                                  double latitude2, double longitude2, double cosLatitude2, double radius) {
+        double sinLatitude = Math.sin(Math.toRadians(latitude2 - latitude1) / 2);
+        double sinLongitude = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+
+        double angle = Math.sqrt(
+                sinLatitude * sinLatitude + sinLongitude * sinLongitude * cosLatitude1 * cosLatitude2);
+
+        return 2 * radius * Math.asin(angle);
+    }
+}
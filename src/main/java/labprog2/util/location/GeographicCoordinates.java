@@ -52,6 +52,14 @@ public class GeographicCoordinates {
         return this.longitude;
     }
 
+    /**
+     *
+     * @return radius of the planet, in km
+     */
+    public double getRadius() {
+        return this.radius;
+    }
+
     /**
      *
      * @param other other set of geographical coordinates
@@ -64,9 +72,11 @@ public class GeographicCoordinates {
         double lat1 = Math.toRadians(this.latitude);
         double lat2 = Math.toRadians(other.latitude);
 
+        // Squares are taken by multiplication, the same operations as CoordinateArrays, so both agree exactly
+        double sinLatitude = Math.sin(latitudeDiff / 2);
+        double sinLongitude = Math.sin(longitudeDiff / 2);
         double angle = Math.sqrt(
-                Math.pow(Math.sin(latitudeDiff / 2), 2)
-                        + Math.pow(Math.sin(longitudeDiff / 2), 2) * Math.cos(lat1) * Math.cos(lat2));
+                sinLatitude * sinLatitude + sinLongitude * sinLongitude * Math.cos(lat1) * Math.cos(lat2));
 
         return 2 * radius * Math.asin(angle);
     }
@@ -0,0 +1,431 @@
+package labprog2.util.location;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index of points on a sphere, which finds the nearest points to a point, or the points within a distance
+ * of it, in logarithmic time on average instead of by comparing it with every point.
+ * <p>
+ * Each point is mapped to a unit vector in three dimensions. The straight-line (chord) distance between two unit
+ * vectors grows with the great-circle distance between their points, so the nearest vectors are the nearest points,
+ * and they can be searched with a k-d tree without the discontinuities of latitude and longitude at the poles and
+ * the antimeridian. The tree is balanced and stored implicitly in an array: the point of a subtree is at the middle
+ * of its range, the points of its left subtree before it and those of its right subtree after it. The tree is never
+ * changed once built, so it may be searched by any number of threads.
+ */
+public final class KdTree {
+
+    private final CoordinateArrays coordinates;
+
+    /**
+     * Unit vector of each point, by position of the point.
+     */
+    private final double[][] vectors;
+
+    /**
+     * Cosine of the latitude of each point, for the haversine distances of range queries.
+     */
+    private final double[] cosLatitudes;
+
+    /**
+     * Positions of the points in tree order.
+     */
+    private final int[] points;
+
+    /**
+     * Coordinate of the vectors (0 to 2) that splits the subtree whose point is at each position of the tree.
+     */
+    private final byte[] axes;
+
+    /**
+     * Builds the tree of a list of points.
+     *
+     * @param coordinates coordinates of the points, which are identified by their positions.
+     */
+    public KdTree(CoordinateArrays coordinates) {
+        int size = coordinates.size();
+        this.coordinates = coordinates;
+        this.vectors = new double[3][size];
+        this.cosLatitudes = new double[size];
+        this.points = new int[size];
+        this.axes = new byte[size];
+
+        for (int i = 0; i != size; ++i) {
+            double[] vector = toVector(coordinates.getLatitude(i), coordinates.getLongitude(i));
+            vectors[0][i] = vector[0];
+            vectors[1][i] = vector[1];
+            vectors[2][i] = vector[2];
+            cosLatitudes[i] = Math.cos(Math.toRadians(coordinates.getLatitude(i)));
+            points[i] = i;
+        }
+
+        build(0, size);
+    }
+
+    /**
+     * Arranges a range of points as a subtree. Implemented by splitting the range at the median of the coordinate
+     * in which its vectors are most spread, found with quickselect, and arranging both halves in the same way.
+     *
+     * @param from first position of the range.
+     * @param to position after the last one of the range.
+     */
+    private void build(int from, int to) {
+        if (to - from <= 1) {
+            if (to > from)
+                axes[from] = 0;
+            return;
+        }
+
+        // Split at the coordinate with the widest spread
+        int axis = 0;
+        double widest = -1;
+        for (int a = 0; a != 3; ++a) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = from; i != to; ++i) {
+                double value = vectors[a][points[i]];
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+
+        int middle = (from + to) >>> 1;
+        select(vectors[axis], from, to - 1, middle);
+        axes[middle] = (byte) axis;
+
+        build(from, middle);
+        build(middle + 1, to);
+    }
+
+    /**
+     * Reorders a range of points so that the point at a position has the value it would have if the range were
+     * sorted, with no greater values before it and no smaller values after it.
+     *
+     * @param values coordinate of the vector of each point.
+     * @param left first position of the range.
+     * @param right last position of the range.
+     * @param k position to be settled.
+     */
+    private void select(double[] values, int left, int right, int k) {
+        while (left < right) {
+            double pivot = values[points[(left + right) >>> 1]];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (values[points[i]] < pivot)
+                    ++i;
+                while (values[points[j]] > pivot)
+                    --j;
+                if (i <= j) {
+                    int point = points[i];
+                    points[i++] = points[j];
+                    points[j--] = point;
+                }
+            }
+            if (k <= j)
+                right = j;
+            else if (k >= i)
+                left = i;
+            else
+                return;
+        }
+    }
+
+    /**
+     *
+     * @return number of points.
+     */
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * Finds the points nearest to a point, other than the point itself.
+     *
+     * @param point position of the point.
+     * @param k number of points to be found.
+     * @return positions of the k nearest points (or of every other point, if there are fewer), from the nearest.
+     */
+    public int[] nearest(int point, int k) {
+        return nearest(new double[] { vectors[0][point], vectors[1][point], vectors[2][point] }, point, k);
+    }
+
+    /**
+     * Finds the points nearest to a location, which need not be one of the points.
+     *
+     * @param location coordinates of the location.
+     * @param k number of points to be found.
+     * @return positions of the k nearest points (or of every point, if there are fewer), from the nearest.
+     */
+    public int[] nearest(GeographicCoordinates location, int k) {
+        return nearest(toVector(location.getLatitude(), location.getLongitude()), -1, k);
+    }
+
+    /**
+     * Finds the points nearest to a unit vector.
+     *
+     * @param query unit vector of the location.
+     * @param excluded position of a point to be left out, or -1.
+     * @param k number of points to be found.
+     * @return positions of the nearest points, from the nearest.
+     */
+    private int[] nearest(double[] query, int excluded, int k) {
+        int count = Math.min(k, excluded == -1 ? points.length : points.length - 1);
+        if (count <= 0)
+            return new int[0];
+
+        // Max-heap of the nearest points found so far, by squared chord distance
+        Neighbours neighbours = new Neighbours(query, excluded, count);
+        searchNearest(neighbours, 0, points.length);
+
+        return neighbours.sorted();
+    }
+
+    /**
+     * Searches the nearest points in a subtree, skipping the half of the subtree on the far side of its splitting
+     * plane when the plane is farther than the farthest point found so far.
+     *
+     * @param neighbours nearest points found so far.
+     * @param from first position of the subtree.
+     * @param to position after the last one of the subtree.
+     */
+    private void searchNearest(Neighbours neighbours, int from, int to) {
+        if (from >= to)
+            return;
+
+        int middle = (from + to) >>> 1;
+        int point = points[middle];
+        if (point != neighbours.excluded)
+            neighbours.offer(point, squaredChord(neighbours.query, point));
+
+        int axis = axes[middle];
+        double difference = neighbours.query[axis] - vectors[axis][point];
+        if (difference < 0) {
+            searchNearest(neighbours, from, middle);
+            if (!neighbours.isFull() || difference * difference < neighbours.farthest())
+                searchNearest(neighbours, middle + 1, to);
+        } else {
+            searchNearest(neighbours, middle + 1, to);
+            if (!neighbours.isFull() || difference * difference < neighbours.farthest())
+                searchNearest(neighbours, from, middle);
+        }
+    }
+
+    /**
+     * Finds the points within a great-circle distance of a point, other than the point itself.
+     *
+     * @param point position of the point.
+     * @param distance greatest distance, in the unit of the radius of the point.
+     * @return positions of the points whose distance to the point, as computed by
+     * {@link CoordinateArrays#distance(int, int)}, is not greater than the given one, in increasing order.
+     */
+    public int[] within(int point, double distance) {
+        double[] query = { vectors[0][point], vectors[1][point], vectors[2][point] };
+        return within(new Range(query, point, coordinates.getLatitude(point), coordinates.getLongitude(point),
+                coordinates.getRadius(point), distance));
+    }
+
+    /**
+     * Finds the points within a great-circle distance of a location, which need not be one of the points.
+     *
+     * @param location coordinates of the location.
+     * @param distance greatest distance, in the unit of the radius of the location.
+     * @return positions of the points whose distance to the location, as computed by
+     * {@link GeographicCoordinates#distanceTo}, is not greater than the given one, in increasing order.
+     */
+    public int[] within(GeographicCoordinates location, double distance) {
+        double[] query = toVector(location.getLatitude(), location.getLongitude());
+        return within(new Range(query, -1, location.getLatitude(), location.getLongitude(), location.getRadius(),
+                distance));
+    }
+
+    /**
+     * Finds the points of a range query.
+     *
+     * @param range location and distance of the query.
+     * @return positions of the points within the range, in increasing order.
+     */
+    private int[] within(Range range) {
+        searchWithin(range, 0, points.length);
+
+        int[] result = Arrays.copyOf(range.found, range.count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Collects the points of a subtree that are within a range, skipping the half of the subtree on the far side of
+     * its splitting plane when the plane is farther than the range reaches.
+     *
+     * @param range location and distance of the query, and the points found so far.
+     * @param from first position of the subtree.
+     * @param to position after the last one of the subtree.
+     */
+    private void searchWithin(Range range, int from, int to) {
+        if (from >= to)
+            return;
+
+        int middle = (from + to) >>> 1;
+        int point = points[middle];
+        // Filter the candidates with the haversine distance, which defines the result
+        if (point != range.excluded && squaredChord(range.query, point) <= range.bound
+                && CoordinateArrays.distance(range.latitude, range.longitude, range.cosLatitude,
+                coordinates.getLatitude(point), coordinates.getLongitude(point), cosLatitudes[point],
+                range.radius) <= range.distance)
+            range.add(point);
+
+        int axis = axes[middle];
+        double difference = range.query[axis] - vectors[axis][point];
+        if (difference < 0 || difference * difference <= range.bound)
+            searchWithin(range, from, middle);
+        if (difference >= 0 || difference * difference <= range.bound)
+            searchWithin(range, middle + 1, to);
+    }
+
+    /**
+     * Maps a location to a unit vector.
+     *
+     * @param latitude latitude of the location, in degrees.
+     * @param longitude longitude of the location, in degrees.
+     * @return coordinates of the vector.
+     */
+    private static double[] toVector(double latitude, double longitude) {
+        double phi = Math.toRadians(latitude);
+        double lambda = Math.toRadians(longitude);
+        return new double[] { Math.cos(phi) * Math.cos(lambda), Math.cos(phi) * Math.sin(lambda), Math.sin(phi) };
+    }
+
+    /**
+     * Computes the squared straight-line distance between a unit vector and that of a point.
+     */
+    private double squaredChord(double[] query, int point) {
+        double dx = query[0] - vectors[0][point];
+        double dy = query[1] - vectors[1][point];
+        double dz = query[2] - vectors[2][point];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Range query in progress: its location, its distance and the points found so far.
+     */
+    private static final class Range {
+        private final double[] query;
+        private final int excluded;
+        private final double latitude;
+        private final double longitude;
+        private final double cosLatitude;
+        private final double radius;
+        private final double distance;
+
+        /**
+         * Greatest squared chord distance of the points within the range.
+         */
+        private final double bound;
+
+        private int[] found = new int[16];
+        private int count = 0;
+
+        private Range(double[] query, int excluded, double latitude, double longitude, double radius,
+                      double distance) {
+            this.query = query;
+            this.excluded = excluded;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.cosLatitude = Math.cos(Math.toRadians(latitude));
+            this.radius = radius;
+            this.distance = distance;
+
+            // A chord spans the angle distance / radius; beyond half a turn every point is within reach
+            double angle = distance / radius;
+            double chord = angle >= Math.PI ? 2 : 2 * Math.sin(angle / 2);
+            // Widen the bound slightly, so that rounding does not drop points exactly at the distance
+            this.bound = chord * chord * (1 + 1e-9) + 1e-12;
+        }
+
+        private void add(int point) {
+            if (count == found.length)
+                found = Arrays.copyOf(found, 2 * count);
+            found[count++] = point;
+        }
+    }
+
+    /**
+     * Bounded max-heap of the nearest points to a unit vector, by squared chord distance.
+     */
+    private static final class Neighbours {
+        private final double[] query;
+        private final int excluded;
+        private final int[] heap;
+        private final double[] distances;
+        private int size = 0;
+
+        private Neighbours(double[] query, int excluded, int capacity) {
+            this.query = query;
+            this.excluded = excluded;
+            this.heap = new int[capacity];
+            this.distances = new double[capacity];
+        }
+
+        private boolean isFull() {
+            return size == heap.length;
+        }
+
+        private double farthest() {
+            return distances[0];
+        }
+
+        /**
+         * Adds a point if the heap is not full, or replaces the farthest point if the given one is nearer.
+         */
+        private void offer(int other, double distance) {
+            if (size != heap.length) {
+                // Sift the new point up from the end
+                int i = size++;
+                while (i > 0 && distances[(i - 1) / 2] < distance) {
+                    heap[i] = heap[(i - 1) / 2];
+                    distances[i] = distances[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = other;
+                distances[i] = distance;
+            } else if (distance < distances[0]) {
+                siftDown(other, distance, size);
+            }
+        }
+
+        /**
+         * Places a point at the root and moves it down to its place among the first points of the heap.
+         */
+        private void siftDown(int other, double distance, int length) {
+            int i = 0;
+            while (2 * i + 1 < length) {
+                int child = 2 * i + 1;
+                if (child + 1 < length && distances[child + 1] > distances[child])
+                    ++child;
+                if (distances[child] <= distance)
+                    break;
+                heap[i] = heap[child];
+                distances[i] = distances[child];
+                i = child;
+            }
+            heap[i] = other;
+            distances[i] = distance;
+        }
+
+        /**
+         * Empties the heap into an array, from the nearest point to the farthest.
+         */
+        private int[] sorted() {
+            int[] result = new int[size];
+            for (int length = size; length != 0; --length) {
+                result[length - 1] = heap[0];
+                siftDown(heap[length - 1], distances[length - 1], length - 1);
+            }
+            return result;
+        }
+    }
+}
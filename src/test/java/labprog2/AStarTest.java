@@ -0,0 +1,78 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.model.Airport;
+import labprog2.model.GreatCircleHeuristic;
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.Graph;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class AStarTest {
+
+    /**
+     * Creates an airport with the given iata code and coordinates, leaving the remaining fields empty.
+     */
+    private static Airport createAirport(String iata, double latitude, double longitude) {
+        String[] data = new String[19];
+        Arrays.fill(data, "");
+        data[0] = "0";
+        data[1] = iata;
+        data[15] = String.valueOf(latitude);
+        data[16] = String.valueOf(longitude);
+        data[17] = "0";
+        return new Airport(data);
+    }
+
+    @Test
+    public void testAStarMatchesDijkstraOnRandomNetworks() throws NodeAlreadyPresentException, NodeNotPresentException {
+        Random random = new Random(42);
+
+        for (int trial = 0; trial != 20; ++trial) {
+            List<Airport> airports = new ArrayList<>();
+            for (int i = 0; i != 30; ++i)
+                airports.add(createAirport("A" + i, -35 + random.nextDouble() * 35, -75 + random.nextDouble() * 40));
+            // Add a chain of airports about 1.9 km apart, whose legs lose almost one unit each when truncated
+            for (int i = 0; i != 10; ++i)
+                airports.add(createAirport("C" + i, -20 + i * 0.0171, -45));
+
+            List<Edge<Airport>> routes = new ArrayList<>();
+            int minWeight = Integer.MAX_VALUE;
+            for (int i = 0; i != airports.size(); ++i) {
+                for (int j = 0; j != airports.size(); ++j) {
+                    Airport srcAirport = airports.get(i);
+                    Airport desAirport = airports.get(j);
+                    int distance = (int) srcAirport.getGeographicCoordinates()
+                            .distanceTo(desAirport.getGeographicCoordinates());
+                    boolean chainLeg = i >= 30 && Math.abs(i - j) == 1;
+                    if (i != j && distance != 0 && (chainLeg || random.nextDouble() < 0.2)) {
+                        routes.add(new Edge<>(srcAirport, desAirport, distance));
+                        minWeight = Math.min(minWeight, distance);
+                    }
+                }
+            }
+
+            Graph<Airport> graph = new MatrixGraph<>(airports, routes);
+            GreatCircleHeuristic heuristic = new GreatCircleHeuristic(minWeight);
+
+            for (Airport srcAirport : airports) {
+                for (Airport desAirport : airports) {
+                    assertEquals(graph.getShortestPath(srcAirport, desAirport).getCost(),
+                            graph.getShortestPath(srcAirport, desAirport, heuristic).getCost());
+                    assertEquals(graph.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                            graph.getShortestNonDirectPath(srcAirport, desAirport, heuristic).getCost());
+                }
+            }
+        }
+    }
+
+}
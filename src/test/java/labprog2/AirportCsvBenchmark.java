@@ -0,0 +1,85 @@
+package labprog2;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportCsvLoader;
+import labprog2.model.AirportCsvParser;
+
+/**
+ * Compares the time taken to read a large synthetic airport file by {@link AirportCsvLoader}, which is built on
+ * OpenCSV, and by {@link AirportCsvParser}. Not a unit test: run it by hand after {@code mvn test-compile}, e.g.
+ * with {@code java -cp target/classes:target/test-classes:<opencsv jars> labprog2.AirportCsvBenchmark 1000000},
+ * where the argument is the number of rows.
+ */
+public class AirportCsvBenchmark {
+
+    private static final String HEADER = "id,iata,icao,name,location,street_number,street,city,county,state,"
+            + "state_code,country_iso,country,postal_code,phone,latitude,longitude,uct,website";
+
+    /**
+     * Reads a file into airports.
+     */
+    private interface Reader {
+        List<Airport> read(Path file) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        Path file = Files.createTempFile("airports", ".csv");
+        try {
+            write(file, rows);
+            System.out.println(String.format("%d rows, %d MB", rows, Files.size(file) >> 20));
+            System.out.println(String.format("%-18s %10s %14s", "reader", "time (ms)", "rows/s"));
+
+            for (int round = 0; round != 3; ++round) {
+                run("opencsv", file, f -> AirportCsvLoader.fromPath(f).readAll());
+                run("opencsv serial", file, f -> {
+                    try (Stream<Airport> airports = AirportCsvLoader.fromPath(f).stream()) {
+                        return airports.collect(Collectors.toList());
+                    }
+                });
+                run("nio", file, AirportCsvParser::read);
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void run(String name, Path file, Reader reader) throws IOException {
+        long start = System.nanoTime();
+        List<Airport> airports = reader.read(file);
+        long nanos = System.nanoTime() - start;
+
+        System.out.println(String.format("%-18s %10d %14.0f", name, nanos / 1_000_000,
+                airports.size() * 1e9 / nanos));
+    }
+
+    /**
+     * Writes rows shaped like those of the bundled file, with quoted text and coordinates of six decimals.
+     */
+    private static void write(Path file, int rows) throws IOException {
+        Random random = new Random(0);
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(HEADER);
+            writer.newLine();
+            for (int i = 0; i != rows; ++i) {
+                writer.write(String.format(Locale.ROOT, "%d,A%05d,SB%05d,Airport %d,\"City %d, State, Brazil\",,,"
+                        + "City %d,,State,ST,BR,Brazil,00000-000,+55 11 5555-%04d,%.6f,%.6f,-180,"
+                        + "https://example.com/%d", i, i % 100_000, i % 100_000, i, i, i, i % 10_000,
+                        180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180, i));
+                writer.newLine();
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.opencsv.exceptions.CsvException;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportCsvLoader;
+
+public class AirportCsvLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMalformedRowsAreReportedAndSkipped() throws IOException {
+        String header = "id,iata,icao,name,location,street_number,street,city,county,state,state_code,country_iso,"
+                + "country,postal_code,phone,latitude,longitude,uct,website";
+        String row = ",ICAO,Name,\"City, State\",,,,City,State,ST,BR,Brazil,,,%s,-40.5,-180,";
+        Path file = folder.getRoot().toPath().resolve("airports.csv");
+        Files.write(file, Arrays.asList(header,
+                "1,AAA" + String.format(row, "-10.25"),
+                "2,BBB" + String.format(row, "north"),
+                "3,CCC,too,few,fields",
+                "4,DDD" + String.format(row, "12.5")), StandardCharsets.UTF_8);
+
+        List<AirportCsvLoader.MalformedRow> malformed = Collections.synchronizedList(new ArrayList<>());
+        AirportCsvLoader loader = AirportCsvLoader.fromPath(file).onMalformedRow(malformed::add);
+
+        List<Airport> airports;
+        try (Stream<Airport> stream = loader.stream()) {
+            airports = stream.collect(Collectors.toList());
+        }
+
+        assertEquals(Arrays.asList("AAA", "DDD"),
+                airports.stream().map(Airport::getIata).collect(Collectors.toList()));
+        assertEquals(12.5, airports.get(1).getGeographicCoordinates().getLatitude(), 0);
+        assertEquals(Arrays.asList(3L, 4L),
+                malformed.stream().map(AirportCsvLoader.MalformedRow::getRowNumber).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testParallelResourceLoadMatchesFile() throws IOException, CsvException {
+        List<Airport> airports = AirportCsvLoader.fromResource("/airport_data.csv").readAll();
+
+        assertEquals(Arrays.asList(Airport.readFromAirportCsv()), airports);
+    }
+
+}
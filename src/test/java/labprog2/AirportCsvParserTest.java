@@ -0,0 +1,113 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportCsvLoader;
+import labprog2.model.AirportCsvParser;
+import labprog2.util.location.Address;
+
+public class AirportCsvParserTest {
+
+    private static final String HEADER = "id,iata,icao,name,location,street_number,street,city,county,state,"
+            + "state_code,country_iso,country,postal_code,phone,latitude,longitude,uct,website";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMatchesLoader() throws IOException {
+        Path bundled = Paths.get("src/main/resources/airport_data.csv");
+        assertSameAirports(AirportCsvLoader.fromPath(bundled).readAll(), AirportCsvParser.read(bundled));
+
+        // Many rows with awkward numbers and quotes, spanning many reads of the file
+        Random random = new Random(3);
+        List<String> lines = new ArrayList<>();
+        lines.add(HEADER);
+        for (int i = 0; i != 20_000; ++i) {
+            String latitude = random.nextBoolean() ? String.valueOf(180 * random.nextDouble() - 90)
+                    : String.format(Locale.ROOT, "%.6f", 180 * random.nextDouble() - 90);
+            String longitude = i % 100 == 0 ? "-4.5e1"
+                    : String.format(Locale.ROOT, "%.4f", 360 * random.nextDouble() - 180);
+            lines.add(i + ",A" + i + ",SB" + i + ",\"Airport \"\"" + i + "\"\", Brazil\",\"City, State, Brazil\","
+                    + ",,City,,State,ST,BR,Brazil,," + (i % 7 == 0 ? "\"+55 (11) 5555\"" : "") + "," + latitude + ","
+                    + longitude + "," + (-60 * (i % 5)) + ",https://example.com/" + i);
+        }
+        Path file = folder.getRoot().toPath().resolve("large.csv");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+
+        List<Airport> parsed = AirportCsvParser.read(file);
+        assertSameAirports(AirportCsvLoader.fromPath(file).readAll(), parsed);
+        assertEquals("Airport \"7\", Brazil", parsed.get(7).getName());
+        assertEquals(-45.0, parsed.get(100).getGeographicCoordinates().getLongitude(), 0);
+    }
+
+    @Test
+    public void testLineEndingsAndMalformedRows() throws IOException {
+        String row = ",ICAO,Name,\"City, State\",,,,City,State,ST,BR,Brazil,,,%s,-40.5,-180,";
+        String contents = "\uFEFF" + HEADER + "\r\n"
+                + "1,AAA" + String.format(row, "-10.25") + "\r\n"
+                + "2,BBB" + String.format(row, "north") + "\n"
+                + "3,CCC,too,few,fields\n"
+                + "4,DDD" + String.format(row, "12.5");
+        Path file = folder.getRoot().toPath().resolve("airports.csv");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+
+        List<AirportCsvLoader.MalformedRow> malformed = new ArrayList<>();
+        List<Airport> airports = AirportCsvParser.read(file, malformed::add);
+
+        assertEquals(Arrays.asList("AAA", "DDD"),
+                airports.stream().map(Airport::getIata).collect(Collectors.toList()));
+        assertEquals(-10.25, airports.get(0).getGeographicCoordinates().getLatitude(), 0);
+        assertEquals("", airports.get(1).getWebsite());
+        assertEquals(Arrays.asList(3L, 4L),
+                malformed.stream().map(AirportCsvLoader.MalformedRow::getRowNumber).collect(Collectors.toList()));
+        assertEquals("BBB", malformed.get(0).getFields()[1]);
+    }
+
+    private static void assertSameAirports(List<Airport> expected, List<Airport> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i != expected.size(); ++i) {
+            Airport expectedAirport = expected.get(i);
+            Airport actualAirport = actual.get(i);
+            assertEquals(expectedAirport.getId(), actualAirport.getId());
+            assertEquals(expectedAirport.getIata(), actualAirport.getIata());
+            assertEquals(expectedAirport.getIcao(), actualAirport.getIcao());
+            assertEquals(expectedAirport.getName(), actualAirport.getName());
+            assertEquals(expectedAirport.getPhone(), actualAirport.getPhone());
+            assertEquals(expectedAirport.getUcl(), actualAirport.getUcl());
+            assertEquals(expectedAirport.getWebsite(), actualAirport.getWebsite());
+            assertEquals(Double.doubleToLongBits(expectedAirport.getGeographicCoordinates().getLatitude()),
+                    Double.doubleToLongBits(actualAirport.getGeographicCoordinates().getLatitude()));
+            assertEquals(Double.doubleToLongBits(expectedAirport.getGeographicCoordinates().getLongitude()),
+                    Double.doubleToLongBits(actualAirport.getGeographicCoordinates().getLongitude()));
+
+            Address expectedAddress = expectedAirport.getAddress();
+            Address actualAddress = actualAirport.getAddress();
+            assertEquals(expectedAddress.getLocation(), actualAddress.getLocation());
+            assertEquals(expectedAddress.getStreet(), actualAddress.getStreet());
+            assertEquals(expectedAddress.getCity(), actualAddress.getCity());
+            assertEquals(expectedAddress.getState(), actualAddress.getState());
+            assertEquals(expectedAddress.getStateCode(), actualAddress.getStateCode());
+            assertEquals(expectedAddress.getCountry(), actualAddress.getCountry());
+            assertEquals(expectedAddress.getPostalCode(), actualAddress.getPostalCode());
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.opencsv.exceptions.CsvException;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportLocator;
+import labprog2.util.location.GeographicCoordinates;
+
+public class AirportLocatorTest {
+
+    @Test
+    public void testMatchesLinearScan() throws IOException, CsvException {
+        List<Airport> airports = Arrays.asList(Airport.readFromAirportCsv());
+        AirportLocator locator = new AirportLocator(airports);
+
+        Random random = new Random(7);
+        for (int q = 0; q != 200; ++q) {
+            GeographicCoordinates location =
+                    new GeographicCoordinates(180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180);
+            Comparator<Airport> byDistance =
+                    Comparator.comparingDouble(airport -> location.distanceTo(airport.getGeographicCoordinates()));
+            List<Airport> scanned = airports.stream().sorted(byDistance).collect(Collectors.toList());
+
+            assertEquals(scanned.get(0), locator.getNearestAirport(location));
+            assertEquals(scanned.subList(0, 5), locator.getNearestAirports(location, 5));
+
+            double distance = 2000 + 4000 * random.nextDouble();
+            assertEquals(scanned.stream()
+                            .filter(airport -> location.distanceTo(airport.getGeographicCoordinates()) <= distance)
+                            .collect(Collectors.toList()),
+                    locator.getAirportsWithin(location, distance));
+        }
+
+        assertEquals(airports.size(), locator.getNearestAirports(new GeographicCoordinates(0, 0), 1000).size());
+    }
+
+}
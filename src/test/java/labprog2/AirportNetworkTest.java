@@ -3,11 +3,20 @@ package labprog2;
 import com.opencsv.exceptions.CsvException;
 import labprog2.model.Airport;
 import labprog2.model.AirportNetwork;
+import labprog2.util.graph.Path;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.GraphException;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class AirportNetworkTest {
 
@@ -20,4 +29,159 @@ public class AirportNetworkTest {
         airportNetwork.getShortestNonDirectPath(airports[0], airports[1]);
     }
 
+    @Test
+    public void testCsrNetworkMatchesMatrixNetwork() throws IOException, CsvException, NodeNotPresentException {
+        Airport[] airports = Airport.readFromAirportCsv();
+
+        AirportNetwork matrixNetwork = new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.MATRIX);
+        AirportNetwork csrNetwork = new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.CSR);
+
+        for (Airport srcAirport : airports) {
+            for (Airport desAirport : airports) {
+                Path<Airport> matrixPath = matrixNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                Path<Airport> csrPath = csrNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                assertEquals(matrixPath.getCost(), csrPath.getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testOtherGraphTypesMatchMatrixNetwork()
+            throws IOException, CsvException, NodeNotPresentException {
+        Airport[] airports = Airport.readFromAirportCsv();
+
+        AirportNetwork matrixNetwork = new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.MATRIX);
+        AirportNetwork symmetricNetwork =
+                new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.SYMMETRIC);
+        AirportNetwork compactNetwork = new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.COMPACT);
+        AirportNetwork implicitNetwork =
+                new AirportNetwork(Arrays.asList(airports), AirportNetwork.GraphType.IMPLICIT);
+
+        for (Airport srcAirport : airports) {
+            for (Airport desAirport : airports) {
+                Path<Airport> matrixPath = matrixNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                Path<Airport> symmetricPath = symmetricNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                Path<Airport> compactPath = compactNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                Path<Airport> implicitPath = implicitNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                assertEquals(matrixPath.getCost(), symmetricPath.getCost());
+                assertEquals(matrixPath.getCost(), compactPath.getCost());
+                assertEquals(matrixPath.getCost(), implicitPath.getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testPrecomputedRoutesMatchSearch() throws IOException, CsvException, NodeNotPresentException {
+        Airport[] airports = Airport.readFromAirportCsv();
+
+        AirportNetwork searchNetwork = new AirportNetwork(Arrays.asList(airports));
+        AirportNetwork tableNetwork = new AirportNetwork(Arrays.asList(airports));
+        tableNetwork.precomputeRoutes();
+
+        for (Airport srcAirport : airports) {
+            for (Airport desAirport : airports) {
+                Path<Airport> searchPath = searchNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                Path<Airport> tablePath = tableNetwork.getShortestNonDirectPath(srcAirport, desAirport);
+                assertEquals(searchPath.getCost(), tablePath.getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testConcurrentNonDirectQueries() throws IOException, CsvException, NodeNotPresentException {
+        Airport[] airports = Airport.readFromAirportCsv();
+        AirportNetwork airportNetwork = new AirportNetwork(Arrays.asList(airports));
+
+        int[] expected = new int[airports.length * airports.length];
+        for (int i = 0; i != airports.length; ++i)
+            for (int j = 0; j != airports.length; ++j)
+                expected[i * airports.length + j] =
+                        airportNetwork.getShortestNonDirectPath(airports[i], airports[j]).getCost();
+
+        // Run every query several times from the threads of the common pool
+        IntStream.range(0, 10 * expected.length).parallel().forEach(query -> {
+            int pair = query % expected.length;
+            try {
+                Path<Airport> path = airportNetwork.getShortestNonDirectPath(
+                        airports[pair / airports.length], airports[pair % airports.length]);
+                assertEquals(expected[pair], path.getCost());
+            } catch (NodeNotPresentException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    @Test
+    public void testRouteUpdate() throws IOException, CsvException, GraphException {
+        Airport[] airports = Airport.readFromAirportCsv();
+
+        AirportNetwork airportNetwork = new AirportNetwork(Arrays.asList(airports));
+        airportNetwork.precomputeRoutes();
+
+        // Close every route into the second airport except the one from the first airport
+        AirportNetwork.RouteUpdate update = new AirportNetwork.RouteUpdate();
+        for (int i = 2; i != airports.length; ++i)
+            update.closeRoute(airports[i], airports[1]);
+        airportNetwork.applyRouteUpdate(update);
+
+        // The rebuilt table must route through the only remaining route
+        Path<Airport> path = airportNetwork.getShortestNonDirectPath(airports[2], airports[1]);
+        assertEquals(airports[0], path.getNodes().get(path.getNodes().size() - 2));
+        assertEquals(1, airportNetwork.getSnapshot().getVersion());
+    }
+
+    @Test
+    public void testQueriesByIndex() throws IOException, CsvException, NodeNotPresentException {
+        Airport[] airports = Airport.readFromAirportCsv();
+        AirportNetwork airportNetwork = new AirportNetwork(Arrays.asList(airports));
+
+        int[] indexes = new int[airports.length];
+        for (int i = 0; i != airports.length; ++i)
+            indexes[i] = airportNetwork.getAirportIndex(airports[i]);
+
+        for (int i = 0; i != airports.length; ++i) {
+            for (int j = 0; j != airports.length; ++j) {
+                Path<Airport> path = airportNetwork.getShortestNonDirectPath(airports[i], airports[j]);
+                Path<Airport> indexPath = airportNetwork.getShortestNonDirectPathByIndex(indexes[i], indexes[j]);
+                assertEquals(path.getCost(), indexPath.getCost());
+                assertEquals(path.getNodes(), indexPath.getNodes());
+            }
+        }
+    }
+
+    @Test
+    public void testOpenAndCloseAirports() throws IOException, CsvException, GraphException {
+        Airport[] airports = Airport.readFromAirportCsv();
+        List<Airport> all = Arrays.asList(airports);
+
+        // Open the last airport in a network that starts without it
+        AirportNetwork airportNetwork = new AirportNetwork(new ArrayList<>(all.subList(0, airports.length - 1)));
+        airportNetwork.precomputeRoutes();
+        airportNetwork.openAirport(airports[airports.length - 1]);
+
+        AirportNetwork fullNetwork = new AirportNetwork(all);
+        for (Airport srcAirport : airports)
+            for (Airport desAirport : airports)
+                assertEquals(fullNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                        airportNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost());
+
+        // Close the first half of the airports; the remaining ones keep their indexes until compaction
+        int lastIndex = airportNetwork.getAirportIndex(airports[airports.length - 1]);
+        for (int i = 0; i != airports.length / 2; ++i)
+            airportNetwork.closeAirport(airports[i]);
+        assertEquals(lastIndex, airportNetwork.getAirportIndex(airports[airports.length - 1]));
+        airportNetwork.compact();
+
+        List<Airport> remaining = all.subList(airports.length / 2, airports.length);
+        AirportNetwork remainingNetwork = new AirportNetwork(remaining);
+        assertEquals(remaining, airportNetwork.getSnapshot().getNodes());
+        assertEquals(remaining.size(), airportNetwork.getSnapshot().getIndexBound());
+        assertTrue(airportNetwork.getAirportIndex(airports[airports.length - 1]) < lastIndex);
+
+        for (Airport srcAirport : remaining)
+            for (Airport desAirport : remaining)
+                assertEquals(remainingNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                        airportNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost());
+    }
+
 }
@@ -0,0 +1,77 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import labprog2.util.graph.CompactMatrixGraph;
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class CompactMatrixGraphTest {
+
+    @Test
+    public void testQuantizedWeightsRoundUp()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        // Weights up to a million need a scale of 16
+        CompactMatrixGraph<String> graph = new CompactMatrixGraph<>(2, 1_000_000);
+        assertEquals(16, graph.getScale());
+
+        graph.addNode("A");
+        graph.addNode("B");
+        graph.addEdge(new Edge<>("A", "B", 1_000_000));
+        graph.addEdge(new Edge<>("B", "A", 1));
+
+        assertEquals(1_000_000, graph.getWeightBetween("A", "B"));
+        assertEquals(16, graph.getWeightBetween("B", "A"));
+
+        try {
+            graph.addEdge(new Edge<>("A", "B", 2_000_000));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals(1_000_000, graph.getWeightBetween("A", "B"));
+        }
+    }
+
+    @Test
+    public void testGrowthKeepsEdges()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        // Cross the 64 nodes of a bitset word, so that rows must be copied to wider ones
+        CompactMatrixGraph<Integer> graph = new CompactMatrixGraph<>(1, 100);
+        for (int i = 0; i != 100; ++i) {
+            graph.addNode(i);
+            if (i != 0)
+                graph.addEdge(new Edge<>(i - 1, i, 1 + i % 7));
+        }
+
+        MatrixGraph<Integer> matrix = new MatrixGraph<>(100);
+        for (int i = 0; i != 100; ++i) {
+            matrix.addNode(i);
+            if (i != 0)
+                matrix.addEdge(new Edge<>(i - 1, i, 1 + i % 7));
+        }
+
+        assertEquals(matrix.getShortestPath(0, 99).getCost(), graph.getShortestPath(0, 99).getCost());
+        assertTrue(graph.connects(63, 64));
+        assertFalse(graph.connects(64, 63));
+        assertTrue(graph.getMemoryBytes() < 4L * 128 * 128);
+    }
+
+    @Test
+    public void testRejectsMatricesLargerThanAnArray() {
+        // 65,536 squared wraps to 0 in an int
+        try {
+            new CompactMatrixGraph<Integer>(65_536, 1);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Compact matrix of order 65536 does not fit in an array", e.getMessage());
+        }
+    }
+
+}
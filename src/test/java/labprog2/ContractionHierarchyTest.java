@@ -0,0 +1,32 @@
+package labprog2;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.ContractionHierarchy;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class ContractionHierarchyTest {
+
+    @Test
+    public void testMatchesDijkstraOnRandomGraphs()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(7);
+
+        for (int trial = 0; trial != 20; ++trial) {
+            int n = 40;
+            MatrixGraph<Integer> graph = TestGraphs.createRandomGraph(random, n, 0.08, trial % 2 == 0 ? 5 : 1000);
+            ContractionHierarchy<Integer> hierarchy = ContractionHierarchy.build(graph);
+
+            for (int src = 0; src != n; ++src)
+                for (int des = 0; des != n; ++des)
+                    TestGraphs.assertShortestPath(graph, hierarchy.getShortestPath(src, des), src, des,
+                            graph.getShortestPath(src, des).getCost());
+        }
+    }
+
+}
@@ -0,0 +1,34 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.GeographicCoordinates;
+
+public class CoordinateArraysTest {
+
+    @Test
+    public void testDistancesMatchCoordinates() {
+        Random random = new Random(11);
+
+        List<GeographicCoordinates> points = new ArrayList<>();
+        for (int i = 0; i != 50; ++i)
+            points.add(new GeographicCoordinates(180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180));
+        points.add(new GeographicCoordinates(10, 20, 1000));
+
+        CoordinateArrays arrays = new CoordinateArrays(points);
+        assertEquals(points.size(), arrays.size());
+
+        // Routes are truncated distances, so the arrays must agree with the objects exactly
+        for (int i = 0; i != points.size(); ++i)
+            for (int j = 0; j != points.size(); ++j)
+                assertEquals(points.get(i).distanceTo(points.get(j)), arrays.distance(i, j), 0.0);
+    }
+
+}
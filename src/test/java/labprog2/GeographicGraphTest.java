@@ -0,0 +1,71 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.GeographicGraph;
+import labprog2.util.graph.GraphSnapshot;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.VersionedGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+import labprog2.util.location.GeographicCoordinates;
+
+public class GeographicGraphTest {
+
+    @Test
+    public void testMatchesMatrixOfDistances()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(3);
+
+        List<GeographicCoordinates> points = new ArrayList<>();
+        for (int i = 0; i != 60; ++i)
+            points.add(new GeographicCoordinates(180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180));
+
+        // A small cache, so that rows are evicted, and a capacity of one node, so that the arrays must grow
+        GeographicGraph<GeographicCoordinates> geographic = new GeographicGraph<>(point -> point, 1, 4);
+        MatrixGraph<GeographicCoordinates> matrix = new MatrixGraph<>(points.size());
+        for (GeographicCoordinates point : points) {
+            geographic.addNode(point);
+            matrix.addNode(point);
+        }
+        for (GeographicCoordinates srcPoint : points)
+            for (GeographicCoordinates desPoint : points)
+                if (srcPoint != desPoint)
+                    matrix.addEdge(new Edge<>(srcPoint, desPoint, (int) srcPoint.distanceTo(desPoint)));
+
+        // Close a route, reweigh another and remove a node
+        geographic.removeEdgeBetween(points.get(0), points.get(1));
+        matrix.removeEdgeBetween(points.get(0), points.get(1));
+        geographic.addEdge(new Edge<>(points.get(2), points.get(3), 1));
+        matrix.addEdge(new Edge<>(points.get(2), points.get(3), 1));
+        geographic.removeNode(points.get(4));
+        matrix.removeNode(points.get(4));
+
+        assertFalse(geographic.connects(points.get(0), points.get(1)));
+        assertTrue(geographic.connects(points.get(1), points.get(0)));
+        assertEquals(1, geographic.getWeightBetween(points.get(2), points.get(3)));
+
+        for (GeographicCoordinates srcPoint : geographic.getNodes())
+            assertEquals(matrix.getEdgesFrom(srcPoint).size(), geographic.getEdgesFrom(srcPoint).size());
+        TestGraphs.assertSameNonDirectCosts(matrix, geographic);
+
+        // Compaction keeps the overridden weights at the new indexes
+        GraphSnapshot<GeographicCoordinates> compacted = new VersionedGraph<>(geographic).compact();
+        assertEquals(points.size() - 1, compacted.getIndexBound());
+        assertFalse(compacted.connects(points.get(0), points.get(1)));
+        assertEquals(1, compacted.getWeightBetween(points.get(2), points.get(3)));
+        assertEquals(matrix.getWeightBetween(points.get(5), points.get(59)),
+                compacted.getWeightBetween(points.get(5), points.get(59)));
+    }
+
+}
@@ -1,21 +1,57 @@
 package labprog2;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
 
 import labprog2.model.Airport;
+import labprog2.util.graph.CompactMatrixGraph;
+import labprog2.util.graph.CsrGraph;
 import labprog2.util.graph.Edge;
 import labprog2.util.graph.Graph;
 import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
 import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
 import labprog2.util.graph.exceptions.NodeNotPresentException;
 
+@RunWith(Parameterized.class)
 public class GraphTest {
 
+    /**
+     * Creates a graph implementation from its nodes and edges.
+     */
+    private interface GraphFactory {
+        Graph<Airport> create(List<Airport> V, List<Edge<Airport>> E)
+                throws NodeAlreadyPresentException, NodeNotPresentException;
+    }
+
+    @Parameterized.Parameters
+    public static Collection<Object[]> graphFactories() {
+        return Arrays.asList(new Object[][] {
+                { (GraphFactory) MatrixGraph::new },
+                { (GraphFactory) CsrGraph::new },
+                { (GraphFactory) CompactMatrixGraph::new }
+        });
+    }
+
+    private final GraphFactory graphFactory;
+
+    public GraphTest(GraphFactory graphFactory) {
+        this.graphFactory = graphFactory;
+    }
+
     @Test
     public void testGetShortestPath() {
         Airport a = new Airport("A");
@@ -32,7 +68,7 @@ public class GraphTest {
         Edge<Airport> de = new Edge<>(d, e, 1);
 
         try {
-            Graph<Airport> graph = new MatrixGraph<>(
+            Graph<Airport> graph = graphFactory.create(
                     Arrays.asList(a, b, c, d, e), Arrays.asList( ab, bc, bd, cd, ce, de ));
 
             List<Airport> nodes = graph.getShortestPath(a, e).getNodes();
@@ -65,7 +101,7 @@ public class GraphTest {
         Edge<Airport> de = new Edge<>(d, e, 5);
 
         try {
-            Graph<Airport> graph = new MatrixGraph<>(Arrays.asList(a, b, c, d, e), Arrays.asList(ab, ac, bc, cb, bd, cd, de));
+            Graph<Airport> graph = graphFactory.create(Arrays.asList(a, b, c, d, e), Arrays.asList(ab, ac, bc, cb, bd, cd, de));
             List<Airport> nodes = graph.getShortestNonDirectPath(a, b).getNodes();
             assertEquals(a, nodes.get(0));
             assertEquals(c, nodes.get(1));
@@ -76,4 +112,183 @@ public class GraphTest {
 
     }
 
+    @Test
+    public void testBoundedSearch() throws NodeAlreadyPresentException, NodeNotPresentException {
+        Airport a = new Airport("A");
+        Airport b = new Airport("B");
+        Airport c = new Airport("C");
+        Airport d = new Airport("D");
+        Airport e = new Airport("E");
+
+        Edge<Airport> ab = new Edge<>(a, b, 1);
+        Edge<Airport> bc = new Edge<>(b, c, 1);
+        Edge<Airport> bd = new Edge<>(b, d, 10);
+        Edge<Airport> cd = new Edge<>(c, d, 1);
+        Edge<Airport> ce = new Edge<>(c, e, 10);
+        Edge<Airport> de = new Edge<>(d, e, 1);
+
+        Graph<Airport> graph = graphFactory.create(
+                Arrays.asList(a, b, c, d, e), Arrays.asList( ab, bc, bd, cd, ce, de ));
+
+        assertEquals(4, graph.getShortestPath(a, e, 4).getCost());
+        assertEquals(Integer.MAX_VALUE, graph.getShortestPath(a, e, 3).getCost());
+        assertTrue(graph.getShortestPath(a, e, 3).getNodes().isEmpty());
+
+        Map<Airport, Integer> nodesWithin = graph.getNodesWithin(a, 2);
+        assertEquals(Arrays.asList(a, b, c), Arrays.asList(nodesWithin.keySet().toArray()));
+        assertEquals(Integer.valueOf(2), nodesWithin.get(c));
+    }
+
+    @Test
+    public void testBidirectionalShortestPath()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(7);
+
+        List<Airport> nodes = new ArrayList<>();
+        for (int i = 0; i != 30; ++i)
+            nodes.add(new Airport("N" + i));
+
+        List<Edge<Airport>> edges = new ArrayList<>();
+        for (Airport srcNode : nodes) {
+            for (Airport desNode : nodes) {
+                if (random.nextDouble() < 0.1)
+                    edges.add(new Edge<>(srcNode, desNode, 1 + random.nextInt(20)));
+            }
+        }
+
+        Graph<Airport> graph = graphFactory.create(nodes, edges);
+
+        for (Airport srcNode : nodes) {
+            for (Airport desNode : nodes) {
+                // The returned nodes must form a path with the returned cost
+                TestGraphs.assertShortestPath(graph, graph.getBidirectionalShortestPath(srcNode, desNode), srcNode,
+                        desNode, graph.getShortestPath(srcNode, desNode).getCost());
+            }
+        }
+    }
+
+    @Test
+    public void testForEachEdgeMatchesGetEdgesFrom()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(23);
+
+        List<Airport> airports = new ArrayList<>();
+        for (int i = 0; i != 20; ++i)
+            airports.add(new Airport("A" + i));
+
+        List<Edge<Airport>> routes = new ArrayList<>();
+        for (Airport srcAirport : airports)
+            for (Airport desAirport : airports)
+                if (random.nextDouble() < 0.3)
+                    routes.add(new Edge<>(srcAirport, desAirport, 1 + random.nextInt(100)));
+
+        Graph<Airport> graph = graphFactory.create(airports, routes);
+
+        // Remove some edges, so that the visits skip emptied entries
+        for (int k = 0; k < routes.size(); k += 3)
+            graph.removeEdgeBetween(routes.get(k).getSrcNode(), routes.get(k).getDesNode());
+
+        int[] inWeights = new int[graph.getIndexBound()];
+        for (Airport airport : airports) {
+            int srcIndex = graph.getNodeIndex(airport);
+            List<String> visited = new ArrayList<>();
+            graph.forEachEdgeFrom(srcIndex, (desIndex, weight) -> {
+                try {
+                    visited.add(graph.getNodeAtIndex(desIndex) + ":" + weight);
+                } catch (NodeNotPresentException e) {
+                    throw new RuntimeException(e);
+                }
+                inWeights[desIndex] += weight;
+            });
+
+            List<String> expected = new ArrayList<>();
+            for (Edge<Airport> edge : graph.getEdgesFrom(airport))
+                expected.add(edge.getDesNode() + ":" + edge.getWeight());
+
+            assertEquals(expected, visited);
+        }
+
+        // Incoming edges carry the same weights as the outgoing ones
+        for (Airport airport : airports) {
+            int desIndex = graph.getNodeIndex(airport);
+            int[] total = new int[1];
+            graph.forEachEdgeTo(desIndex, (srcIndex, weight) -> total[0] += weight);
+            assertEquals(inWeights[desIndex], total[0]);
+        }
+    }
+
+    @Test
+    public void testRemoveNode()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Airport a = new Airport("A");
+        Airport b = new Airport("B");
+        Airport c = new Airport("C");
+
+        Graph<Airport> graph = graphFactory.create(Arrays.asList(a, b, c), Arrays.asList(
+                new Edge<>(a, b, 1), new Edge<>(b, c, 1), new Edge<>(c, b, 1), new Edge<>(a, c, 5)));
+
+        int cIndex = graph.getNodeIndex(c);
+        graph.removeNode(b);
+
+        assertFalse(graph.has(b));
+        assertEquals(2, graph.getNodeCount());
+        assertEquals(Arrays.asList(a, c), graph.getNodes());
+
+        // The other nodes keep their indexes, and the freed one is a hole below the bound
+        assertEquals(cIndex, graph.getNodeIndex(c));
+        assertEquals(3, graph.getIndexBound());
+
+        // Only the edge that did not touch the removed node is left
+        assertEquals(5, graph.getShortestPath(a, c).getCost());
+        assertEquals(1, graph.getEdgesFrom(a).size());
+        assertEquals(0, graph.getEdgesFrom(c).size());
+        int[] incoming = new int[1];
+        graph.forEachEdgeTo(cIndex, (srcIndex, weight) -> ++incoming[0]);
+        assertEquals(1, incoming[0]);
+
+        try {
+            graph.removeNode(b);
+            fail();
+        } catch (NodeNotPresentException e) {
+            assertEquals(b, e.getNodeNotPresent());
+        }
+    }
+
+    @Test
+    public void testFillEdges() throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        List<Airport> airports = new ArrayList<>();
+        for (int i = 0; i != 70; ++i)
+            airports.add(new Airport("A" + i));
+
+        List<Edge<Airport>> routes = new ArrayList<>();
+        for (Airport srcAirport : airports)
+            for (Airport desAirport : airports)
+                routes.add(new Edge<>(srcAirport, desAirport, 1));
+
+        Graph<Airport> graph = graphFactory.create(airports, routes);
+
+        // Some pairs get no edge, so filling also removes edges
+        graph.fillEdges((srcIndex, desIndex) -> (3 * srcIndex + desIndex) % 4);
+
+        int[] inDegrees = new int[graph.getIndexBound()];
+        for (Airport srcAirport : airports) {
+            int srcIndex = graph.getNodeIndex(srcAirport);
+            for (Airport desAirport : airports) {
+                int desIndex = graph.getNodeIndex(desAirport);
+                int weight = (3 * srcIndex + desIndex) % 4;
+                assertEquals(weight != 0, graph.connects(srcAirport, desAirport));
+                if (weight != 0) {
+                    assertEquals(weight, graph.getWeightBetween(srcAirport, desAirport));
+                    ++inDegrees[desIndex];
+                }
+            }
+        }
+
+        for (int desIndex = 0; desIndex != graph.getIndexBound(); ++desIndex) {
+            int[] count = new int[1];
+            graph.forEachEdgeTo(desIndex, (srcIndex, weight) -> ++count[0]);
+            assertEquals(inDegrees[desIndex], count[0]);
+        }
+    }
+
 }
@@ -0,0 +1,46 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.HubLabels;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class HubLabelsTest {
+
+    @Test
+    public void testMatchesDijkstraOnRandomGraphs()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException, IOException {
+        Random random = new Random(3);
+
+        for (int trial = 0; trial != 10; ++trial) {
+            int n = 40;
+            MatrixGraph<Integer> graph = TestGraphs.createRandomGraph(random, n, 0.08, trial % 2 == 0 ? 5 : 1000);
+            HubLabels<Integer> labels = HubLabels.build(graph);
+
+            // Labels read back from disk must answer the same
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            labels.save(out);
+            HubLabels<Integer> loaded = HubLabels.load(graph, new ByteArrayInputStream(out.toByteArray()));
+
+            for (int src = 0; src != n; ++src) {
+                for (int des = 0; des != n; ++des) {
+                    int expected = graph.getShortestPath(src, des).getCost();
+                    assertEquals(expected, labels.getDistance(src, des));
+                    assertEquals(expected, loaded.getDistance(src, des));
+                    TestGraphs.assertShortestPath(graph, labels.getShortestPath(src, des), src, des, expected);
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,70 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.CsrGraph;
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.Landmarks;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class LandmarksTest {
+
+    @Test
+    public void testMatchesDijkstraOnRandomGraphs() throws NodeAlreadyPresentException, NodeNotPresentException {
+        Random random = new Random(11);
+
+        for (int trial = 0; trial != 10; ++trial) {
+            int n = 40;
+            MatrixGraph<Integer> graph = TestGraphs.createRandomGraph(random, n, 0.1, 500);
+            Landmarks<Integer> landmarks = Landmarks.build(graph, 4);
+
+            for (int src = 0; src != n; ++src) {
+                for (int des = 0; des != n; ++des) {
+                    int expected = graph.getShortestPath(src, des).getCost();
+                    assertEquals(expected, landmarks.getShortestPath(src, des).getCost());
+                    assertEquals(expected, graph.getShortestPath(src, des, landmarks).getCost());
+                    assertTrue(landmarks.estimate(src, des) <= expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSaveAndLoad() throws NodeAlreadyPresentException, NodeNotPresentException, IOException {
+        Random random = new Random(5);
+        int n = 30;
+        MatrixGraph<Integer> graph = TestGraphs.createRandomGraph(random, n, 0.1, 500);
+        Landmarks<Integer> landmarks = Landmarks.build(graph, 3);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        landmarks.save(out);
+
+        // The tables may be loaded for another graph with the same nodes in the same order
+        List<Edge<Integer>> edges = new ArrayList<>();
+        for (int i = 0; i != n; ++i)
+            edges.addAll(graph.getEdgesFrom(i));
+        CsrGraph<Integer> copy = new CsrGraph<>(TestGraphs.createNodes(n), edges);
+        Landmarks<Integer> loaded = Landmarks.load(copy, new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(landmarks.getLandmarkCount(), loaded.getLandmarkCount());
+        for (int src = 0; src != n; ++src) {
+            for (int des = 0; des != n; ++des) {
+                assertEquals(landmarks.estimate(src, des), loaded.estimate(src, des));
+                assertEquals(graph.getShortestPath(src, des).getCost(), loaded.getShortestPath(src, des).getCost());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.MappedGraph;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class MappedGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testMatchesWrittenGraph()
+            throws IOException, NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(9);
+
+        MatrixGraph<Integer> matrix = TestGraphs.createRandomGraph(random, 50, 0.15, 100);
+        // Leave a hole in the indexes, which the file must skip
+        matrix.removeNode(10);
+
+        Path file = folder.getRoot().toPath().resolve("graph.bin");
+        List<Integer> nodes = MappedGraph.write(file, matrix);
+        MappedGraph<Integer> mapped = MappedGraph.open(file, nodes);
+
+        assertEquals(49, mapped.getIndexBound());
+        assertFalse(mapped.has(10));
+        for (Integer srcNode : nodes) {
+            assertEquals(matrix.getEdgesFrom(srcNode).size(), mapped.getEdgesFrom(srcNode).size());
+            for (Edge<Integer> edge : matrix.getEdgesFrom(srcNode))
+                assertTrue(mapped.has(edge));
+
+            List<String> incoming = new ArrayList<>();
+            mapped.forEachEdgeTo(mapped.getNodeIndex(srcNode),
+                    (index, weight) -> incoming.add(nodes.get(index) + ":" + weight));
+            List<String> expected = new ArrayList<>();
+            matrix.forEachEdgeTo(matrix.getNodeIndex(srcNode), (index, weight) -> expected.add(index + ":" + weight));
+            assertEquals(expected, incoming);
+
+            for (Integer desNode : nodes) {
+                int cost = matrix.getShortestPath(srcNode, desNode).getCost();
+                assertEquals(matrix.connects(srcNode, desNode), mapped.connects(srcNode, desNode));
+                TestGraphs.assertShortestPath(matrix, mapped.getShortestPath(srcNode, desNode), srcNode, desNode,
+                        cost);
+                TestGraphs.assertShortestPath(matrix, mapped.getBidirectionalShortestPath(srcNode, desNode),
+                        srcNode, desNode, cost);
+            }
+        }
+
+        try {
+            mapped.addEdge(new Edge<>(0, 1, 1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertTrue(mapped.has(0));
+        }
+    }
+
+    @Test
+    public void testRewriteKeepsMappedGraph()
+            throws IOException, NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        MatrixGraph<Integer> matrix = new MatrixGraph<>(3);
+        for (int i = 0; i != 3; ++i)
+            matrix.addNode(i);
+        matrix.addEdge(new Edge<>(0, 1, 5));
+        matrix.addEdge(new Edge<>(1, 2, 7));
+
+        Path file = folder.getRoot().toPath().resolve("graph.bin");
+        MappedGraph<Integer> mapped = MappedGraph.open(file, MappedGraph.write(file, matrix));
+
+        // Replace the file by a graph without edges while the first one is still mapped
+        matrix.removeEdgeBetween(0, 1);
+        matrix.removeEdgeBetween(1, 2);
+        MappedGraph<Integer> rewritten = MappedGraph.open(file, MappedGraph.write(file, matrix));
+
+        assertEquals(12, mapped.getShortestPath(0, 2).getCost());
+        assertFalse(rewritten.connects(0, 1));
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+}
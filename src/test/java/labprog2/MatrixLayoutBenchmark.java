@@ -0,0 +1,110 @@
+package labprog2;
+
+import java.util.Random;
+
+import labprog2.util.graph.AbstractGraph;
+import labprog2.util.graph.CompactMatrixGraph;
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.SymmetricMatrixGraph;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Compares the heap footprint and the query speed of the matrix layouts on a complete network with distance-like
+ * weights. Not a unit test: run it by hand after {@code mvn test-compile}, e.g. with
+ * {@code java -cp target/classes:target/test-classes labprog2.MatrixLayoutBenchmark 2000}, where the argument is the
+ * number of nodes.
+ */
+public class MatrixLayoutBenchmark {
+
+    private static final int MAX_WEIGHT = 20_000;
+
+    /**
+     * Creates a graph of the given layout.
+     */
+    private interface GraphFactory {
+        AbstractGraph<Integer> create(int nodes);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+
+        System.out.println("Complete network of " + nodes + " nodes");
+        System.out.println(String.format("%-10s %12s %14s %14s", "layout", "heap (KB)", "connects (ns)", "path (us)"));
+
+        run("matrix", nodes, MatrixGraph::new);
+        run("compact", nodes, n -> new CompactMatrixGraph<>(n, MAX_WEIGHT));
+        run("symmetric", nodes, SymmetricMatrixGraph::new);
+    }
+
+    private static void run(String layout, int nodes, GraphFactory factory)
+            throws NodeAlreadyPresentException, NodeNotPresentException, FullGraphException {
+        long before = usedHeap();
+        AbstractGraph<Integer> graph = factory.create(nodes);
+        fill(graph, nodes);
+        long footprint = usedHeap() - before;
+
+        Random random = new Random(1);
+        int queries = 5_000_000;
+        int[] srcNodes = new int[queries];
+        int[] desNodes = new int[queries];
+        for (int q = 0; q != queries; ++q) {
+            srcNodes[q] = random.nextInt(nodes);
+            desNodes[q] = random.nextInt(nodes);
+        }
+
+        // Warm up, then time the existence checks
+        int connected = 0;
+        for (int q = 0; q != queries; ++q)
+            if (graph.connects(srcNodes[q], desNodes[q]))
+                ++connected;
+        long start = System.nanoTime();
+        for (int q = 0; q != queries; ++q)
+            if (graph.connects(srcNodes[q], desNodes[q]))
+                ++connected;
+        double connectsNanos = (System.nanoTime() - start) / (double) queries;
+
+        int paths = 200;
+        long cost = 0;
+        for (int q = 0; q != paths; ++q)
+            cost += graph.getShortestNonDirectPath(srcNodes[q], desNodes[q]).getCost();
+        start = System.nanoTime();
+        for (int q = 0; q != paths; ++q)
+            cost += graph.getShortestNonDirectPath(srcNodes[q], desNodes[q]).getCost();
+        double pathMicros = (System.nanoTime() - start) / 1000.0 / paths;
+
+        System.out.println(String.format("%-10s %12d %14.1f %14.1f", layout, footprint / 1024, connectsNanos,
+                pathMicros));
+
+        // Keep the results alive, so that the loops are not optimized away
+        if (connected == -1 || cost == -1)
+            System.out.println(graph.isEmpty());
+    }
+
+    /**
+     * Connects every pair of distinct nodes, with weights that look like distances: the same in both directions.
+     */
+    private static void fill(AbstractGraph<Integer> graph, int nodes)
+            throws NodeAlreadyPresentException, NodeNotPresentException, FullGraphException {
+        for (int i = 0; i != nodes; ++i)
+            graph.addNode(i);
+
+        Random random = new Random(0);
+        for (int i = 0; i != nodes; ++i) {
+            for (int j = i + 1; j != nodes; ++j) {
+                int weight = 1 + random.nextInt(MAX_WEIGHT);
+                graph.addEdge(new Edge<>(i, j, weight));
+                graph.addEdge(new Edge<>(j, i, weight));
+            }
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i != 3; ++i)
+            System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
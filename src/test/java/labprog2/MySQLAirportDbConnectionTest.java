@@ -57,4 +57,19 @@ public class MySQLAirportDbConnectionTest {
 
     }
 
+    @Test
+    public void testGetAllAirportDataByFetchSize() throws ClassNotFoundException, SQLException {
+        Connection connection = App.connectToDb();
+
+        List<Airport> airports = Airport.getAllAirportDataDb(connection);
+        List<Airport> airportsOneByOne = Airport.getAllAirportDataDb(connection, 1);
+
+        assertEquals(airports, airportsOneByOne);
+        for (int i = 0; i != airports.size(); ++i) {
+            assertEquals(airports.get(i).getId(), airportsOneByOne.get(i).getId());
+            assertEquals(airports.get(i).getGeographicCoordinates().getLatitude(),
+                    airportsOneByOne.get(i).getGeographicCoordinates().getLatitude(), 0);
+        }
+    }
+
 }
@@ -0,0 +1,106 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.opencsv.exceptions.CsvException;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportNetwork;
+import labprog2.model.NetworkSnapshot;
+import labprog2.model.RoutePolicy;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FrozenTopologyException;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class NetworkSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testRoundTrip()
+            throws IOException, CsvException, NodeNotPresentException, NodeAlreadyPresentException, FullGraphException {
+        List<Airport> airports = Arrays.asList(Airport.readFromAirportCsv());
+        AirportNetwork network = new AirportNetwork(airports, AirportNetwork.GraphType.SYMMETRIC);
+        // Leave a hole in the indexes, which the snapshot must skip
+        network.closeAirport(airports.get(3));
+
+        Path file = folder.getRoot().toPath().resolve("network.snapshot");
+        assertNull(NetworkSnapshot.read(file, 42));
+
+        NetworkSnapshot.write(file, 42, network);
+        NetworkSnapshot snapshot = NetworkSnapshot.read(file, 42);
+
+        assertEquals(network.getSnapshot().getNodes(), snapshot.getAirports());
+        assertEquals(airports.get(0).getName(), snapshot.getAirports().get(0).getName());
+        assertEquals(airports.get(0).getGeographicCoordinates().getLatitude(),
+                snapshot.getAirports().get(0).getGeographicCoordinates().getLatitude(), 0);
+
+        AirportNetwork loaded = snapshot.getNetwork();
+        for (Airport srcAirport : snapshot.getAirports())
+            for (Airport desAirport : snapshot.getAirports())
+                assertEquals(network.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                        loaded.getShortestNonDirectPath(srcAirport, desAirport).getCost());
+
+        // The network is stored as before, so it still grows, unlike compressed sparse rows
+        network.openAirport(airports.get(3));
+        loaded.openAirport(airports.get(3));
+        for (Airport desAirport : network.getSnapshot().getNodes())
+            assertEquals(network.getShortestNonDirectPath(airports.get(3), desAirport).getCost(),
+                    loaded.getShortestNonDirectPath(airports.get(3), desAirport).getCost());
+
+        // Another source fingerprint, or a policy that is not complete, makes the snapshot stale
+        assertNull(NetworkSnapshot.read(file, 43));
+        assertNull(NetworkSnapshot.read(file, 42, RoutePolicy.nearest(3)));
+
+        // A flipped byte fails the checksum
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        try {
+            NetworkSnapshot.read(file, 42);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Network snapshot is corrupt: " + file, e.getMessage());
+        }
+    }
+
+    @Test
+    public void testRoundTripOfEveryGraphType()
+            throws IOException, CsvException, NodeNotPresentException, EdgeNotPresentException,
+            FrozenTopologyException {
+        List<Airport> airports = Arrays.asList(Airport.readFromAirportCsv()).subList(0, 30);
+
+        for (AirportNetwork.GraphType graphType : AirportNetwork.GraphType.values()) {
+            AirportNetwork network = new AirportNetwork(airports, graphType);
+            if (graphType != AirportNetwork.GraphType.CSR)
+                network.applyRouteUpdate(new AirportNetwork.RouteUpdate().closeRoute(airports.get(0), airports.get(1)));
+
+            Path file = folder.getRoot().toPath().resolve(graphType + ".snapshot");
+            NetworkSnapshot.write(file, 42, network);
+            AirportNetwork loaded = NetworkSnapshot.read(file, 42).getNetwork();
+
+            assertEquals(network.getSnapshot().connects(airports.get(0), airports.get(1)),
+                    loaded.getSnapshot().connects(airports.get(0), airports.get(1)));
+            for (Airport srcAirport : airports)
+                for (Airport desAirport : airports)
+                    assertEquals(network.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                            loaded.getShortestNonDirectPath(srcAirport, desAirport).getCost());
+        }
+    }
+
+}
@@ -0,0 +1,99 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import labprog2.util.graph.NodeIndex;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class NodeIndexTest {
+
+    @Test
+    public void testDenseIndexes() throws NodeAlreadyPresentException, NodeNotPresentException {
+        // Start small, so that both arrays must grow
+        NodeIndex<String> index = new NodeIndex<>(1);
+
+        for (int i = 0; i != 1000; ++i)
+            assertEquals(i, index.add("N" + i));
+
+        assertEquals(1000, index.size());
+        for (int i = 0; i != 1000; ++i) {
+            assertEquals(i, index.getIndex("N" + i));
+            assertEquals("N" + i, index.getNode(i));
+        }
+
+        assertEquals(-1, index.indexOf("N1000"));
+        assertFalse(index.contains(null));
+
+        try {
+            index.add("N7");
+            fail();
+        } catch (NodeAlreadyPresentException e) {
+            assertEquals(1000, index.size());
+        }
+
+        try {
+            index.getNode(1000);
+            fail();
+        } catch (NodeNotPresentException e) {
+            assertEquals(null, e.getNodeNotPresent());
+        }
+    }
+
+    @Test
+    public void testCopyIsIndependent() throws NodeAlreadyPresentException {
+        NodeIndex<String> index = new NodeIndex<>(4);
+        index.add("A");
+
+        NodeIndex<String> copy = new NodeIndex<>(index);
+        copy.add("B");
+
+        assertTrue(copy.contains("A"));
+        assertTrue(copy.contains("B"));
+        assertFalse(index.contains("B"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRemoveAndCompact() throws NodeAlreadyPresentException, NodeNotPresentException {
+        NodeIndex<String> index = new NodeIndex<>(1);
+        for (int i = 0; i != 100; ++i)
+            index.add("N" + i);
+
+        // Remove every even node, so that the remaining ones must be found past the emptied slots
+        for (int i = 0; i < 100; i += 2)
+            assertEquals(i, index.remove("N" + i));
+
+        assertEquals(50, index.size());
+        assertEquals(100, index.getIndexBound());
+        for (int i = 0; i != 100; ++i)
+            assertEquals(i % 2 == 0 ? -1 : i, index.indexOf("N" + i));
+
+        try {
+            index.getNode(10);
+            fail();
+        } catch (NodeNotPresentException e) {
+            assertEquals(null, e.getNodeNotPresent());
+        }
+
+        // Freed indexes are reused before the bound grows
+        assertEquals(98, index.add("M"));
+        assertEquals(100, index.getIndexBound());
+
+        int[] newIndexes = index.compact();
+        assertEquals(51, index.getIndexBound());
+        assertEquals(-1, newIndexes[0]);
+        assertEquals(0, newIndexes[1]);
+        assertEquals(49, newIndexes[98]);
+        assertEquals(50, newIndexes[99]);
+        assertEquals("N99", index.getNode(50));
+        assertEquals(50, index.getIndex("N99"));
+        assertEquals(49, index.getIndex("M"));
+    }
+
+}
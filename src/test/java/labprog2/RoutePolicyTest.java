@@ -0,0 +1,172 @@
+package labprog2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import com.opencsv.exceptions.CsvException;
+
+import labprog2.model.Airport;
+import labprog2.model.AirportNetwork;
+import labprog2.model.RoutePolicy;
+import labprog2.util.graph.GraphSnapshot;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FrozenTopologyException;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+import labprog2.util.location.CoordinateArrays;
+import labprog2.util.location.GeographicCoordinates;
+import labprog2.util.location.KdTree;
+
+public class RoutePolicyTest {
+
+    @Test
+    public void testKdTreeMatchesExhaustiveSearch() {
+        Random random = new Random(11);
+
+        List<GeographicCoordinates> points = new ArrayList<>();
+        for (int i = 0; i != 500; ++i)
+            points.add(new GeographicCoordinates(180 * random.nextDouble() - 90, 360 * random.nextDouble() - 180));
+        CoordinateArrays coordinates = new CoordinateArrays(points);
+        KdTree tree = new KdTree(coordinates);
+
+        for (int i = 0; i != points.size(); ++i) {
+            int point = i;
+            List<Integer> byDistance = IntStream.range(0, points.size()).filter(j -> j != point).boxed()
+                    .sorted(Comparator.comparingDouble(j -> coordinates.distance(point, j)))
+                    .collect(Collectors.toList());
+
+            int[] nearest = byDistance.subList(0, 8).stream().mapToInt(Integer::intValue).toArray();
+            assertArrayEquals(nearest, tree.nearest(point, 8));
+
+            int[] within = byDistance.stream().filter(j -> coordinates.distance(point, j) <= 1500)
+                    .mapToInt(Integer::intValue).sorted().toArray();
+            assertArrayEquals(within, tree.within(point, 1500));
+        }
+
+        assertEquals(points.size() - 1, tree.within(0, 30_000).length);
+    }
+
+    @Test
+    public void testSparseNetworks() throws IOException, CsvException, NodeNotPresentException {
+        List<Airport> airports = Arrays.asList(Airport.readFromAirportCsv());
+        Airport first = airports.get(0);
+        Airport last = airports.get(airports.size() - 1);
+
+        RoutePolicy policy = RoutePolicy.union(RoutePolicy.nearest(3), RoutePolicy.withinRange(300),
+                RoutePolicy.listed(Collections.singletonMap(first, Collections.singletonList(last))));
+
+        AirportNetwork csrNetwork = new AirportNetwork(airports, AirportNetwork.GraphType.CSR, policy);
+        AirportNetwork matrixNetwork = new AirportNetwork(airports, AirportNetwork.GraphType.MATRIX, policy);
+
+        GraphSnapshot<Airport> snapshot = csrNetwork.getSnapshot();
+        int routes = 0;
+        for (Airport airport : airports) {
+            assertTrue(snapshot.getEdgesFrom(airport).size() >= 3);
+            routes += snapshot.getEdgesFrom(airport).size();
+        }
+        assertTrue(routes < airports.size() * (airports.size() - 1) / 2);
+        assertTrue(snapshot.connects(first, last));
+
+        for (Airport srcAirport : airports)
+            for (Airport desAirport : airports)
+                assertEquals(matrixNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost(),
+                        csrNetwork.getShortestNonDirectPath(srcAirport, desAirport).getCost());
+    }
+
+    @Test
+    public void testCsrNetworksOnlyReopenChosenRoutes()
+            throws NodeNotPresentException, EdgeNotPresentException, FrozenTopologyException {
+        Airport a = createAirport("AAA", 0, 0);
+        Airport b = createAirport("BBB", 100, 0);
+        Airport c = createAirport("CCC", 300, 0);
+        AirportNetwork network = new AirportNetwork(Arrays.asList(a, b, c), AirportNetwork.GraphType.CSR,
+                RoutePolicy.nearest(1));
+
+        // The policy never chose the route from A to C, so the whole update is rejected
+        try {
+            network.applyRouteUpdate(new AirportNetwork.RouteUpdate().closeRoute(a, b).openRoute(a, c));
+            fail();
+        } catch (FrozenTopologyException e) {
+            assertEquals(c, e.getDesNode());
+        }
+        assertEquals(0, network.getSnapshot().getVersion());
+        assertTrue(network.getSnapshot().connects(a, b));
+
+        network.applyRouteUpdate(new AirportNetwork.RouteUpdate().closeRoute(a, b));
+        network.applyRouteUpdate(new AirportNetwork.RouteUpdate().openRoute(a, b));
+        assertTrue(network.getSnapshot().connects(a, b));
+    }
+
+    /**
+     * Creates an airport at a point given in kilometres east and north of the origin of the coordinates.
+     */
+    private static Airport createAirport(String iata, double east, double north) {
+        double kilometresPerDegree = Math.toRadians(GeographicCoordinates.EARTH_RADIUS);
+        return new Airport(new String[] { "0", iata, "", "", "", "", "", "", "", "", "", "", "", "", "",
+                String.valueOf(north / kilometresPerDegree), String.valueOf(east / kilometresPerDegree), "0", "" });
+    }
+
+    @Test
+    public void testShortRoutesOpenedByUpdatesLowerTheHeuristic()
+            throws NodeNotPresentException, EdgeNotPresentException, FrozenTopologyException {
+        Airport s = createAirport("SSS", 0, 0);
+        Airport u = createAirport("UUU", 200.5, 0);
+        Airport v = createAirport("VVV", 203.5, 0);
+        Airport t = createAirport("TTT", 503.8, 0);
+        Airport a = createAirport("AAA", 202, 1.3);
+
+        Map<Airport, List<Airport>> routes = new HashMap<>();
+        routes.put(s, Arrays.asList(u, v));
+        routes.put(v, Collections.singletonList(t));
+        AirportNetwork network = new AirportNetwork(Arrays.asList(s, u, v, t, a), AirportNetwork.GraphType.MATRIX,
+                RoutePolicy.listed(routes));
+
+        // Routes of a unit weight that span almost two units of distance each
+        network.applyRouteUpdate(new AirportNetwork.RouteUpdate().openRoute(u, a).openRoute(a, v));
+
+        assertEquals(502, network.getSnapshot().getShortestNonDirectPath(s, t).getCost());
+        assertEquals(network.getSnapshot().getShortestNonDirectPath(s, t).getCost(),
+                network.getShortestNonDirectPath(s, t).getCost());
+    }
+
+    @Test
+    public void testListedRoutesOfClosedAirportsAreSkipped() throws IOException, CsvException,
+            NodeNotPresentException, NodeAlreadyPresentException, FullGraphException {
+        List<Airport> airports = Arrays.asList(Airport.readFromAirportCsv());
+        Airport first = airports.get(0);
+        Airport last = airports.get(airports.size() - 1);
+        Airport opened = airports.get(1);
+        List<Airport> others = new ArrayList<>(airports);
+        others.remove(opened);
+
+        RoutePolicy policy = RoutePolicy.union(RoutePolicy.nearest(1),
+                RoutePolicy.listed(Collections.singletonMap(first, Collections.singletonList(last))));
+        AirportNetwork network = new AirportNetwork(others, AirportNetwork.GraphType.MATRIX, policy);
+        assertTrue(network.getSnapshot().connects(first, last));
+
+        // The listed route leaves with its origin, and comes back when the origin is opened again
+        network.closeAirport(first);
+        network.openAirport(opened);
+        assertTrue(network.getSnapshot().has(opened));
+        network.openAirport(first);
+        assertTrue(network.getSnapshot().connects(first, last));
+    }
+
+}
@@ -0,0 +1,65 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.GeographicGraph;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.Path;
+import labprog2.util.graph.RouteTable;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+import labprog2.util.location.GeographicCoordinates;
+
+public class RouteTableTest {
+
+    @Test
+    public void testMatchesSearchOnRandomGraphs()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(17);
+
+        for (int trial = 0; trial != 10; ++trial) {
+            int n = 30;
+            MatrixGraph<Integer> graph = TestGraphs.createRandomGraph(random, n, 0.1, 100);
+            RouteTable<Integer> table = RouteTable.build(graph);
+
+            for (int src = 0; src != n; ++src) {
+                for (int des = 0; des != n; ++des) {
+                    int expected = graph.getShortestPath(src, des).getCost();
+                    TestGraphs.assertShortestPath(graph, table.getShortestPath(src, des), src, des, expected);
+                    assertEquals(expected, table.getDistance(src, des));
+
+                    if (src == des)
+                        continue;
+                    Path<Integer> nonDirectPath = table.getShortestNonDirectPath(src, des);
+                    TestGraphs.assertShortestPath(graph, nonDirectPath, src, des,
+                            graph.getShortestNonDirectPath(src, des).getCost());
+                    if (nonDirectPath.getCost() != Integer.MAX_VALUE)
+                        assertTrue(nonDirectPath.getNodes().size() > 2);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testRejectsTablesLargerThanAnArray() throws NodeAlreadyPresentException {
+        // 46,341 squared overflows an int
+        GeographicGraph<Integer> graph = new GeographicGraph<>(i -> new GeographicCoordinates(0, 0), 46_341, 0);
+        for (int i = 0; i != 46_341; ++i)
+            graph.addNode(i);
+
+        try {
+            RouteTable.build(graph);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Route table of 46341 nodes does not fit in an array", e.getMessage());
+        }
+    }
+
+}
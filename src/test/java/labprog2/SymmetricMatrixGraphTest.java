@@ -0,0 +1,105 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.GraphSnapshot;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.SymmetricMatrixGraph;
+import labprog2.util.graph.VersionedGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class SymmetricMatrixGraphTest {
+
+    @Test
+    public void testEdgesGoBothWays()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        SymmetricMatrixGraph<String> graph = new SymmetricMatrixGraph<>(Arrays.asList("A", "B", "C"),
+                Arrays.asList(new Edge<>("A", "B", 2), new Edge<>("C", "B", 3)));
+
+        assertEquals(2, graph.getWeightBetween("B", "A"));
+        assertEquals(3, graph.getWeightBetween("B", "C"));
+        assertEquals(5, graph.getShortestPath("C", "A").getCost());
+
+        graph.removeEdgeBetween("B", "A");
+        assertFalse(graph.connects("A", "B"));
+        assertEquals(Integer.MAX_VALUE, graph.getShortestPath("C", "A").getCost());
+    }
+
+    @Test
+    public void testMatchesDirectedMatrix()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        Random random = new Random(5);
+
+        List<Integer> nodes = TestGraphs.createNodes(40);
+
+        // Start with a capacity of one node, so that the triangle must grow
+        SymmetricMatrixGraph<Integer> symmetric = new SymmetricMatrixGraph<>(1);
+        MatrixGraph<Integer> directed = new MatrixGraph<>(nodes.size());
+        for (Integer node : nodes) {
+            symmetric.addNode(node);
+            directed.addNode(node);
+        }
+
+        for (int i = 0; i != nodes.size(); ++i) {
+            for (int j = i; j != nodes.size(); ++j) {
+                if (random.nextDouble() < 0.2) {
+                    int weight = 1 + random.nextInt(50);
+                    symmetric.addEdge(new Edge<>(i, j, weight));
+                    directed.addEdge(new Edge<>(i, j, weight));
+                    directed.addEdge(new Edge<>(j, i, weight));
+                }
+            }
+        }
+
+        symmetric.removeNode(7);
+        directed.removeNode(7);
+
+        for (Integer node : symmetric.getNodes()) {
+            int index = symmetric.getNodeIndex(node);
+            List<String> visited = new ArrayList<>();
+            symmetric.forEachEdgeFrom(index, (desIndex, weight) -> visited.add(desIndex + ":" + weight));
+
+            List<String> expected = new ArrayList<>();
+            directed.forEachEdgeFrom(directed.getNodeIndex(node),
+                    (desIndex, weight) -> expected.add(desIndex + ":" + weight));
+
+            assertEquals(expected, visited);
+            assertEquals(directed.getEdgesFrom(node).size(), symmetric.getEdgesFrom(node).size());
+        }
+
+        TestGraphs.assertSameNonDirectCosts(directed, symmetric);
+
+        // Compaction keeps every edge between the remaining nodes
+        GraphSnapshot<Integer> compacted = new VersionedGraph<>(symmetric).compact();
+        assertEquals(nodes.size() - 1, compacted.getIndexBound());
+        for (Integer srcNode : compacted.getNodes())
+            for (Integer desNode : compacted.getNodes())
+                assertEquals(symmetric.connects(srcNode, desNode), compacted.connects(srcNode, desNode));
+        assertTrue(compacted.has(8));
+    }
+
+    @Test
+    public void testRejectsMatricesLargerThanAnArray() {
+        // The triangle of order 65,536 has more entries than an int can count
+        try {
+            new SymmetricMatrixGraph<Integer>(65_536);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Symmetric matrix of order 65536 does not fit in an array", e.getMessage());
+        }
+    }
+
+}
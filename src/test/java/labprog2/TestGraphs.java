@@ -0,0 +1,98 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.Graph;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.Path;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+/**
+ * Random graphs and path checks shared by the tests of the graphs and of the structures built on them.
+ */
+final class TestGraphs {
+
+    private TestGraphs() {
+    }
+
+    /**
+     *
+     * @return the integers from 0 to n - 1, to be used as nodes.
+     */
+    static List<Integer> createNodes(int n) {
+        List<Integer> nodes = new ArrayList<>(n);
+        for (int i = 0; i != n; ++i)
+            nodes.add(i);
+        return nodes;
+    }
+
+    /**
+     * Creates random edges between the nodes of {@link #createNodes(int)}, whose weights bear no relation to any
+     * geometry, such as fares. Each ordered pair of distinct nodes is connected with the given probability.
+     *
+     * @param random source of the edges.
+     * @param n number of nodes.
+     * @param probability probability of each edge.
+     * @param maxWeight greatest weight of an edge; the weights start at 1.
+     * @return edges, in the order of their source and then of their destiny.
+     */
+    static List<Edge<Integer>> createRandomEdges(Random random, int n, double probability, int maxWeight) {
+        List<Edge<Integer>> edges = new ArrayList<>();
+        for (int i = 0; i != n; ++i)
+            for (int j = 0; j != n; ++j)
+                if (i != j && random.nextDouble() < probability)
+                    edges.add(new Edge<>(i, j, 1 + random.nextInt(maxWeight)));
+        return edges;
+    }
+
+    /**
+     * Creates a graph of the nodes of {@link #createNodes(int)} and the edges of
+     * {@link #createRandomEdges(Random, int, double, int)}.
+     */
+    static MatrixGraph<Integer> createRandomGraph(Random random, int n, double probability, int maxWeight)
+            throws NodeAlreadyPresentException, NodeNotPresentException {
+        return new MatrixGraph<>(createNodes(n), createRandomEdges(random, n, probability, maxWeight));
+    }
+
+    /**
+     * Verifies that a path has the expected cost and, if there is a path at all, that it connects the given nodes
+     * and only follows edges of the graph whose weights add up to its cost.
+     */
+    static <Node> void assertShortestPath(Graph<Node> graph, Path<Node> path, Node srcNode, Node desNode,
+                                          int expectedCost) throws NodeNotPresentException, EdgeNotPresentException {
+        assertEquals(expectedCost, path.getCost());
+
+        List<Node> nodes = path.getNodes();
+        if (expectedCost == Integer.MAX_VALUE) {
+            assertTrue(nodes.isEmpty());
+            return;
+        }
+
+        assertEquals(srcNode, nodes.get(0));
+        assertEquals(desNode, nodes.get(nodes.size() - 1));
+        int cost = 0;
+        for (int k = 0; k + 1 < nodes.size(); ++k)
+            cost += graph.getWeightBetween(nodes.get(k), nodes.get(k + 1));
+        assertEquals(expectedCost, cost);
+    }
+
+    /**
+     * Verifies that the non-direct shortest paths between every pair of nodes of a graph cost the same as in a
+     * reference graph with the same nodes.
+     */
+    static <Node> void assertSameNonDirectCosts(Graph<Node> expected, Graph<Node> actual)
+            throws NodeNotPresentException {
+        for (Node srcNode : actual.getNodes())
+            for (Node desNode : actual.getNodes())
+                assertEquals(expected.getShortestNonDirectPath(srcNode, desNode).getCost(),
+                        actual.getShortestNonDirectPath(srcNode, desNode).getCost());
+    }
+}
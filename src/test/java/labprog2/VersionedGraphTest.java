@@ -0,0 +1,149 @@
+package labprog2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+
+import labprog2.util.graph.Edge;
+import labprog2.util.graph.GraphSnapshot;
+import labprog2.util.graph.MatrixGraph;
+import labprog2.util.graph.VersionedGraph;
+import labprog2.util.graph.exceptions.EdgeNotPresentException;
+import labprog2.util.graph.exceptions.FullGraphException;
+import labprog2.util.graph.exceptions.NodeAlreadyPresentException;
+import labprog2.util.graph.exceptions.NodeNotPresentException;
+
+public class VersionedGraphTest {
+
+    /**
+     * Creates a graph with a direct edge from A to C that is cheaper than the detour through B.
+     */
+    private static VersionedGraph<String> createGraph() throws NodeAlreadyPresentException, NodeNotPresentException {
+        List<String> nodes = Arrays.asList("A", "B", "C");
+        List<Edge<String>> edges = new ArrayList<>(Arrays.asList(
+                new Edge<>("A", "B", 2),
+                new Edge<>("B", "C", 2),
+                new Edge<>("A", "C", 3)));
+        return new VersionedGraph<>(new MatrixGraph<>(nodes, edges));
+    }
+
+    @Test
+    public void testSnapshotsDoNotChange()
+            throws NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        VersionedGraph<String> graph = createGraph();
+        GraphSnapshot<String> before = graph.getSnapshot();
+
+        GraphSnapshot<String> after = graph.apply(new VersionedGraph.Batch<String>()
+                .removeEdgeBetween("A", "C")
+                .addEdge(new Edge<>("C", "A", 1)));
+
+        assertEquals(0, before.getVersion());
+        assertEquals(1, after.getVersion());
+        assertEquals(after, graph.getSnapshot());
+
+        assertEquals(3, before.getShortestPath("A", "C").getCost());
+        assertEquals(4, after.getShortestPath("A", "C").getCost());
+        assertFalse(before.connects("C", "A"));
+        assertTrue(after.connects("C", "A"));
+
+        try {
+            after.addEdge(new Edge<>("B", "A", 1));
+            fail();
+        } catch (UnsupportedOperationException e) {
+            assertFalse(after.connects("B", "A"));
+        }
+    }
+
+    @Test
+    public void testFailedBatchIsNotPublished() throws NodeAlreadyPresentException, NodeNotPresentException {
+        VersionedGraph<String> graph = createGraph();
+
+        try {
+            graph.apply(new VersionedGraph.Batch<String>()
+                    .removeEdgeBetween("A", "C")
+                    .removeEdgeBetween("C", "A"));
+            fail();
+        } catch (EdgeNotPresentException e) {
+            assertEquals(0, graph.getSnapshot().getVersion());
+            assertTrue(graph.getSnapshot().connects("A", "C"));
+        }
+    }
+
+    @Test
+    public void testReadersDuringUpdates()
+            throws NodeAlreadyPresentException, NodeNotPresentException, InterruptedException {
+        VersionedGraph<String> graph = createGraph();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Close and reopen the direct edge while readers search
+        Thread writer = new Thread(() -> {
+            try {
+                while (running.get()) {
+                    graph.apply(new VersionedGraph.Batch<String>().removeEdgeBetween("A", "C"));
+                    graph.apply(new VersionedGraph.Batch<String>().addEdge(new Edge<>("A", "C", 3)));
+                }
+            } catch (NodeNotPresentException | EdgeNotPresentException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+
+        try {
+            IntStream.range(0, 100000).parallel().forEach(query -> {
+                GraphSnapshot<String> snapshot = graph.getSnapshot();
+                try {
+                    // Even versions have the direct edge, odd versions do not
+                    int expected = snapshot.getVersion() % 2 == 0 ? 3 : 4;
+                    assertEquals(expected, snapshot.getShortestPath("A", "C").getCost());
+                } catch (NodeNotPresentException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+
+    @Test
+    public void testNodeChangesAndCompaction()
+            throws FullGraphException, NodeAlreadyPresentException, NodeNotPresentException, EdgeNotPresentException {
+        // Start with a capacity of one node, so that the matrix must grow
+        MatrixGraph<String> matrix = new MatrixGraph<>(1);
+        matrix.addNode("A");
+        VersionedGraph<String> graph = new VersionedGraph<>(matrix);
+
+        graph.addNode("B", new VersionedGraph.Batch<String>().addEdge(new Edge<>("A", "B", 2)));
+        graph.addNode("C", new VersionedGraph.Batch<String>().addEdge(new Edge<>("B", "C", 2)));
+        graph.addNode("D", new VersionedGraph.Batch<String>()
+                .addEdge(new Edge<>("C", "D", 2))
+                .addEdge(new Edge<>("A", "D", 9)));
+        assertEquals(4, graph.getSnapshot().getShortestPath("A", "D").getNodes().size());
+
+        GraphSnapshot<String> beforeRemoval = graph.getSnapshot();
+        graph.removeNode("B");
+        assertEquals(9, graph.getSnapshot().getShortestPath("A", "D").getCost());
+        assertEquals(4, graph.getSnapshot().getIndexBound());
+        assertTrue(beforeRemoval.has("B"));
+
+        GraphSnapshot<String> compacted = graph.compact();
+        assertEquals(3, compacted.getIndexBound());
+        assertEquals(Arrays.asList("A", "C", "D"), compacted.getNodes());
+        assertEquals(1, compacted.getNodeIndex("C"));
+        assertEquals(9, compacted.getShortestPath("A", "D").getCost());
+        assertEquals(2, compacted.getWeightBetween("C", "D"));
+
+        // A graph without holes is not published again
+        assertTrue(compacted == graph.compact());
+    }
+
+}